@@ -0,0 +1,150 @@
+package com.example.logextractor.bench;
+
+import com.example.logextractor.AdbHelper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end extraction from a fake adb ({@link FakeAdb}) that prints synthetic logcat of a set size and rate.
+ * Compares {@link AdbHelper#executeAdbCommand}, which collects the output as a List of Strings, with
+ * {@link AdbHelper#extractLogcat}, which streams it into a file.
+ *
+ * The score is extractions per second; the "megabytes" counter is the matching throughput in MB/s. Peak heap
+ * per iteration is printed after each iteration. Run with "-prof gc" for the allocation rate. Both include
+ * the fake adb's JVM startup, as a real extraction includes the adb process start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExtractionBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int sizeMb;
+
+    @Param({"0"}) // MB/s, 0 = as fast as the pipe allows
+    public double rateMbps;
+
+    private static final List<String> LOGCAT_DUMP = Arrays.asList("logcat", "-d");
+
+    private Path workDirectory;
+    private AdbHelper adbHelper;
+    private PrintStream originalOut;
+
+    /**
+     * Throughput counter reported next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transferred {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDirectory = Files.createTempDirectory("extraction-bench");
+        adbHelper = new AdbHelper(FakeAdb.writeLauncher(workDirectory, sizeMb, rateMbps).getAbsolutePath());
+        adbHelper.setServerClient(null); // Never talk to a real adb server that happens to be running
+        // The extractor reports progress on stdout; keep it out of the benchmark output
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        originalOut.println(String.format("  peak heap: %.1f MB", peak / (1024.0 * 1024.0)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        File[] files = workDirectory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(workDirectory);
+    }
+
+    /**
+     * The line-list path: the whole log is held in memory as Strings.
+     */
+    @Benchmark
+    public int executeAdbCommand(Transferred transferred) throws IOException, InterruptedException {
+        List<String> lines = adbHelper.executeAdbCommand(null, LOGCAT_DUMP);
+        transferred.megabytes += sizeMb;
+        return lines.size();
+    }
+
+    /**
+     * The streaming path, including the device check and writing the file.
+     */
+    @Benchmark
+    public long extractLogcat(Transferred transferred) throws IOException {
+        File logFile = adbHelper.extractLogcat(null, workDirectory.toString(), "bench.txt");
+        if (logFile == null) {
+            throw new IOException("Extraction from the fake adb failed");
+        }
+        long length = logFile.length();
+        Files.delete(logFile.toPath());
+        transferred.megabytes += length / (1024.0 * 1024.0);
+        return length;
+    }
+}
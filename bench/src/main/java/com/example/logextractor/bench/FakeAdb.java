@@ -0,0 +1,118 @@
+package com.example.logextractor.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Stand-in for the adb executable, so extraction can be benchmarked without a device. Understands
+ * "devices" and "logcat" (any flags); "logcat" prints synthetic threadtime lines up to a set size,
+ * optionally throttled to a set rate. Output is deterministic for a given seed.
+ *
+ * Usage: FakeAdb [--size-mb=N] [--rate-mbps=N] [--seed=N | --cycle=FILE] [-s serial] command [args...]
+ *
+ * With --cycle the lines are read from a file prepared by {@link #writeLauncher}, so generating
+ * them does not count towards the time of every benchmarked adb call.
+ */
+public final class FakeAdb {
+
+    public static final String SERIAL = "fake-ivi-1";
+
+    private static final int CYCLE_LINES = 100_000; // ~11 MB of distinct lines, repeated to reach the target size
+    private static final int WRITE_CHUNK = 64 * 1024;
+
+    private FakeAdb() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long sizeBytes = 10L << 20;
+        double rateMbps = 0;
+        long seed = 42L;
+        Path cycleFile = null;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            String[] option = args[i].split("=", 2);
+            if ("--size-mb".equals(option[0])) {
+                sizeBytes = Long.parseLong(option[1]) << 20;
+            } else if ("--rate-mbps".equals(option[0])) {
+                rateMbps = Double.parseDouble(option[1]);
+            } else if ("--seed".equals(option[0])) {
+                seed = Long.parseLong(option[1]);
+            } else if ("--cycle".equals(option[0])) {
+                cycleFile = Paths.get(option[1]);
+            }
+        }
+        if (i + 1 < args.length && "-s".equals(args[i])) {
+            i += 2;
+        }
+        String command = i < args.length ? args[i] : "";
+
+        if ("devices".equals(command)) {
+            System.out.print("List of devices attached\n" + SERIAL + "\tdevice\n\n");
+        } else if ("logcat".equals(command)) {
+            try (OutputStream out = new BufferedOutputStream(System.out, WRITE_CHUNK)) {
+                byte[] cycle = cycleFile != null ? Files.readAllBytes(cycleFile) : SyntheticLogcat.generate(CYCLE_LINES, seed);
+                emit(out, cycle, sizeBytes, rateMbps);
+            }
+        } else {
+            System.out.println("FakeAdb: unsupported command '" + command + "'");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes whole lines from the cycle, repeating it, until the size is reached.
+     */
+    static void emit(OutputStream out, byte[] cycle, long sizeBytes, double rateMbps) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long written = 0;
+        int position = 0;
+        while (written < sizeBytes) {
+            int end = Math.min(cycle.length, position + (int) Math.min(WRITE_CHUNK, sizeBytes - written));
+            while (end < cycle.length && cycle[end - 1] != '\n') {
+                end++; // Finish the line, so the output is whole lines even at the size limit
+            }
+            out.write(cycle, position, end - position);
+            written += end - position;
+            position = end == cycle.length ? 0 : end;
+            if (rateMbps > 0) {
+                long dueNanos = (long) (written / (rateMbps * (1 << 20)) * 1e9);
+                long aheadMillis = (dueNanos - (System.nanoTime() - startNanos)) / 1_000_000;
+                if (aheadMillis > 0) {
+                    out.flush();
+                    Thread.sleep(aheadMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes an executable script that runs this class with the current JVM and classpath, for use as the adb
+     * command, together with the pre-generated lines it repeats.
+     *
+     * @return The script.
+     */
+    public static File writeLauncher(Path directory, long sizeMb, double rateMbps) throws IOException {
+        Path cycleFile = directory.resolve("fake-adb-cycle.log");
+        Files.write(cycleFile, SyntheticLogcat.generate(CYCLE_LINES, 42L));
+        File script = directory.resolve("fake-adb").toFile();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        try (PrintStream out = new PrintStream(script, StandardCharsets.US_ASCII.name())) {
+            out.print("#!/bin/sh\n");
+            // Fast startup matters more than peak speed: the stub only copies a pre-built buffer
+            out.print("exec \"" + java + "\" -XX:TieredStopAtLevel=1 -Xshare:auto -cp \"" + System.getProperty("java.class.path") + "\" "
+                    + FakeAdb.class.getName() + " --size-mb=" + sizeMb + " --rate-mbps=" + rateMbps
+                    + " --cycle=\"" + cycleFile + "\" \"$@\"\n");
+        }
+        if (!script.setExecutable(true)) {
+            throw new IOException("Cannot make " + script + " executable");
+        }
+        return script;
+    }
+}
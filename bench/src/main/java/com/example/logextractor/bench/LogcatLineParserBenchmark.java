@@ -0,0 +1,81 @@
+package com.example.logextractor.bench;
+
+import com.example.logextractor.LogcatLineParser;
+import com.example.logextractor.LogcatRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the byte-level threadtime parser compared with String splitting.
+ *
+ * Scores are lines per second (each invocation parses {@link #LINES} lines). Run with "-prof gc" to see
+ * allocation: gc.alloc.rate.norm is bytes allocated per line, and is expected to be ~0 for
+ * {@link #byteParser} and well above 100 for {@link #stringSplit}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogcatLineParserBenchmark {
+
+    static final int LINES = 100_000;
+
+    private byte[] log;
+    private int[] lineStarts;
+    private final LogcatRecord record = new LogcatRecord();
+
+    @Setup
+    public void setUp() {
+        log = SyntheticLogcat.generate(LINES, 42L);
+        lineStarts = new int[LINES + 1];
+        int line = 0;
+        for (int i = 0; i < log.length && line < LINES; i++) {
+            if (log[i] == '\n') {
+                lineStarts[++line] = i + 1;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long byteParser() {
+        long checksum = 0;
+        for (int i = 0; i < LINES; i++) {
+            if (LogcatLineParser.parse(log, lineStarts[i], lineStarts[i + 1], record)) {
+                checksum += record.pid + record.tagLength + record.level;
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Baseline: decode each line to a String and split it on whitespace, as isDeviceConnected does for "adb devices".
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long stringSplit() {
+        long checksum = 0;
+        for (int i = 0; i < LINES; i++) {
+            String line = new String(log, lineStarts[i], lineStarts[i + 1] - lineStarts[i], StandardCharsets.UTF_8);
+            String[] parts = line.split("\\s+", 7);
+            if (parts.length >= 6) {
+                checksum += Integer.parseInt(parts[2]) + parts[5].length() + parts[4].charAt(0);
+            }
+        }
+        return checksum;
+    }
+}
@@ -1,48 +1,475 @@
 package com.example.logextractor;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AdbHelper {
 
     private static final String ADB_COMMAND = "adb";
     private static final int TIMEOUT_SECONDS = 30; // Default timeout for ADB commands
+    static final long DUMP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10); // A stalled device must not hang a dump for good
+    private static final int COPY_BUFFER_SIZE = 64 * 1024; // Fixed buffer for streamed command output
+    private static final int ERROR_OUTPUT_LIMIT = 1000; // Max chars of output echoed for a failed command
+    private static final long INTERRUPT_POLL_MILLIS = 100; // How soon an interrupted caller's adb process is killed
+    // Kills commands that miss their deadline; a daemon thread, started on first use
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            new MultiDeviceExtractor.WorkerThreadFactory("adb-watchdog-"));
+
+    private final String adbCommand;
+    private volatile OutputFormat outputFormat = OutputFormat.TEXT;
+    private volatile TransferMode transferMode = TransferMode.TEXT;
+    private volatile LogFilter logFilter;
+    private volatile long dumpTimeoutMillis = DUMP_TIMEOUT_MILLIS;
+    private volatile AdbSocketClient serverClient = new AdbSocketClient();
+    private volatile DeviceRegistry deviceRegistry;
+    private final ExtractionStats stats = new ExtractionStats();
+
+    /**
+     * Uses the "adb" executable found on the PATH.
+     */
+    public AdbHelper() {
+        this(ADB_COMMAND);
+    }
+
+    /**
+     * @param adbCommand The adb executable to run, e.g. an absolute path or a stand-in for benchmarks.
+     */
+    public AdbHelper(String adbCommand) {
+        this.adbCommand = adbCommand;
+    }
+
+    /**
+     * @return The file format used by {@link #extractLogcat}.
+     */
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Sets the file format used by {@link #extractLogcat}. Compressed formats compress while the log streams in.
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    /**
+     * @return How logcat dumps travel from the device.
+     */
+    public TransferMode getTransferMode() {
+        return transferMode;
+    }
+
+    /**
+     * Sets how logcat dumps ({@link #extractLogcat}, {@link #extractLogcatIncremental}) travel from the device.
+     * Compact modes cut the bytes sent over slow links; the files written are the same.
+     */
+    public void setTransferMode(TransferMode transferMode) {
+        this.transferMode = transferMode;
+    }
+
+    /**
+     * @return The deadline for one logcat dump, in milliseconds, or 0 for none.
+     */
+    public long getDumpTimeoutMillis() {
+        return dumpTimeoutMillis;
+    }
+
+    /**
+     * Sets the deadline for one logcat dump ({@link #extractLogcat}, {@link #extractLogcatIncremental}, and each
+     * device or buffer of a multi-device or multi-buffer extraction). A dump past it is stopped and its partial
+     * output discarded. 0 waits for as long as the device keeps the transfer open.
+     */
+    public void setDumpTimeoutMillis(long dumpTimeoutMillis) {
+        this.dumpTimeoutMillis = dumpTimeoutMillis;
+    }
+
+    /**
+     * @return The filter applied to extracted lines, or null if every line is kept.
+     */
+    public LogFilter getLogFilter() {
+        return logFilter;
+    }
+
+    /**
+     * Sets a filter for extracted lines. Tag:level specs are passed to logcat on the device; the remaining
+     * criteria are checked on the host before anything is written. Null keeps every line.
+     */
+    public void setLogFilter(LogFilter logFilter) {
+        this.logFilter = logFilter;
+    }
+
+    /**
+     * @return The client used to talk to the adb server directly, or null if every command starts an adb process.
+     */
+    public AdbSocketClient getServerClient() {
+        return serverClient;
+    }
+
+    /**
+     * Sets the client used for device listing and logcat transfers. Null makes every command start an adb
+     * process. If the server turns out not to be running, the helper switches to adb processes by itself.
+     */
+    public void setServerClient(AdbSocketClient serverClient) {
+        this.serverClient = serverClient;
+    }
+
+    /**
+     * @return The registry answering device checks from memory, or null if every check queries adb.
+     */
+    public DeviceRegistry getDeviceRegistry() {
+        return deviceRegistry;
+    }
+
+    /**
+     * Sets a started registry to answer {@link #listDevices()} from memory while it is tracking. Null queries adb every time.
+     */
+    public void setDeviceRegistry(DeviceRegistry deviceRegistry) {
+        this.deviceRegistry = deviceRegistry;
+    }
+
+    /**
+     * @return Totals over all extractions by this helper, which can also be published over JMX.
+     */
+    public ExtractionStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return Timings and counters of the most recently finished extraction, or null if there was none.
+     */
+    public ExtractionMetrics getLastMetrics() {
+        return stats.getLast();
+    }
 
     /**
-     * Executes an ADB command and returns its output.
+     * Executes an ADB command and returns its output. The command is killed if it has not finished
+     * within {@link #TIMEOUT_SECONDS}, so a hung adb cannot block the caller for good.
      *
      * @param commandArgs The ADB command and its arguments (e.g., "logcat", "-d").
      * @return A list of strings, where each string is a line of the command output.
-     * @throws IOException If an I/O error occurs during command execution.
+     * @throws IOException If an I/O error occurs during command execution, or the command times out.
      * @throws InterruptedException If the command execution is interrupted.
      */
     public List<String> executeAdbCommand(String targetDevice, List<String> commandArgs) throws IOException, InterruptedException {
-        List<String> fullCommand = new ArrayList<>();
-        fullCommand.add(ADB_COMMAND);
-        if (targetDevice != null && !targetDevice.isEmpty()) {
-            fullCommand.add("-s");
-            fullCommand.add(targetDevice);
+        return executeAdbCommand(targetDevice, commandArgs, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Like {@link #executeAdbCommand(String, List)}, with the given deadline instead of the default.
+     * Waits for {@link #executeAdbCommandAsync}; an interrupt while waiting kills the command.
+     *
+     * @param timeoutMillis The deadline for the whole command, or 0 for none.
+     * @throws IOException If the command fails or misses the deadline.
+     */
+    public List<String> executeAdbCommand(String targetDevice, List<String> commandArgs, long timeoutMillis) throws IOException, InterruptedException {
+        return await(executeAdbCommandAsync(targetDevice, commandArgs, timeoutMillis));
+    }
+
+    /**
+     * Starts an ADB command and returns at once; its output is collected as lines in the background.
+     * Many commands, on many devices, can be in flight at the same time without a waiting thread each
+     * (see {@link AdbOutputPump}).
+     *
+     * @param timeoutMillis The deadline for the whole command, or 0 for none.
+     * @return A future completing with the output lines, or exceptionally with an IOException if the command
+     *         cannot run or fails, or a TimeoutException if it missed the deadline. The command is killed when
+     *         the deadline passes or the future is cancelled.
+     */
+    public CompletableFuture<List<String>> executeAdbCommandAsync(String targetDevice, List<String> commandArgs, long timeoutMillis) {
+        LineCollector lines = new LineCollector();
+        CompletableFuture<Long> transfer = executeAdbCommandToStreamAsync(targetDevice, commandArgs, lines, timeoutMillis);
+        CompletableFuture<List<String>> result = transfer.thenApply(bytes -> lines.finish());
+        result.whenComplete((output, e) -> {
+            if (e != null) {
+                transfer.completeExceptionally(e); // Passes a cancellation on, so the command is killed
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts an ADB command and returns at once; its raw output is copied into the given stream in the
+     * background. Device commands ("logcat", "shell", "exec-out") are read from the adb server by a single
+     * shared selector thread; only when no server is running does each command need a pool thread to drain
+     * its adb process. The stream is written from those threads and should not block for long.
+     *
+     * @param out The stream receiving the output. It is not closed.
+     * @param timeoutMillis The deadline for the whole command, or 0 for none.
+     * @return A future completing with the number of bytes copied; see {@link #executeAdbCommandAsync} for failures.
+     */
+    public CompletableFuture<Long> executeAdbCommandToStreamAsync(String targetDevice, List<String> commandArgs, OutputStream out,
+            long timeoutMillis) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        AdbOutputPump pump;
+        try {
+            pump = AdbOutputPump.shared();
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
         }
-        fullCommand.addAll(commandArgs);
+        if (timeoutMillis > 0) {
+            List<String> fullCommand = buildCommand(targetDevice, commandArgs);
+            ScheduledFuture<?> deadline = WATCHDOG.schedule(
+                    () -> result.completeExceptionally(new TimeoutException(timeoutMessage(fullCommand, timeoutMillis))),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            result.whenComplete((bytes, e) -> deadline.cancel(false));
+        }
+        // Connecting and spawning block briefly, so they run on the pool rather than the caller's thread
+        pump.getDrainPool().execute(() -> startAsync(targetDevice, commandArgs, out, result, pump));
+        return result;
+    }
 
-        ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
-        processBuilder.redirectErrorStream(true); // Combine stdout and stderr
+    private void startAsync(String targetDevice, List<String> commandArgs, OutputStream out, CompletableFuture<Long> result, AdbOutputPump pump) {
+        if (result.isDone()) {
+            return; // Cancelled or out of time before it started
+        }
+        try {
+            AdbSocketClient client = serverClient;
+            String service = client != null ? AdbSocketClient.deviceService(commandArgs) : null;
+            if (service != null) {
+                try {
+                    boolean shellProtocol = AdbSocketClient.isShellService(service) && client.supportsShellV2(targetDevice);
+                    String requested = shellProtocol ? AdbSocketClient.shellV2Service(service) : service;
+                    System.out.println("INFO: Requesting from ADB server: " + (targetDevice != null ? targetDevice + " " : "") + requested);
+                    SocketChannel channel = client.openService(targetDevice, requested);
+                    result.whenComplete((bytes, e) -> closeQuietly(channel)); // Ends the transfer on a deadline or cancellation
+                    if (!shellProtocol) {
+                        pump.transfer(channel, out, result);
+                        return;
+                    }
+                    ShellProtocolOutputStream shell = new ShellProtocolOutputStream(out);
+                    CompletableFuture<Long> wire = new CompletableFuture<>();
+                    wire.whenComplete((wireBytes, e) -> {
+                        IOException failure = e != null ? null : shellFailure(shell, requested);
+                        if (e != null) {
+                            result.completeExceptionally(e);
+                        } else if (failure != null) {
+                            result.completeExceptionally(failure);
+                        } else {
+                            result.complete(shell.getBytesWritten());
+                        }
+                    });
+                    pump.transfer(channel, shell, wire);
+                    return;
+                } catch (AdbSocketClient.ServerUnavailableException e) {
+                    fallBackToProcesses(e); // Nothing was transferred yet, so the command can simply be rerun
+                }
+            }
 
-        System.out.println("INFO: Executing ADB command: " + String.join(" ", fullCommand));
+            List<String> fullCommand = buildCommand(targetDevice, commandArgs);
+            Process process = startProcess(fullCommand);
+            result.whenComplete((bytes, e) -> {
+                if (e != null) {
+                    process.destroyForcibly();
+                }
+            });
+            WireInputStream wire = new WireInputStream(process.getInputStream());
+            long total = copyDecoded(TransferMode.TEXT, wire, out);
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("ADB command did not exit after closing its output: " + String.join(" ", fullCommand));
+            }
+            int exitCode = process.exitValue();
+            if (exitCode != 0 && !result.isDone()) {
+                throw commandFailed(exitCode, String.join(" ", fullCommand), wire.head());
+            }
+            if (result.complete(total)) {
+                System.out.println("INFO: ADB command executed successfully.");
+            }
+        } catch (IOException e) {
+            result.completeExceptionally(e); // No effect if a deadline or cancellation got there first
+        } catch (InterruptedException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Waits for an asynchronous command, turning its failure back into the exception a blocking call would throw.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true); // Kills the command
+            throw new InterruptedException("ADB command interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                System.err.println("ERROR: " + cause.getMessage());
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("ADB command failed: " + cause, cause);
+        }
+    }
+
+    /**
+     * Executes an ADB command and copies its raw output straight into the given stream.
+     * Output is moved through a fixed-size buffer without decoding it into lines, so memory
+     * use stays flat regardless of how much the command prints.
+     *
+     * @param targetDevice The specific device ID to target (can be null).
+     * @param commandArgs The ADB command and its arguments (e.g., "logcat", "-d").
+     * @param out The stream receiving the command output. It is not closed by this method.
+     * @return The number of bytes copied into the stream.
+     * @throws IOException If an I/O error occurs or the command fails or times out.
+     * @throws InterruptedException If the command execution is interrupted.
+     */
+    public long executeAdbCommandToStream(String targetDevice, List<String> commandArgs, OutputStream out) throws IOException, InterruptedException {
+        return executeAdbCommandToStream(targetDevice, commandArgs, out, null);
+    }
+
+    /**
+     * Like {@link #executeAdbCommandToStream(String, List, OutputStream)}, recording the spawn, first byte and
+     * transfer phases and the received bytes and lines into the given metrics (which may be null).
+     */
+    long executeAdbCommandToStream(String targetDevice, List<String> commandArgs, OutputStream out, ExtractionMetrics metrics)
+            throws IOException, InterruptedException {
+        return executeAdbCommandToStream(targetDevice, commandArgs, TransferMode.TEXT, out, metrics);
+    }
 
-        Process process = processBuilder.start();
-        List<String> output = new ArrayList<>();
+    /**
+     * Like {@link #executeAdbCommandToStream(String, List, OutputStream, ExtractionMetrics)}, for a command built by
+     * {@link TransferMode#adbCommand}: the output is decoded back into logcat text on its way into the stream.
+     * The returned count is of decoded bytes; the bytes that actually crossed the link go into the metrics.
+     */
+    long executeAdbCommandToStream(String targetDevice, List<String> commandArgs, TransferMode transfer, OutputStream out,
+            ExtractionMetrics metrics) throws IOException, InterruptedException {
+        return executeAdbCommandToStream(targetDevice, commandArgs, transfer, out, metrics, 0);
+    }
+
+    /**
+     * Like {@link #executeAdbCommandToStream(String, List, TransferMode, OutputStream, ExtractionMetrics)}, stopping the
+     * transfer (killing adb, or closing the server connection) if it has not finished within the given time.
+     *
+     * @param timeoutMillis The deadline for the whole command including the transfer, or 0 for none.
+     */
+    long executeAdbCommandToStream(String targetDevice, List<String> commandArgs, TransferMode transfer, OutputStream out,
+            ExtractionMetrics metrics, long timeoutMillis) throws IOException, InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (metrics != null) {
+            out = new MeasuringOutputStream(out, metrics);
+        }
+        AdbSocketClient client = serverClient;
+        String service = client != null ? AdbSocketClient.deviceService(commandArgs) : null;
+        if (service != null) {
+            try {
+                // Compact transfers use "exec:", which has no shell protocol variant
+                boolean shellProtocol = transfer == TransferMode.TEXT && AdbSocketClient.isShellService(service) && client.supportsShellV2(targetDevice);
+                if (shellProtocol) {
+                    service = AdbSocketClient.shellV2Service(service);
+                }
+                System.out.println("INFO: Requesting from ADB server: " + (targetDevice != null ? targetDevice + " " : "") + service);
+                if (metrics != null) {
+                    metrics.markSpawnStart();
+                }
+                try (SocketChannel channel = client.openService(targetDevice, service)) {
+                    if (metrics != null) {
+                        metrics.markCommandStarted("adb-server");
+                    }
+                    long total;
+                    long wireBytes;
+                    AtomicBoolean expired = new AtomicBoolean();
+                    ScheduledFuture<?> deadline = startDeadline(remainingMillis(timeoutMillis, deadlineNanos), expired, () -> closeQuietly(channel));
+                    try {
+                        if (shellProtocol) {
+                            ShellProtocolOutputStream shell = new ShellProtocolOutputStream(out);
+                            wireBytes = AdbSocketClient.copy(channel, shell);
+                            total = shell.getBytesWritten();
+                            IOException failure = shellFailure(shell, service);
+                            if (failure != null) {
+                                throw failure;
+                            }
+                        } else if (transfer == TransferMode.TEXT) {
+                            total = AdbSocketClient.copy(channel, out);
+                            wireBytes = total;
+                        } else {
+                            WireInputStream wire = new WireInputStream(Channels.newInputStream(channel));
+                            total = copyDecoded(transfer, wire, out);
+                            wireBytes = wire.getCount();
+                        }
+                    } catch (ClosedByInterruptException e) {
+                        throw new InterruptedIOException("ADB command interrupted"); // Cancelled, e.g. a daemon job
+                    } catch (IOException e) {
+                        throw expired.get() ? timedOut(Collections.singletonList(service), timeoutMillis) : e;
+                    } finally {
+                        cancelDeadline(deadline);
+                    }
+                    if (metrics != null) {
+                        metrics.setWireBytes(wireBytes);
+                        metrics.markTransferDone();
+                    }
+                    System.out.println("INFO: ADB command executed successfully.");
+                    return total;
+                }
+            } catch (AdbSocketClient.ServerUnavailableException e) {
+                fallBackToProcesses(e); // Nothing was transferred yet, so the command can simply be rerun
+                if (metrics != null) {
+                    metrics.addRetry();
+                }
+            }
+        }
+        List<String> fullCommand = buildCommand(targetDevice, commandArgs);
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.add(line);
+        if (metrics != null) {
+            metrics.markSpawnStart();
+        }
+        Process process = startProcess(fullCommand);
+        if (metrics != null) {
+            metrics.markCommandStarted("adb-process");
+        }
+        // Keeps the head of the raw output so a failing command can still be reported meaningfully
+        WireInputStream wire = new WireInputStream(process.getInputStream());
+        long total;
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = startDeadline(remainingMillis(timeoutMillis, deadlineNanos), expired, process::destroyForcibly);
+        ScheduledFuture<?> interruptWatch = killOnInterrupt(Thread.currentThread(), process);
+        try {
+            total = copyDecoded(transfer, wire, out);
+        } catch (IOException e) {
+            process.destroyForcibly();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("ADB command interrupted"); // Cancelled, e.g. a daemon job
             }
+            throw expired.get() ? timedOut(fullCommand, timeoutMillis) : e;
+        } finally {
+            cancelDeadline(deadline);
+            interruptWatch.cancel(false);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            process.destroyForcibly();
+            throw new InterruptedIOException("ADB command interrupted"); // Killed while idle, which looks like the end of the output
+        }
+        if (expired.get()) {
+            throw timedOut(fullCommand, timeoutMillis);
         }
 
         boolean exited = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
@@ -54,17 +481,337 @@ public class AdbHelper {
 
         int exitCode = process.exitValue();
         if (exitCode != 0) {
-            System.err.println("ERROR: ADB command failed with exit code " + exitCode + ": " + String.join(" ", fullCommand));
-            // Limit printing of potentially very long output from failed command
-            String errorOutput = String.join("\n", output);
-            if (errorOutput.length() > 1000) {
-                errorOutput = errorOutput.substring(0, 1000) + "... (output truncated)";
-            }
-            System.err.println("ERROR: ADB command output:\n" + errorOutput);
-            throw new IOException("ADB command failed with exit code " + exitCode + ". Output:\n" + errorOutput);
+            throw commandFailed(exitCode, String.join(" ", fullCommand), wire.head());
+        }
+        if (metrics != null) {
+            metrics.setWireBytes(wire.getCount());
+            metrics.markTransferDone();
         }
         System.out.println("INFO: ADB command executed successfully.");
-        return output;
+        return total;
+    }
+
+    /**
+     * Runs the kill action once the time is up, unless cancelled first, and flags the expiry so the
+     * resulting read error can be reported as a timeout.
+     *
+     * @return The pending kill, or null if there is no deadline.
+     */
+    private static ScheduledFuture<?> startDeadline(long timeoutMillis, AtomicBoolean expired, Runnable kill) {
+        if (timeoutMillis <= 0) {
+            return null;
+        }
+        return WATCHDOG.schedule(() -> {
+            expired.set(true);
+            kill.run();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Kills the process once the given thread is interrupted. Reads from a process pipe ignore interrupts, so
+     * without this a cancelled caller would stay blocked until adb prints something or exits on its own.
+     */
+    private static ScheduledFuture<?> killOnInterrupt(Thread caller, Process process) {
+        return WATCHDOG.scheduleWithFixedDelay(() -> {
+            if (caller.isInterrupted()) {
+                process.destroyForcibly();
+            }
+        }, INTERRUPT_POLL_MILLIS, INTERRUPT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancelDeadline(ScheduledFuture<?> deadline) {
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * @return The time left until the deadline (at least 1 ms, so a spent deadline still fires), or 0 if there is none.
+     */
+    private static long remainingMillis(long timeoutMillis, long deadlineNanos) {
+        return timeoutMillis <= 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Reports a command that exited with an error, showing the start of what it printed.
+     */
+    private static IOException commandFailed(int exitCode, String command, String output) {
+        System.err.println("ERROR: ADB command failed with exit code " + exitCode + ": " + command);
+        System.err.println("ERROR: ADB command output:\n" + output);
+        return new IOException("ADB command failed with exit code " + exitCode + ". Output:\n" + output);
+    }
+
+    /**
+     * @return The failure of a shell protocol command that has ended, as for an adb process, or null if it exited with 0.
+     */
+    private static IOException shellFailure(ShellProtocolOutputStream shell, String service) {
+        if (shell.getExitCode() == 0) {
+            return null;
+        }
+        if (shell.getExitCode() == -1) {
+            System.err.println("ERROR: ADB server closed the connection before the command exited: " + service);
+            return new IOException("ADB server closed the connection before the command exited: " + service);
+        }
+        return commandFailed(shell.getExitCode(), service, shell.getErrorOutput());
+    }
+
+    private static IOException timedOut(List<String> fullCommand, long timeoutMillis) {
+        String message = timeoutMessage(fullCommand, timeoutMillis);
+        System.err.println("ERROR: " + message);
+        return new IOException(message);
+    }
+
+    private static String timeoutMessage(List<String> fullCommand, long timeoutMillis) {
+        return String.format(Locale.ROOT, "ADB command timed out after %.1f s: %s", timeoutMillis / 1000.0, String.join(" ", fullCommand));
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Only used to abort a transfer
+        }
+    }
+
+    /**
+     * Copies the decoded output into the stream through a fixed-size buffer.
+     * A device that cannot produce the transfer mode (e.g. has no gzip) prints an error message instead,
+     * so decoding failures are reported together with the start of what was received.
+     */
+    private static long copyDecoded(TransferMode transfer, WireInputStream wire, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        InputStream in;
+        try {
+            in = transfer.decode(wire);
+        } catch (IOException e) {
+            throw undecodable(transfer, wire, e);
+        }
+        try {
+            while (true) {
+                int read;
+                try {
+                    read = in.read(buffer);
+                } catch (IOException e) {
+                    throw undecodable(transfer, wire, e);
+                }
+                if (read == -1) {
+                    return total;
+                }
+                out.write(buffer, 0, read);
+                total += read;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static IOException undecodable(TransferMode transfer, WireInputStream wire, IOException e) {
+        if (transfer == TransferMode.TEXT) {
+            return e;
+        }
+        wire.fillHead();
+        return new IOException("Cannot decode " + transfer.getOptionName() + " transfer (" + e.getMessage()
+                + "); the device may not support it, try --transfer=text. Output began with:\n" + wire.head(), e);
+    }
+
+    /**
+     * Collects output as lines for {@link #executeAdbCommandAsync}, decoded like a BufferedReader over the
+     * process output would (platform charset, without the line terminators).
+     */
+    private static class LineCollector extends LineSplittingOutputStream {
+        private final List<String> lines = new ArrayList<>();
+
+        LineCollector() {
+            super(new ByteArrayOutputStream(0)); // Lines are kept, nothing is passed on
+        }
+
+        @Override
+        protected void onLine(byte[] bytes, int offset, int length) {
+            int end = offset + length;
+            if (end > offset && bytes[end - 1] == '\n') {
+                end--;
+            }
+            if (end > offset && bytes[end - 1] == '\r') {
+                end--;
+            }
+            lines.add(new String(bytes, offset, end - offset, Charset.defaultCharset()));
+        }
+
+        List<String> finish() {
+            try {
+                close(); // Delivers an unterminated last line
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Counts the raw bytes received from adb and keeps the first {@link #ERROR_OUTPUT_LIMIT} of them.
+     */
+    private static class WireInputStream extends FilterInputStream {
+        private final byte[] head = new byte[ERROR_OUTPUT_LIMIT];
+        private int headLength;
+        private long count;
+
+        WireInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkInterrupted();
+            int b = in.read();
+            if (b != -1) {
+                if (headLength < head.length) {
+                    head[headLength++] = (byte) b;
+                }
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkInterrupted();
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                int n = Math.min(read, head.length - headLength);
+                System.arraycopy(b, off, head, headLength, n);
+                headLength += n;
+                count += read;
+            }
+            return read;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        /**
+         * Process pipes ignore interrupts, so a cancelled extraction is noticed between reads instead; the
+         * caller then kills adb.
+         */
+        private static void checkInterrupted() throws InterruptedIOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("ADB command interrupted");
+            }
+        }
+
+        /**
+         * Reads on until the head is complete, so an error message printed by the device is shown in full
+         * even if the decoder gave up after its first bytes.
+         */
+        void fillHead() {
+            byte[] rest = new byte[head.length];
+            try {
+                while (headLength < head.length && read(rest, 0, head.length - headLength) != -1) {
+                    // read() appends to the head
+                }
+            } catch (IOException e) {
+                // Show what arrived so far
+            }
+        }
+
+        /**
+         * @return The start of the output as text, with unprintable bytes shown as '.'.
+         */
+        String head() {
+            StringBuilder text = new StringBuilder(headLength);
+            for (int i = 0; i < headLength; i++) {
+                char c = (char) (head[i] & 0xFF);
+                text.append(c == '\n' || c == '\t' || (c >= 0x20 && c < 0x7F) ? c : '.');
+            }
+            if (count > headLength) {
+                text.append("... (output truncated)");
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Starts an ADB command without waiting for it to finish, e.g. a long-running "logcat".
+     * No timeout is applied; the caller owns the returned process and must read its output and destroy it.
+     *
+     * @param targetDevice The specific device ID to target (can be null).
+     * @param commandArgs The ADB command and its arguments.
+     * @return The started process, with stderr merged into stdout.
+     * @throws IOException If the process cannot be started.
+     */
+    public Process startAdbProcess(String targetDevice, List<String> commandArgs) throws IOException {
+        return startProcess(buildCommand(targetDevice, commandArgs));
+    }
+
+    private Process startProcess(List<String> fullCommand) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
+        processBuilder.redirectErrorStream(true); // Combine stdout and stderr
+
+        System.out.println("INFO: Executing ADB command: " + String.join(" ", fullCommand));
+
+        return processBuilder.start();
+    }
+
+    private void fallBackToProcesses(AdbSocketClient.ServerUnavailableException e) {
+        // The adb executable starts the server on demand, which a plain socket connection cannot do
+        serverClient = null;
+        System.out.println("INFO: " + e.getMessage() + ". Using the adb executable instead.");
+    }
+
+    private List<String> buildCommand(String targetDevice, List<String> commandArgs) {
+        List<String> fullCommand = new ArrayList<>();
+        fullCommand.add(adbCommand);
+        if (targetDevice != null && !targetDevice.isEmpty()) {
+            fullCommand.add("-s");
+            fullCommand.add(targetDevice);
+        }
+        fullCommand.addAll(commandArgs);
+        return fullCommand;
+    }
+
+    /**
+     * Lists all devices known to ADB together with their state.
+     *
+     * @return A map of device serial to state (e.g., "device", "unauthorized", "offline"), in the order reported by ADB.
+     * @throws IOException If an I/O error occurs during command execution.
+     * @throws InterruptedException If the command execution is interrupted.
+     */
+    public Map<String, String> listDevices() throws IOException, InterruptedException {
+        DeviceRegistry registry = deviceRegistry;
+        if (registry != null && registry.isTracking()) {
+            return registry.getDevices();
+        }
+        AdbSocketClient client = serverClient;
+        if (client != null) {
+            try {
+                return client.listDevices();
+            } catch (AdbSocketClient.ServerUnavailableException e) {
+                fallBackToProcesses(e);
+            }
+        }
+        List<String> args = new ArrayList<>();
+        args.add("devices");
+        return parseDeviceList(executeAdbCommand(null, args));
+    }
+
+    /**
+     * Parses the output of "adb devices" into a map of device serial to state.
+     */
+    static Map<String, String> parseDeviceList(List<String> output) {
+        Map<String, String> devices = new LinkedHashMap<>();
+        for (String rawLine : output) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("*") || line.startsWith("List of devices")) {
+                continue;
+            }
+            // Example lines: "emulator-5554\tdevice", "R58M726X7XN\tunauthorized"
+            String[] parts = line.split("\\s+"); // Split by whitespace
+            if (parts.length >= 2) {
+                devices.put(parts[0], parts[1]);
+            }
+        }
+        return devices;
     }
 
     /**
@@ -75,42 +822,32 @@ public class AdbHelper {
     public boolean isDeviceConnected(String targetDevice) {
         System.out.println("INFO: Checking for ADB devices" + (targetDevice != null ? " (specifically " + targetDevice + ")" : "") + "...");
         try {
-            List<String> args = new ArrayList<>();
-            args.add("devices");
-            List<String> output = executeAdbCommand(null, args); // Always list all devices first
+            Map<String, String> devices = listDevices(); // Always list all devices first
 
-            if (output.size() <= 1) { // Only header or empty
+            if (devices.isEmpty()) {
                 System.out.println("INFO: No devices found or 'adb devices' returned empty list (after header).");
                 return false;
             }
 
             boolean foundDevice = false;
-            for (int i = 1; i < output.size(); i++) { // Skip header line
-                String line = output.get(i).trim();
-                if (line.isEmpty() || line.startsWith("*") || line.startsWith("List of devices")) {
-                    continue;
-                }
-                // Example lines: "emulator-5554\tdevice", "R58M726X7XN\tunauthorized"
-                String[] parts = line.split("\\s+"); // Split by whitespace
-                if (parts.length >= 2) {
-                    String deviceId = parts[0];
-                    String deviceState = parts[1];
-
-                    if ("device".equalsIgnoreCase(deviceState)) { // Check if device is in "device" state
-                        if (targetDevice != null && !targetDevice.isEmpty()) {
-                            if (deviceId.equals(targetDevice)) {
-                                System.out.println("INFO: Specified device " + targetDevice + " found and connected.");
-                                foundDevice = true;
-                                break;
-                            }
-                        } else {
-                            System.out.println("INFO: At least one device found and connected: " + deviceId);
+            for (Map.Entry<String, String> device : devices.entrySet()) {
+                String deviceId = device.getKey();
+                String deviceState = device.getValue();
+
+                if ("device".equalsIgnoreCase(deviceState)) { // Check if device is in "device" state
+                    if (targetDevice != null && !targetDevice.isEmpty()) {
+                        if (deviceId.equals(targetDevice)) {
+                            System.out.println("INFO: Specified device " + targetDevice + " found and connected.");
                             foundDevice = true;
-                            break; // Any connected device is fine if no target is specified
+                            break;
                         }
                     } else {
-                         System.out.println("INFO: Device " + deviceId + " found but in state: " + deviceState);
+                        System.out.println("INFO: At least one device found and connected: " + deviceId);
+                        foundDevice = true;
+                        break; // Any connected device is fine if no target is specified
                     }
+                } else {
+                     System.out.println("INFO: Device " + deviceId + " found but in state: " + deviceState);
                 }
             }
             if (!foundDevice) {
@@ -133,40 +870,300 @@ public class AdbHelper {
      */
     public File extractLogcat(String targetDevice, String outputDirectory, String outputFileName) {
         System.out.println("INFO: Attempting to extract logcat for device: " + (targetDevice != null ? targetDevice : "default"));
-        if (!isDeviceConnected(targetDevice)) {
+        ExtractionMetrics metrics = new ExtractionMetrics(targetDevice);
+        long checkStartNanos = System.nanoTime();
+        boolean connected = isDeviceConnected(targetDevice);
+        metrics.setDeviceCheckNanos(System.nanoTime() - checkStartNanos);
+        if (!connected) {
             // isDeviceConnected already prints detailed error/info messages
             System.err.println("ERROR: Cannot extract logcat, device not connected or not in operational state.");
+            metrics.finish(null, false, "Device not connected or not in operational state");
+            stats.record(metrics);
             return null;
         }
+        return streamLogcatToFile(targetDevice, outputDirectory, outputFileName, Collections.<String>emptyList(), metrics, dumpTimeoutMillis);
+    }
+
+    /**
+     * Streams "adb logcat -d" into a file without checking the device state first.
+     * Callers that already know the device is operational (e.g. multi-device extraction) use this directly.
+     *
+     * @return The File object representing the saved log file, or null if an error occurred.
+     */
+    File streamLogcatToFile(String targetDevice, String outputDirectory, String outputFileName) {
+        return streamLogcatToFile(targetDevice, outputDirectory, outputFileName, Collections.<String>emptyList());
+    }
+
+    /**
+     * Like {@link #streamLogcatToFile(String, String, String)}, with extra logcat arguments such as "-b crash".
+     * Both stop the dump after {@link #getDumpTimeoutMillis()}.
+     */
+    File streamLogcatToFile(String targetDevice, String outputDirectory, String outputFileName, List<String> extraLogcatArgs) {
+        return streamLogcatToFile(targetDevice, outputDirectory, outputFileName, extraLogcatArgs, new ExtractionMetrics(targetDevice), dumpTimeoutMillis);
+    }
 
+    /**
+     * Like {@link #streamLogcatToFile(String, String, String)}, with all options, recording into the given metrics.
+     * Callers reporting the size of the log read {@link ExtractionMetrics#getBytes()}: the logcat bytes received,
+     * whatever the output format stores on disk.
+     *
+     * @param extraLogcatArgs Extra logcat arguments such as "-b crash".
+     * @param timeoutMillis The deadline for the whole extraction, or 0 for none. Past it, or if the calling thread is
+     *        interrupted, the extraction gives up and removes the partial file.
+     */
+    File streamLogcatToFile(String targetDevice, String outputDirectory, String outputFileName, List<String> extraLogcatArgs,
+            ExtractionMetrics metrics, long timeoutMillis) {
+        LogFilter filter = logFilter;
         List<String> logcatArgs = new ArrayList<>();
         logcatArgs.add("logcat");
         logcatArgs.add("-d"); // Dump the log and exit
+        logcatArgs.addAll(extraLogcatArgs);
+        addFilterArgs(logcatArgs, filter);
+
+        File dir = ensureDirectory(outputDirectory);
+        if (dir == null) {
+            metrics.finish(null, false, "Cannot create output directory " + outputDirectory);
+            stats.record(metrics);
+            return null;
+        }
 
+        File outputFile = new File(dir, outputFileName);
+        long startNanos = System.nanoTime();
+        long bytes;
+        OutputFormat format = outputFormat;
+        TransferMode transfer = transferMode;
+        FilteringOutputStream filtering = null;
         try {
-            List<String> logLines = executeAdbCommand(targetDevice, logcatArgs);
-            System.out.println("INFO: Logcat data retrieved, " + logLines.size() + " lines.");
-
-            File dir = new File(outputDirectory);
-            if (!dir.exists()) {
-                System.out.println("INFO: Output directory does not exist, attempting to create: " + outputDirectory);
-                if (!dir.mkdirs()) {
-                    System.err.println("ERROR: Failed to create output directory: " + outputDirectory);
-                    return null;
-                }
-                System.out.println("INFO: Output directory created: " + outputDirectory);
+            OutputStream out = format.open(outputFile.toPath());
+            if (filter != null) {
+                filtering = new FilteringOutputStream(filter, out);
+                out = filtering;
+            }
+            try {
+                // Stream straight to disk; nothing is held in memory beyond the copy buffer
+                bytes = executeAdbCommandToStream(targetDevice, transfer.adbCommand(logcatArgs), transfer, out, metrics, timeoutMillis);
+            } finally {
+                out.close();
+                metrics.markClosed();
             }
-
-            File outputFile = new File(dir, outputFileName);
-            java.nio.file.Files.write(outputFile.toPath(), logLines);
-
-            System.out.println("INFO: Logs extracted successfully to: " + outputFile.getAbsolutePath());
-            return outputFile;
         } catch (IOException | InterruptedException e) {
             System.err.println("ERROR: Error during logcat extraction or file writing: " + e.getMessage());
             // e.printStackTrace(); // Keep this commented unless deeper debugging is needed by a developer
+            if (outputFile.exists() && !outputFile.delete()) {
+                System.err.println("ERROR: Failed to remove partial log file: " + outputFile.getAbsolutePath());
+            }
+            metrics.finish(outputFile, false, e.getMessage());
+            publishMetrics(metrics, outputFile);
+            return null;
+        }
+        System.out.println("INFO: Logcat data retrieved, " + bytes + " bytes " + formatThroughput(bytes, System.nanoTime() - startNanos) + ".");
+        printTransferRatio(transfer, bytes, metrics);
+        if (filtering != null) {
+            System.out.println("INFO: Filter kept " + filtering.getLinesKept() + " line(s), dropped " + filtering.getLinesDropped() + " on the host.");
+        }
+        if (format == OutputFormat.GZIP || format == OutputFormat.FRAMED) {
+            long compressedBytes = outputFile.length();
+            System.out.println("INFO: Compressed (" + format.getOptionName() + ") to " + compressedBytes + " bytes"
+                    + (compressedBytes > 0 ? String.format(Locale.ROOT, ", ratio %.1f:1.", (double) bytes / compressedBytes) : "."));
+        }
+        System.out.println("INFO: Logs extracted successfully to: " + outputFile.getAbsolutePath());
+        metrics.finish(outputFile, true, null);
+        publishMetrics(metrics, outputFile);
+        return outputFile;
+    }
+
+    /**
+     * Reports how much a compact transfer mode saved on the link.
+     */
+    private static void printTransferRatio(TransferMode transfer, long bytes, ExtractionMetrics metrics) {
+        long wireBytes = metrics.getWireBytes();
+        if (transfer != TransferMode.TEXT && wireBytes > 0) {
+            System.out.println("INFO: Transferred " + wireBytes + " bytes (" + transfer.getOptionName() + ")"
+                    + String.format(Locale.ROOT, ", ratio %.1f:1.", (double) bytes / wireBytes));
+        }
+    }
+
+    /**
+     * Prints the phase timings, writes them as JSON next to the log file and adds them to the totals.
+     * Written for failed extractions too, so slow or failing devices show up in the summaries.
+     */
+    private void publishMetrics(ExtractionMetrics metrics, File logFile) {
+        System.out.println("INFO: Timing: " + metrics.describePhases() + ".");
+        File metricsFile = ExtractionMetrics.metricsFileFor(logFile);
+        try {
+            metrics.writeJson(metricsFile);
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to write metrics file " + metricsFile.getAbsolutePath() + ": " + e.getMessage());
+        }
+        stats.record(metrics);
+    }
+
+    /**
+     * Extracts only the log lines newer than the previous incremental run and appends them to a file.
+     * The timestamp of the last captured line is kept in a per-device checkpoint file in the output
+     * directory and passed to "logcat -T" on the next run, so each run transfers only the new log volume.
+     *
+     * @param targetDevice The specific device ID to target (can be null).
+     * @param outputDirectory The directory holding the log file and the checkpoint.
+     * @param outputFileName The name of the log file to append to.
+     * @return The File object representing the log file, or null if an error occurred.
+     */
+    public File extractLogcatIncremental(String targetDevice, String outputDirectory, String outputFileName) {
+        System.out.println("INFO: Attempting incremental logcat extraction for device: " + (targetDevice != null ? targetDevice : "default"));
+        ExtractionMetrics metrics = new ExtractionMetrics(targetDevice);
+        long checkStartNanos = System.nanoTime();
+        boolean connected = isDeviceConnected(targetDevice);
+        metrics.setDeviceCheckNanos(System.nanoTime() - checkStartNanos);
+        if (!connected) {
+            System.err.println("ERROR: Cannot extract logcat, device not connected or not in operational state.");
+            metrics.finish(null, false, "Device not connected or not in operational state");
+            stats.record(metrics);
+            return null;
+        }
+        File dir = ensureDirectory(outputDirectory);
+        if (dir == null) {
+            metrics.finish(null, false, "Cannot create output directory " + outputDirectory);
+            stats.record(metrics);
             return null;
         }
+
+        LogcatCheckpoint checkpoint = LogcatCheckpoint.forDevice(dir, targetDevice);
+        LogcatPosition position = new LogcatPosition();
+        File outputFile = new File(dir, outputFileName);
+        List<String> logcatArgs = new ArrayList<>();
+        logcatArgs.add("logcat");
+        logcatArgs.add("-d"); // Dump the log and exit
+        logcatArgs.add("-v");
+        logcatArgs.add("threadtime"); // Timestamps are needed to track the position
+        try {
+            if (checkpoint.loadInto(position)) {
+                System.out.println("INFO: Resuming after last captured line at " + position.getSinceTime() + " (checkpoint: " + checkpoint.getFile().getName() + ")");
+                logcatArgs.add("-T");
+                logcatArgs.add(position.getSinceTimeArgument());
+                position.beginResume();
+            } else {
+                System.out.println("INFO: No checkpoint found, extracting the full log buffer.");
+            }
+            // A run killed before its checkpoint was saved leaves lines the checkpoint does not cover, possibly ending in a torn line
+            long discarded = DurableLogWriter.recover(outputFile,
+                    outputFileName.equals(checkpoint.getLogFileName()) ? checkpoint.getCommittedLength() : -1);
+            if (discarded > 0) {
+                System.out.println("INFO: Discarded " + discarded + " byte(s) left by an interrupted run; they will be extracted again.");
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to read checkpoint: " + e.getMessage());
+            metrics.finish(null, false, "Failed to read checkpoint: " + e.getMessage());
+            stats.record(metrics);
+            return null;
+        }
+
+        LogFilter filter = logFilter;
+        addFilterArgs(logcatArgs, filter);
+        TransferMode transfer = transferMode;
+
+        long originalLength = outputFile.length();
+        long startNanos = System.nanoTime();
+        long received;
+        long appended;
+        try {
+            // Forced to disk on close, before the checkpoint that covers it is saved
+            DurableLogWriter file = new DurableLogWriter(outputFile, true, 0, null);
+            // The position sees every line, so lines the filter drops are not fetched again next time
+            PositionTrackingOutputStream out = new PositionTrackingOutputStream(position,
+                    filter != null ? new FilteringOutputStream(filter, file) : file);
+            try {
+                received = executeAdbCommandToStream(targetDevice, transfer.adbCommand(logcatArgs), transfer, out, metrics, dumpTimeoutMillis);
+            } finally {
+                out.close();
+                metrics.markClosed();
+            }
+            appended = out.getBytesWritten();
+            checkpoint.save(position, outputFileName, file.getCommittedLength());
+        } catch (IOException | InterruptedException e) {
+            System.err.println("ERROR: Error during incremental logcat extraction or file writing: " + e.getMessage());
+            // Roll the file back so the next run does not append the same lines twice
+            try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(originalLength);
+            } catch (IOException truncateError) {
+                System.err.println("ERROR: Failed to roll back partial append to: " + outputFile.getAbsolutePath());
+            }
+            metrics.finish(outputFile, false, e.getMessage());
+            publishMetrics(metrics, outputFile);
+            return null;
+        }
+        System.out.println("INFO: Logcat data retrieved, " + received + " bytes " + formatThroughput(received, System.nanoTime() - startNanos)
+                + ", " + appended + " bytes of new lines" + (filter != null ? " passed to the filter." : " appended."));
+        printTransferRatio(transfer, received, metrics);
+        System.out.println("INFO: Logs extracted successfully to: " + outputFile.getAbsolutePath());
+        metrics.finish(outputFile, true, null);
+        publishMetrics(metrics, outputFile);
+        return outputFile;
+    }
+
+    /**
+     * Adds the logcat arguments a filter needs: threadtime output for host-side parsing, and the
+     * tag:level filterspecs that logcat can apply on the device. Filterspecs must come last.
+     */
+    static void addFilterArgs(List<String> logcatArgs, LogFilter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (!logcatArgs.contains("threadtime")) {
+            logcatArgs.add("-v");
+            logcatArgs.add("threadtime");
+        }
+        logcatArgs.addAll(filter.deviceArgs());
+    }
+
+    /**
+     * Creates the output directory if needed.
+     *
+     * @return The directory, or null if it could not be created.
+     */
+    private File ensureDirectory(String outputDirectory) {
+        File dir = new File(outputDirectory);
+        if (!dir.exists()) {
+            System.out.println("INFO: Output directory does not exist, attempting to create: " + outputDirectory);
+            if (!dir.mkdirs()) {
+                System.err.println("ERROR: Failed to create output directory: " + outputDirectory);
+                return null;
+            }
+            System.out.println("INFO: Output directory created: " + outputDirectory);
+        }
+        return dir;
+    }
+
+    /**
+     * Builds the standard log file name, e.g. "ivi_logcat_emulator-5554_20240101_120000.txt".
+     *
+     * @param targetDevice The device serial (can be null, in which case "default" is used).
+     * @param timestamp The capture timestamp, formatted as "yyyyMMdd_HHmmss".
+     */
+    public static String buildLogFileName(String targetDevice, String timestamp) {
+        return buildLogFileName(targetDevice, timestamp, OutputFormat.TEXT);
+    }
+
+    /**
+     * Builds the standard log file name with the extension of the given format, e.g. "ivi_logcat_emulator-5554_20240101_120000.txt.gz".
+     */
+    public static String buildLogFileName(String targetDevice, String timestamp, OutputFormat format) {
+        return "ivi_logcat_" + safeDeviceName(targetDevice) + "_" + timestamp + format.getExtension();
+    }
+
+    /**
+     * Turns a device serial into a string usable in file names (e.g. "192.168.1.20:5555" -> "192.168.1.20_5555").
+     */
+    static String safeDeviceName(String targetDevice) {
+        return targetDevice != null ? targetDevice.replaceAll("[^a-zA-Z0-9_-]", "_") : "default";
+    }
+
+    /**
+     * Formats a transfer rate for log output, e.g. "in 1.25 s (42.10 MB/s)".
+     */
+    static String formatThroughput(long bytes, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1L) / 1_000_000_000.0;
+        double megabytesPerSecond = bytes / (1024.0 * 1024.0) / seconds;
+        return String.format(Locale.ROOT, "in %.2f s (%.2f MB/s)", seconds, megabytesPerSecond);
     }
 
     public static void main(String[] args) {
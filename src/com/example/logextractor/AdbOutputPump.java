@@ -0,0 +1,157 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves command output to its destination for the asynchronous commands of {@link AdbHelper}, without a
+ * thread per command where Java allows it: adb server connections are read by one selector thread, however
+ * many are open. The pipes of adb processes cannot be selected, so those (the fallback when no server is
+ * running) are drained on a shared pool of daemon threads instead, which also runs the blocking steps of
+ * starting a command.
+ *
+ * Output is written to its destination on the selector thread, so destinations must be quick (memory, or a
+ * buffered file); a slow one holds up the other transfers. A destination that throws fails only its own
+ * transfer; the selector thread carries on with the others.
+ */
+final class AdbOutputPump {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_READS_PER_WAKEUP = 16; // So one busy connection cannot starve the others
+
+    private static AdbOutputPump shared; // Guarded by AdbOutputPump.class
+
+    private final Selector selector;
+    private final Queue<Transfer> pending = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ExecutorService drainPool = Executors.newCachedThreadPool(new MultiDeviceExtractor.WorkerThreadFactory("adb-drain-"));
+
+    private AdbOutputPump() throws IOException {
+        selector = Selector.open();
+        Thread thread = new Thread(this::run, "adb-output-pump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The pump shared by all AdbHelper instances, started on first use.
+     * @throws IOException If no selector can be opened.
+     */
+    static synchronized AdbOutputPump shared() throws IOException {
+        if (shared == null) {
+            shared = new AdbOutputPump();
+        }
+        return shared;
+    }
+
+    /**
+     * @return The pool for blocking work: starting commands and draining adb process pipes.
+     */
+    ExecutorService getDrainPool() {
+        return drainPool;
+    }
+
+    /**
+     * Copies everything from the connection into the stream until the server closes it, then completes the
+     * result with the number of bytes copied and closes the connection. Closing the connection early (e.g. when
+     * the result is cancelled) ends the transfer.
+     */
+    void transfer(SocketChannel channel, OutputStream out, CompletableFuture<Long> result) {
+        pending.add(new Transfer(channel, out, result));
+        selector.wakeup();
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.err.println("ERROR: ADB output selector failed: " + e.getMessage());
+                continue;
+            }
+            Transfer transfer;
+            while ((transfer = pending.poll()) != null) {
+                transfer.register();
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid()) {
+                    ((Transfer) key.attachment()).readAvailable(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * One connection being drained. Only touched by the selector thread once registered.
+     */
+    private final class Transfer {
+        private final SocketChannel channel;
+        private final OutputStream out;
+        private final CompletableFuture<Long> result;
+        private long total;
+
+        Transfer(SocketChannel channel, OutputStream out, CompletableFuture<Long> result) {
+            this.channel = channel;
+            this.out = out;
+            this.result = result;
+        }
+
+        void register() {
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                // Includes a connection closed by a deadline before it got here
+                fail(null, e);
+            }
+        }
+
+        void readAvailable(SelectionKey key) {
+            try {
+                for (int i = 0; i < MAX_READS_PER_WAKEUP; i++) {
+                    buffer.clear();
+                    int read = channel.read(buffer);
+                    if (read == -1) {
+                        key.cancel();
+                        channel.close();
+                        result.complete(total);
+                        return;
+                    }
+                    if (read == 0) {
+                        return;
+                    }
+                    out.write(buffer.array(), 0, read);
+                    total += read;
+                }
+            } catch (IOException | RuntimeException e) {
+                // A RuntimeException comes from the caller's stream; it must not end the thread serving every transfer
+                fail(key, e);
+            }
+        }
+
+        private void fail(SelectionKey key, Exception e) {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException closeError) {
+                // Already failing
+            }
+            result.completeExceptionally(e); // No effect if a deadline or cancellation got there first
+        }
+    }
+}
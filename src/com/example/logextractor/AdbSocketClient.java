@@ -0,0 +1,320 @@
+package com.example.logextractor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Talks the ADB host protocol directly to the local adb server (port 5037), instead of starting an
+ * "adb" process for every command. Requests are a 4-digit hex length followed by the service name;
+ * the server answers "OKAY", or "FAIL" followed by a hex-length message.
+ *
+ * The server closes a connection once a host service has answered, and a device service takes over
+ * its connection for good, so connections cannot be pooled. What is reused instead is the device
+ * list: back-to-back device checks within {@link #DEVICE_LIST_TTL_MILLIS} share one server round trip.
+ *
+ * The legacy "shell:" service does not say how a command exited, so a failing command (e.g. logcat with a bad
+ * filterspec) would look like one that printed its error message as output. Devices that support it are
+ * therefore asked for "shell,v2,raw:" instead, which reports the exit code (see {@link ShellProtocolOutputStream}).
+ */
+public class AdbSocketClient {
+
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 5037;
+    public static final long DEVICE_LIST_TTL_MILLIS = 1000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SAFE_SHELL_WORD = Pattern.compile("[A-Za-z0-9_@%+=:,./-]+");
+    private static final String SHELL_SERVICE = "shell:";
+    private static final String SHELL_V2_SERVICE = "shell,v2,raw:"; // raw: no pty, so output bytes arrive unchanged
+    private static final String SHELL_V2_FEATURE = "shell_v2";
+    private static final String ANY_DEVICE = "";
+
+    private final String host;
+    private final int port;
+    private Map<String, String> cachedDevices; // Guarded by this
+    private long cachedDevicesAtNanos;
+    private final Map<String, Boolean> shellV2Support = new ConcurrentHashMap<>(); // By serial, ANY_DEVICE for transport-any
+
+    /**
+     * Thrown when no adb server accepts connections, so the caller can fall back to the adb executable.
+     */
+    public static class ServerUnavailableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ServerUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public AdbSocketClient() {
+        this(DEFAULT_HOST, DEFAULT_PORT);
+    }
+
+    public AdbSocketClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Lists all devices known to the adb server ("host:devices").
+     *
+     * @return A map of device serial to state, in the order reported by the server.
+     * @throws ServerUnavailableException If the adb server is not running.
+     * @throws IOException If the request fails.
+     */
+    public Map<String, String> listDevices() throws IOException {
+        synchronized (this) {
+            if (cachedDevices != null && System.nanoTime() - cachedDevicesAtNanos < DEVICE_LIST_TTL_MILLIS * 1000000L) {
+                return cachedDevices;
+            }
+        }
+        Map<String, String> devices;
+        try (SocketChannel channel = connect()) {
+            request(channel, "host:devices");
+            devices = Collections.unmodifiableMap(AdbHelper.parseDeviceList(Arrays.asList(readHexString(channel).split("\n"))));
+        }
+        synchronized (this) {
+            cachedDevices = devices;
+            cachedDevicesAtNanos = System.nanoTime();
+        }
+        shellV2Support.keySet().retainAll(devices.keySet()); // A serial that comes back may be a different device
+        return devices;
+    }
+
+    /**
+     * Opens a "host:track-devices" connection. The server immediately sends the current device list and then
+     * a new one on every change, each as a hex length followed by the list in "adb devices" line format.
+     *
+     * @return The connection, positioned at the first list. The caller must close it.
+     * @throws ServerUnavailableException If the adb server is not running.
+     * @throws IOException If the request fails.
+     */
+    public SocketChannel openTrackDevices() throws IOException {
+        SocketChannel channel = connect();
+        try {
+            request(channel, "host:track-devices");
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a shell command on a device and copies its output into the given stream until the command exits.
+     *
+     * @param targetDevice The device serial, or null for the only connected device.
+     * @param command The shell command line, e.g. from {@link #shellCommand(List)}.
+     * @param out The stream receiving the output. It is not closed by this method.
+     * @return The number of bytes copied.
+     * @throws ServerUnavailableException If the adb server is not running.
+     * @throws IOException If the server rejects the request (e.g. unknown device), the transfer fails, or the
+     *         device reports that the command failed.
+     */
+    public long shell(String targetDevice, String command, OutputStream out) throws IOException {
+        String service = SHELL_SERVICE + command;
+        if (!supportsShellV2(targetDevice)) {
+            try (SocketChannel channel = openService(targetDevice, service)) {
+                return copy(channel, out);
+            }
+        }
+        ShellProtocolOutputStream shell = new ShellProtocolOutputStream(out);
+        try (SocketChannel channel = openService(targetDevice, shellV2Service(service))) {
+            copy(channel, shell);
+        }
+        if (shell.getExitCode() != 0) {
+            throw new IOException(shell.getExitCode() == -1 ? "Connection closed before '" + command + "' exited"
+                    : "'" + command + "' failed with exit code " + shell.getExitCode() + ": " + shell.getErrorOutput());
+        }
+        return shell.getBytesWritten();
+    }
+
+    /**
+     * Starts a shell command on a device and returns the connection carrying its output.
+     *
+     * @return The connection, positioned at the first output byte. The caller must close it.
+     * @throws ServerUnavailableException If the adb server is not running.
+     * @throws IOException If the server rejects the request (e.g. unknown device).
+     */
+    public SocketChannel openShell(String targetDevice, String command) throws IOException {
+        return openService(targetDevice, SHELL_SERVICE + command);
+    }
+
+    /**
+     * Asks the server whether the device speaks the shell protocol ("host-serial:SERIAL:features"). The answer is
+     * kept until the device is missing from a device list.
+     *
+     * @param targetDevice The device serial, or null for the only connected device.
+     * @return False if it does not, or the server cannot tell (e.g. unknown device).
+     * @throws ServerUnavailableException If the adb server is not running.
+     */
+    public boolean supportsShellV2(String targetDevice) throws IOException {
+        String key = targetDevice != null ? targetDevice : ANY_DEVICE;
+        Boolean cached = shellV2Support.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String features;
+        try (SocketChannel channel = connect()) {
+            request(channel, key.isEmpty() ? "host:features" : "host-serial:" + key + ":features");
+            features = readHexString(channel);
+        } catch (ServerUnavailableException e) {
+            throw e;
+        } catch (IOException e) {
+            return false; // Not cached: the device may just not be attached yet
+        }
+        boolean supported = Arrays.asList(features.trim().split(",")).contains(SHELL_V2_FEATURE);
+        shellV2Support.put(key, supported);
+        return supported;
+    }
+
+    /**
+     * @param shellService A "shell:" service, e.g. from {@link #deviceService(List)}.
+     * @return The same command as a shell protocol service, whose output is unpacked by {@link ShellProtocolOutputStream}.
+     */
+    public static String shellV2Service(String shellService) {
+        return SHELL_V2_SERVICE + shellService.substring(SHELL_SERVICE.length());
+    }
+
+    /**
+     * @return True for a "shell:" service, which can run as a shell protocol service on devices that support it.
+     */
+    public static boolean isShellService(String service) {
+        return service.startsWith(SHELL_SERVICE);
+    }
+
+    /**
+     * Starts a device service, e.g. "shell:logcat -d" or "exec:logcat -B", and returns the connection carrying its output.
+     * "exec:" passes the output through unchanged, like "adb exec-out".
+     *
+     * @param service The service, e.g. from {@link #deviceService(List)}.
+     * @return The connection, positioned at the first output byte. The caller must close it.
+     * @throws ServerUnavailableException If the adb server is not running.
+     * @throws IOException If the server rejects the request (e.g. unknown device).
+     */
+    public SocketChannel openService(String targetDevice, String service) throws IOException {
+        SocketChannel channel = connect();
+        try {
+            request(channel, targetDevice != null && !targetDevice.isEmpty() ? "host:transport:" + targetDevice : "host:transport-any");
+            request(channel, service);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies everything from the connection into the stream until the server closes it.
+     *
+     * @return The number of bytes copied.
+     */
+    public static long copy(SocketChannel channel, OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long total = 0;
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            out.write(buffer.array(), 0, read);
+            total += read;
+            buffer.clear();
+        }
+        return total;
+    }
+
+    /**
+     * Turns adb command arguments into a device shell command line, quoting words the shell would interpret
+     * (e.g. the "*" in "*:E").
+     *
+     * @param commandArgs Arguments as passed to the adb executable, e.g. "logcat", "-d".
+     * @return The shell command line, or null if the command is not a device command ("logcat" or "shell").
+     */
+    public static String shellCommand(List<String> commandArgs) {
+        if (commandArgs.isEmpty() || !("logcat".equals(commandArgs.get(0)) || "shell".equals(commandArgs.get(0)))) {
+            return null;
+        }
+        List<String> words = "shell".equals(commandArgs.get(0)) ? commandArgs.subList(1, commandArgs.size()) : commandArgs;
+        StringBuilder command = new StringBuilder();
+        for (String word : words) {
+            if (command.length() > 0) {
+                command.append(' ');
+            }
+            command.append(SAFE_SHELL_WORD.matcher(word).matches() ? word : "'" + word.replace("'", "'\\''") + "'");
+        }
+        return command.toString();
+    }
+
+    /**
+     * Turns adb command arguments into the device service that runs them: "shell:" for "logcat" and "shell",
+     * "exec:" for "exec-out" (whose arguments already form a command line, as for the adb executable).
+     *
+     * @return The service, or null if the command is not a device command.
+     */
+    public static String deviceService(List<String> commandArgs) {
+        if (!commandArgs.isEmpty() && "exec-out".equals(commandArgs.get(0))) {
+            return commandArgs.size() > 1 ? "exec:" + String.join(" ", commandArgs.subList(1, commandArgs.size())) : null;
+        }
+        String command = shellCommand(commandArgs);
+        return command != null ? SHELL_SERVICE + command : null;
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw new ServerUnavailableException("No adb server on " + host + ":" + port + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void request(SocketChannel channel, String service) throws IOException {
+        byte[] payload = service.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer message = ByteBuffer.allocate(4 + payload.length);
+        message.put(String.format("%04x", payload.length).getBytes(StandardCharsets.US_ASCII)).put(payload).flip();
+        while (message.hasRemaining()) {
+            channel.write(message);
+        }
+
+        String status = new String(readFully(channel, 4), StandardCharsets.US_ASCII);
+        if ("FAIL".equals(status)) {
+            throw new IOException("ADB server rejected '" + service + "': " + readHexString(channel));
+        }
+        if (!"OKAY".equals(status)) {
+            throw new IOException("Unexpected ADB server reply '" + status + "' to '" + service + "'");
+        }
+    }
+
+    private static String readHexString(SocketChannel channel) throws IOException {
+        String lengthText = new String(readFully(channel, 4), StandardCharsets.US_ASCII);
+        int length;
+        try {
+            length = Integer.parseInt(lengthText, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed length '" + lengthText + "' from ADB server");
+        }
+        return new String(readFully(channel, length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readFully(SocketChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException("ADB server closed the connection");
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands written bytes to a dedicated thread that feeds them into a (typically compressing) sink,
+ * so compression runs alongside the ADB read instead of inside it. Chunks travel through a bounded
+ * queue and are recycled, so memory stays fixed; if the compressor falls behind by more than the
+ * queue capacity, writers wait rather than buffering without limit.
+ */
+public class AsyncCompressingOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int QUEUE_CAPACITY = 32; // Chunks in flight, i.e. at most 2 MiB queued
+
+    private static final Chunk END_OF_STREAM = new Chunk(0);
+
+    private final OutputStream sink;
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 1);
+    private final Thread worker;
+
+    private Chunk current;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * @param sink The stream the worker thread writes to. It is closed when this stream is closed.
+     * @param name A name for the worker thread, used in diagnostics.
+     */
+    public AsyncCompressingOutputStream(OutputStream sink, String name) {
+        this.sink = sink;
+        for (int i = 0; i < QUEUE_CAPACITY + 1; i++) {
+            free.add(new Chunk(CHUNK_SIZE));
+        }
+        worker = new Thread(this::drain, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkOpen();
+        while (length > 0) {
+            if (current == null) {
+                current = take(free);
+            }
+            int n = Math.min(length, current.data.length - current.length);
+            System.arraycopy(bytes, offset, current.data, current.length, n);
+            current.length += n;
+            offset += n;
+            length -= n;
+            if (current.length == current.data.length) {
+                handOff();
+            }
+        }
+    }
+
+    /**
+     * Queues any partially filled chunk. The bytes reach the sink asynchronously.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        if (current != null && current.length > 0) {
+            handOff();
+        }
+    }
+
+    /**
+     * Waits for the worker to compress everything written so far, then closes the sink. If the wait is
+     * interrupted (e.g. a cancelled job), the queued chunks are dropped instead and the worker is stopped
+     * before the sink is closed, so no thread is left writing to it or blocked on the queue.
+     *
+     * @throws IOException If the worker failed to write to the sink, or the wait was interrupted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean drained = false;
+        try {
+            if (current != null && current.length > 0) {
+                handOff();
+            }
+            put(END_OF_STREAM);
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for compression to finish");
+            }
+            drained = true;
+        } finally {
+            try {
+                if (!drained) {
+                    abort();
+                }
+            } finally {
+                sink.close();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Discards what is queued, stops the worker and waits until it has exited. Does not depend on the
+     * caller's interrupt status, which is restored afterwards.
+     */
+    private void abort() {
+        filled.clear();
+        filled.offer(END_OF_STREAM); // Room is guaranteed after the clear; this thread is the only producer
+        worker.interrupt();
+        boolean interrupted = Thread.interrupted();
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Chunk chunk = filled.take();
+                if (chunk == END_OF_STREAM) {
+                    break;
+                }
+                if (failure == null) {
+                    try {
+                        sink.write(chunk.data, 0, chunk.length);
+                    } catch (IOException e) {
+                        failure = e; // Keep draining so the writer never blocks on a dead worker
+                    }
+                }
+                chunk.length = 0;
+                free.put(chunk);
+            }
+            if (failure == null) {
+                sink.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOff() throws IOException {
+        put(current);
+        current = null;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void put(Chunk chunk) throws IOException {
+        try {
+            filled.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing data for compression");
+        }
+    }
+
+    private static Chunk take(BlockingQueue<Chunk> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+    }
+
+    private static class Chunk {
+        final byte[] data;
+        int length;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
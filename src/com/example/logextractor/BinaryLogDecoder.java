@@ -0,0 +1,325 @@
+package com.example.logextractor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.TimeZone;
+
+/**
+ * Turns binary logcat output ("logcat -B") into threadtime text, as "logcat -v threadtime" would print it.
+ * Each entry is a little-endian logger_entry header (v1 to v4: payload length, header size, pid, tid,
+ * seconds, nanoseconds, and from v3 on the log id) followed by the payload: a priority byte, the tag and
+ * the message, each NUL-terminated. Messages spanning several lines get the header on every line.
+ *
+ * Entries from the binary buffers (events, stats, security) carry an event tag number and typed values instead
+ * of text; they are printed with the number as tag and the values in hex.
+ *
+ * Timestamps are converted in the device's time zone, as logcat on the device would print them. The zone is
+ * not part of the entries, so the transfer sends it first (see {@link #readTimeZoneLine(InputStream)}).
+ */
+public class BinaryLogDecoder extends InputStream {
+
+    private static final int V1_HEADER_SIZE = 20; // v1 has no header size field (the slot is padding, always 0)
+    private static final int MAX_HEADER_SIZE = 64;
+    private static final int MAX_TIME_ZONE_LINE = 128;
+    private static final int LOG_ID_EVENTS = 2;
+    private static final int LOG_ID_STATS = 5;
+    private static final int LOG_ID_SECURITY = 6;
+    private static final char[] PRIORITIES = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'F', 'S'};
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final InputStream in;
+    private final TimeZone timeZone;
+    private final byte[] header = new byte[MAX_HEADER_SIZE];
+    private final byte[] payload = new byte[0xFFFF];
+    private byte[] text = new byte[8 * 1024];
+    private int textPosition;
+    private int textLength;
+    private long entries;
+
+    /**
+     * @param in The binary logcat stream. Closed when this stream is closed.
+     * @param timeZone The device's time zone.
+     */
+    public BinaryLogDecoder(InputStream in, TimeZone timeZone) {
+        this.in = in;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Reads the line "getprop persist.sys.timezone" printed ahead of the binary entries. An empty line means the
+     * property is unset, in which case Android runs on UTC.
+     *
+     * @throws IOException If the stream does not start with such a line.
+     */
+    static TimeZone readTimeZoneLine(InputStream in) throws IOException {
+        StringBuilder id = new StringBuilder();
+        while (true) {
+            int b = in.read();
+            if (b == '\n') {
+                break;
+            }
+            if (b == -1 || b == 0 || id.length() == MAX_TIME_ZONE_LINE) {
+                throw new IOException("Not binary logcat output: no time zone line before the entries");
+            }
+            id.append((char) b);
+        }
+        String zone = id.toString().trim();
+        return TimeZone.getTimeZone(zone.isEmpty() ? "UTC" : zone);
+    }
+
+    /**
+     * @return The number of entries decoded so far.
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (textPosition == textLength && !decodeNext()) {
+            return -1;
+        }
+        return text[textPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (textPosition == textLength && !decodeNext()) {
+            return -1;
+        }
+        int n = Math.min(len, textLength - textPosition);
+        System.arraycopy(text, textPosition, b, off, n);
+        textPosition += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return textLength - textPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the next entry and formats it into the text buffer.
+     *
+     * @return False at the end of the stream.
+     * @throws EOFException If the stream ends inside an entry.
+     * @throws IOException If the header is not a logger_entry.
+     */
+    private boolean decodeNext() throws IOException {
+        int first = readFully(header, 0, 4, true);
+        if (first == 0) {
+            return false;
+        }
+        int payloadLength = uint16(header, 0);
+        int headerSize = uint16(header, 2);
+        if (headerSize == 0) {
+            headerSize = V1_HEADER_SIZE;
+        }
+        if (headerSize < V1_HEADER_SIZE || headerSize > MAX_HEADER_SIZE) {
+            throw new IOException("Not binary logcat output: entry " + (entries + 1) + " has a header size of " + headerSize);
+        }
+        readFully(header, 4, headerSize - 4, false);
+        readFully(payload, 0, payloadLength, false);
+
+        int pid = int32(header, 4);
+        int tid = int32(header, 8);
+        long seconds = int32(header, 12) & 0xFFFFFFFFL;
+        int nanos = int32(header, 16);
+        int logId = headerSize >= 24 ? int32(header, 20) : 0;
+
+        textPosition = 0;
+        textLength = 0;
+        if (logId == LOG_ID_EVENTS || logId == LOG_ID_STATS || logId == LOG_ID_SECURITY) {
+            formatEvent(seconds, nanos, pid, tid, payloadLength);
+        } else {
+            formatText(seconds, nanos, pid, tid, payloadLength);
+        }
+        entries++;
+        return true;
+    }
+
+    private void formatText(long seconds, int nanos, int pid, int tid, int payloadLength) {
+        char priority = payloadLength > 0 && payload[0] >= 0 && payload[0] < PRIORITIES.length ? PRIORITIES[payload[0]] : '?';
+        int tagStart = Math.min(1, payloadLength);
+        int tagEnd = indexOf((byte) 0, tagStart, payloadLength);
+        int messageStart = Math.min(tagEnd + 1, payloadLength);
+        int messageEnd = indexOf((byte) 0, messageStart, payloadLength);
+        while (messageEnd > messageStart && payload[messageEnd - 1] == '\n') {
+            messageEnd--; // logcat does not print an empty line for a trailing newline
+        }
+
+        int lineStart = messageStart;
+        do {
+            int lineEnd = indexOf((byte) '\n', lineStart, messageEnd);
+            appendPrefix(seconds, nanos, pid, tid, priority, tagStart, tagEnd);
+            appendBytes(payload, lineStart, lineEnd - lineStart);
+            appendByte('\n');
+            lineStart = lineEnd + 1;
+        } while (lineStart <= messageEnd);
+    }
+
+    private void formatEvent(long seconds, int nanos, int pid, int tid, int payloadLength) {
+        int tag = payloadLength >= 4 ? int32(payload, 0) : -1;
+        appendTimestamp(seconds, nanos);
+        appendHeaderFields(pid, tid, 'I');
+        int tagStart = textLength;
+        appendNumber(tag & 0xFFFFFFFFL, 0);
+        padTag(textLength - tagStart);
+        for (int i = Math.min(4, payloadLength); i < payloadLength; i++) {
+            appendByte(HEX[(payload[i] >> 4) & 0xF]);
+            appendByte(HEX[payload[i] & 0xF]);
+        }
+        appendByte('\n');
+    }
+
+    /**
+     * Appends "MM-DD HH:MM:SS.mmm  PID  TID P Tag     : ".
+     */
+    private void appendPrefix(long seconds, int nanos, int pid, int tid, char priority, int tagStart, int tagEnd) {
+        appendTimestamp(seconds, nanos);
+        appendHeaderFields(pid, tid, priority);
+        appendBytes(payload, tagStart, tagEnd - tagStart);
+        padTag(tagEnd - tagStart);
+    }
+
+    private void appendTimestamp(long seconds, int nanos) {
+        long millis = seconds * 1000 + nanos / 1_000_000;
+        long local = millis + timeZone.getOffset(millis);
+        long days = Math.floorDiv(local, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(local, 86_400_000L);
+        // Civil date from days since 1970-01-01 (proleptic Gregorian), without allocating a calendar per entry
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+
+        appendNumber(month, 2);
+        appendByte('-');
+        appendNumber(day, 2);
+        appendByte(' ');
+        appendNumber(millisOfDay / 3_600_000, 2);
+        appendByte(':');
+        appendNumber(millisOfDay / 60_000 % 60, 2);
+        appendByte(':');
+        appendNumber(millisOfDay / 1000 % 60, 2);
+        appendByte('.');
+        appendNumber(millisOfDay % 1000, 3);
+    }
+
+    private void appendHeaderFields(int pid, int tid, char priority) {
+        appendByte(' ');
+        appendRightAligned(pid, 5);
+        appendByte(' ');
+        appendRightAligned(tid, 5);
+        appendByte(' ');
+        appendByte(priority);
+        appendByte(' ');
+    }
+
+    private void padTag(int tagLength) {
+        for (int i = tagLength; i < 8; i++) {
+            appendByte(' ');
+        }
+        appendByte(':');
+        appendByte(' ');
+    }
+
+    private void appendRightAligned(int value, int width) {
+        int digits = value < 0 ? 2 : 1;
+        for (long v = Math.abs((long) value); v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < width; i++) {
+            appendByte(' ');
+        }
+        if (value < 0) {
+            appendByte('-');
+        }
+        appendNumber(Math.abs((long) value), 0);
+    }
+
+    /**
+     * Appends a non-negative number, zero-padded to the given width.
+     */
+    private void appendNumber(long value, int width) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int length = Math.max(digits, width);
+        ensureCapacity(length);
+        for (int i = textLength + length - 1; i >= textLength; i--) {
+            text[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        textLength += length;
+    }
+
+    private void appendBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, text, textLength, length);
+        textLength += length;
+    }
+
+    private void appendByte(int b) {
+        ensureCapacity(1);
+        text[textLength++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (textLength + extra > text.length) {
+            byte[] larger = new byte[Math.max(text.length * 2, textLength + extra)];
+            System.arraycopy(text, 0, larger, 0, textLength);
+            text = larger;
+        }
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (payload[i] == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @param allowEnd Whether the stream may end before the first byte.
+     * @return The number of bytes read: the requested length, or 0 at an allowed end of stream.
+     */
+    private int readFully(byte[] buffer, int offset, int length, boolean allowEnd) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, offset + total, length - total);
+            if (read == -1) {
+                if (total == 0 && allowEnd) {
+                    return 0;
+                }
+                throw new EOFException("Binary logcat output ended inside entry " + (entries + 1));
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int uint16(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int int32(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8 | (b[offset + 2] & 0xFF) << 16 | (b[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running collection: dumps logcat from every operational device on a schedule, inside one JVM that
+ * keeps its adb server connection and {@link DeviceRegistry} warm between runs.
+ *
+ * Devices are picked up and dropped as the registry reports them. Each device runs on its own interval
+ * (a default, or a per-device override), and every wait is jittered by up to {@link #JITTER_FRACTION} of
+ * the interval; the first run is spread over up to {@link #INITIAL_SPREAD_MILLIS}. That keeps a rack of
+ * units attached at the same moment from all being collected in the same second. Jobs run on a fixed
+ * number of workers, and a device never has more than one job queued or running: a run that comes due
+ * while the previous one is still pending is skipped, so the backlog cannot grow beyond one job per device.
+ *
+ * Jobs can also be triggered, listed and cancelled while running, e.g. through {@link DaemonControlServer}.
+ */
+public class CollectionDaemon implements DeviceRegistry.Listener {
+
+    public static final long DEFAULT_INTERVAL_SECONDS = 900;
+    public static final int DEFAULT_MAX_PARALLEL = 4;
+    static final double JITTER_FRACTION = 0.1;
+    static final long INITIAL_SPREAD_MILLIS = 30_000;
+    static final long JOB_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10); // A hung device must not hold a worker for good
+    static final int HISTORY_SIZE = 200; // Finished jobs kept for listing
+
+    /**
+     * Lifecycle of a collection job.
+     */
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    /**
+     * One logcat dump of one device, triggered by the schedule or on request.
+     */
+    public static final class Job {
+        private final long id;
+        private final String serial;
+        private final String trigger;
+        private final long queuedMillis = System.currentTimeMillis();
+        private volatile State state = State.QUEUED;
+        private volatile long startedMillis;
+        private volatile long finishedMillis;
+        private volatile File logFile;
+        private volatile long bytes;
+        private volatile boolean cancelRequested;
+        private Future<?> future; // Guarded by the daemon
+
+        Job(long id, String serial, String trigger) {
+            this.id = id;
+            this.serial = serial;
+            this.trigger = trigger;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getSerial() {
+            return serial;
+        }
+
+        /**
+         * @return "schedule" or "manual".
+         */
+        public String getTrigger() {
+            return trigger;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return The log file of a successful job, otherwise null.
+         */
+        public File getLogFile() {
+            return logFile;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The job as a JSON object; times are milliseconds since the epoch, or null if not reached.
+         */
+        public String toJson() {
+            return "{\"id\": " + id + ", \"device\": " + ExtractionMetrics.quote(serial) + ", \"trigger\": " + ExtractionMetrics.quote(trigger)
+                    + ", \"state\": " + ExtractionMetrics.quote(state.name()) + ", \"queued\": " + queuedMillis
+                    + ", \"started\": " + (startedMillis > 0 ? startedMillis : "null") + ", \"finished\": " + (finishedMillis > 0 ? finishedMillis : "null")
+                    + ", \"logFile\": " + ExtractionMetrics.quote(logFile != null ? logFile.getName() : null) + ", \"bytes\": " + bytes + "}";
+        }
+    }
+
+    /**
+     * When a device is next due, and the job it has pending, if any. Guarded by the daemon.
+     */
+    private static final class Schedule {
+        final String serial;
+        final long intervalMillis;
+        ScheduledFuture<?> next;
+        long nextRunMillis;
+        Job pending;
+
+        Schedule(String serial, long intervalMillis) {
+            this.serial = serial;
+            this.intervalMillis = intervalMillis;
+        }
+    }
+
+    private final AdbHelper adbHelper;
+    private final File outputDir;
+    private final long defaultIntervalMillis;
+    private final Map<String, Long> intervalOverrides;
+    private final int maxParallel;
+    private final AtomicLong jobIds = new AtomicLong();
+    private final Map<String, Schedule> schedules = new LinkedHashMap<>();
+    private final Map<Long, Job> activeJobs = new LinkedHashMap<>();
+    private final Deque<Job> history = new ArrayDeque<>();
+
+    private DeviceRegistry registry;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private long jobTimeoutMillis = JOB_TIMEOUT_MILLIS;
+    private long initialSpreadMillis = INITIAL_SPREAD_MILLIS;
+
+    /**
+     * @param outputDir Where the log files are written.
+     * @param defaultIntervalMillis How often each device is collected, unless overridden; 0 = only on request.
+     * @param intervalOverrides Per-device intervals in milliseconds (0 = only on request), by serial.
+     * @param maxParallel The maximum number of collections running at once.
+     */
+    public CollectionDaemon(AdbHelper adbHelper, File outputDir, long defaultIntervalMillis, Map<String, Long> intervalOverrides, int maxParallel) {
+        this.adbHelper = adbHelper;
+        this.outputDir = outputDir;
+        this.defaultIntervalMillis = defaultIntervalMillis;
+        this.intervalOverrides = new LinkedHashMap<>(intervalOverrides);
+        this.maxParallel = maxParallel;
+    }
+
+    /**
+     * Parses per-device intervals: "SERIAL:SECONDS" pairs separated by commas, e.g. "R58M726X7XN:300,emulator-5554:0".
+     *
+     * @return Milliseconds by serial, in the order given.
+     * @throws IllegalArgumentException If a pair is malformed or an interval is negative.
+     */
+    public static Map<String, Long> parseSchedule(String option) {
+        Map<String, Long> intervals = new LinkedHashMap<>();
+        if (option == null || option.trim().isEmpty()) {
+            return intervals;
+        }
+        for (String pair : option.split(",")) {
+            int colon = pair.lastIndexOf(':'); // Serials of network devices contain a colon themselves
+            long seconds = -1;
+            if (colon > 0) {
+                try {
+                    seconds = Long.parseLong(pair.substring(colon + 1).trim());
+                } catch (NumberFormatException e) {
+                    // Reported below
+                }
+            }
+            if (seconds < 0) {
+                throw new IllegalArgumentException("Expected SERIAL:SECONDS in --schedule, got: '" + pair.trim() + "'");
+            }
+            intervals.put(pair.substring(0, colon).trim(), TimeUnit.SECONDS.toMillis(seconds));
+        }
+        return intervals;
+    }
+
+    /**
+     * @return A wait of the interval plus or minus up to {@link #JITTER_FRACTION} of it.
+     */
+    static long jitteredDelay(long intervalMillis, Random random) {
+        long jitter = (long) (intervalMillis * JITTER_FRACTION);
+        return intervalMillis - jitter + (jitter > 0 ? (long) (random.nextDouble() * (2 * jitter + 1)) : 0);
+    }
+
+    /**
+     * Starts the workers and schedules every operational device the registry knows, then follows its changes.
+     */
+    public synchronized void start(DeviceRegistry deviceRegistry) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new MultiDeviceExtractor.WorkerThreadFactory("collection-scheduler-"));
+        workers = Executors.newFixedThreadPool(maxParallel, new MultiDeviceExtractor.WorkerThreadFactory("collection-"));
+        registry = deviceRegistry;
+        registry.addListener(this);
+        for (Map.Entry<String, String> device : registry.getDevices().entrySet()) {
+            deviceChanged(device.getKey(), null, device.getValue());
+        }
+        System.out.println("INFO: Collection daemon started: every " + TimeUnit.MILLISECONDS.toSeconds(defaultIntervalMillis) + " s per device"
+                + (intervalOverrides.isEmpty() ? "" : " (" + intervalOverrides.size() + " override(s))") + ", at most " + maxParallel + " at once.");
+    }
+
+    /**
+     * Stops scheduling and cancels queued and running jobs.
+     */
+    public synchronized void stop() {
+        if (registry != null) {
+            registry.removeListener(this);
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            for (Job job : new ArrayList<>(activeJobs.values())) {
+                cancel(job.getId());
+            }
+            workers.shutdownNow();
+        }
+    }
+
+    @Override
+    public synchronized void deviceChanged(String serial, String oldState, String newState) {
+        if (scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        boolean operational = "device".equalsIgnoreCase(newState);
+        Schedule schedule = schedules.get(serial);
+        if (operational && schedule == null) {
+            Long override = intervalOverrides.get(serial);
+            schedule = new Schedule(serial, override != null ? override : defaultIntervalMillis);
+            schedules.put(serial, schedule);
+            if (schedule.intervalMillis > 0) {
+                long spread = Math.min(schedule.intervalMillis, initialSpreadMillis);
+                scheduleNext(schedule, spread > 0 ? ThreadLocalRandom.current().nextLong(spread) : 0);
+            }
+            System.out.println("INFO: Device " + serial + " added to the collection schedule"
+                    + (schedule.intervalMillis > 0 ? ", every " + TimeUnit.MILLISECONDS.toSeconds(schedule.intervalMillis) + " s." : " (on request only)."));
+        } else if (!operational && schedule != null) {
+            schedules.remove(serial);
+            if (schedule.next != null) {
+                schedule.next.cancel(false);
+            }
+            if (schedule.pending != null && schedule.pending.getState() == State.QUEUED) {
+                cancel(schedule.pending.getId());
+            }
+            System.out.println("INFO: Device " + serial + " removed from the collection schedule (" + (newState != null ? newState : "detached") + ").");
+        }
+    }
+
+    /**
+     * Queues a collection of the device now, unless it already has one queued or running.
+     *
+     * @return The new job, the device's pending job, or null if the device is not operational.
+     */
+    public synchronized Job trigger(String serial) {
+        Schedule schedule = schedules.get(serial);
+        if (schedule == null) {
+            return null;
+        }
+        return schedule.pending != null ? schedule.pending : submit(schedule, "manual");
+    }
+
+    /**
+     * Cancels a queued job, or stops a running one (its partial log file is removed).
+     *
+     * @return false if there is no such job or it has already finished.
+     */
+    public synchronized boolean cancel(long id) {
+        Job job = activeJobs.get(id);
+        if (job == null) {
+            return false;
+        }
+        job.cancelRequested = true;
+        job.future.cancel(true); // Interrupting the worker stops the transfer
+        if (job.getState() == State.QUEUED) {
+            finish(job, State.CANCELLED); // Never started, so no worker will report it
+        }
+        return true;
+    }
+
+    /**
+     * @return The queued and running jobs, then finished jobs from newest to oldest.
+     */
+    public synchronized List<Job> getJobs() {
+        List<Job> jobs = new ArrayList<>(activeJobs.values());
+        jobs.addAll(history);
+        return jobs;
+    }
+
+    public synchronized Job getJob(long id) {
+        for (Job job : getJobs()) {
+            if (job.getId() == id) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return One JSON object per scheduled device: serial, interval, next run and pending job.
+     */
+    public synchronized List<String> describeSchedules() {
+        List<String> descriptions = new ArrayList<>();
+        for (Schedule schedule : schedules.values()) {
+            descriptions.add("{\"device\": " + ExtractionMetrics.quote(schedule.serial) + ", \"intervalSeconds\": "
+                    + TimeUnit.MILLISECONDS.toSeconds(schedule.intervalMillis) + ", \"nextRun\": "
+                    + (schedule.next != null && !schedule.next.isDone() ? schedule.nextRunMillis : "null")
+                    + ", \"pendingJob\": " + (schedule.pending != null ? schedule.pending.getId() : "null") + "}");
+        }
+        return descriptions;
+    }
+
+    /**
+     * For tests: a shorter first-run spread and job timeout.
+     */
+    synchronized void setTimings(long initialSpreadMillis, long jobTimeoutMillis) {
+        this.initialSpreadMillis = initialSpreadMillis;
+        this.jobTimeoutMillis = jobTimeoutMillis;
+    }
+
+    private void scheduleNext(Schedule schedule, long delayMillis) {
+        schedule.nextRunMillis = System.currentTimeMillis() + delayMillis;
+        schedule.next = scheduler.schedule(() -> due(schedule), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void due(Schedule schedule) {
+        if (schedules.get(schedule.serial) != schedule) {
+            return; // Detached in the meantime
+        }
+        if (schedule.pending != null) {
+            System.out.println("INFO: Skipping scheduled collection of " + schedule.serial + ": job " + schedule.pending.getId()
+                    + " is still " + schedule.pending.getState().name().toLowerCase(Locale.ROOT) + ".");
+        } else {
+            submit(schedule, "schedule");
+        }
+        scheduleNext(schedule, jitteredDelay(schedule.intervalMillis, ThreadLocalRandom.current()));
+    }
+
+    private Job submit(Schedule schedule, String trigger) {
+        Job job = new Job(jobIds.incrementAndGet(), schedule.serial, trigger);
+        schedule.pending = job;
+        activeJobs.put(job.getId(), job);
+        job.future = workers.submit(() -> run(job));
+        return job;
+    }
+
+    private void run(Job job) {
+        synchronized (this) {
+            if (job.cancelRequested) {
+                return;
+            }
+            job.state = State.RUNNING;
+            job.startedMillis = System.currentTimeMillis();
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date(job.startedMillis));
+        String fileName = AdbHelper.buildLogFileName(job.getSerial(), timestamp, adbHelper.getOutputFormat());
+        if (new File(outputDir, fileName).exists()) {
+            // A manual run right after a scheduled one, within the same second
+            fileName = AdbHelper.buildLogFileName(job.getSerial(), timestamp + "_" + job.getId(), adbHelper.getOutputFormat());
+        }
+        File logFile = null;
+        ExtractionMetrics metrics = new ExtractionMetrics(job.getSerial());
+        try {
+            logFile = adbHelper.streamLogcatToFile(job.getSerial(), outputDir.getAbsolutePath(), fileName, Collections.<String>emptyList(),
+                    metrics, jobTimeoutMillis);
+        } catch (RuntimeException e) {
+            System.err.println("ERROR: Collection of " + job.getSerial() + " failed: " + e);
+        }
+        synchronized (this) {
+            if (logFile != null) {
+                job.logFile = logFile;
+                job.bytes = metrics.getBytes(); // The log received, not what the output format stored
+            }
+            finish(job, job.cancelRequested ? State.CANCELLED : logFile != null ? State.SUCCEEDED : State.FAILED);
+        }
+    }
+
+    private void finish(Job job, State state) {
+        job.state = state;
+        job.finishedMillis = System.currentTimeMillis();
+        activeJobs.remove(job.getId());
+        Schedule schedule = schedules.get(job.getSerial());
+        if (schedule != null && schedule.pending == job) {
+            schedule.pending = null;
+        }
+        history.addFirst(job);
+        while (history.size() > HISTORY_SIZE) {
+            history.removeLast();
+        }
+        System.out.println("INFO: Job " + job.getId() + " (" + job.getSerial() + ", " + job.getTrigger() + ") " + state.name().toLowerCase(Locale.ROOT)
+                + (job.getLogFile() != null ? ": " + job.getLogFile().getName() + ", " + job.getBytes() + " bytes." : "."));
+    }
+
+    /**
+     * @return The scheduled devices, in the order they were added.
+     */
+    public synchronized List<String> getDevices() {
+        return Collections.unmodifiableList(new ArrayList<>(schedules.keySet()));
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.logextractor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP control endpoint of a {@link CollectionDaemon}, bound to the loopback interface only.
+ * Answers with JSON:
+ *
+ * <pre>
+ * GET    /jobs                 Queued and running jobs, then recent finished ones
+ * GET    /jobs/ID              One job
+ * POST   /jobs?device=SERIAL   Collect a device now (202; the pending job if it already has one; 404 if not operational)
+ * DELETE /jobs/ID              Cancel a queued or running job (404 if unknown or finished)
+ * GET    /devices              The scheduled devices with their interval and next run
+ * </pre>
+ *
+ * Every request must carry "Authorization: Bearer TOKEN", with the random token written to a file only the
+ * current user can read. Being on loopback is not enough on its own: any web page open on the host can send
+ * simple cross-origin requests to it, and DNS rebinding lets it read the answers. So requests with an Origin
+ * header (browsers send one on cross-origin requests) or a Host other than this port on 127.0.0.1 or
+ * localhost are also refused.
+ */
+public class DaemonControlServer {
+
+    public static final int DEFAULT_PORT = 5038; // Next to the adb server's 5037
+    public static final String TOKEN_FILE_NAME = ".ivi_daemon.token";
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final CollectionDaemon daemon;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final File tokenFile;
+    private final String token;
+
+    /**
+     * Binds to 127.0.0.1 on the given port (0 = any free port) and writes a new access token; requests are
+     * served once {@link #start()} is called.
+     *
+     * @param tokenFile Where the token is written, readable by the owner only. Removed by {@link #stop()}.
+     * @throws IOException If the port cannot be bound or the token file cannot be written.
+     */
+    public DaemonControlServer(CollectionDaemon daemon, int port, File tokenFile) throws IOException {
+        this.daemon = daemon;
+        this.tokenFile = tokenFile;
+        this.token = newToken();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        try {
+            writeTokenFile(tokenFile, token);
+        } catch (IOException e) {
+            server.stop(0);
+            throw new IOException("Cannot write token file " + tokenFile.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+        this.executor = Executors.newSingleThreadExecutor(new MultiDeviceExtractor.WorkerThreadFactory("daemon-control-"));
+        server.setExecutor(executor);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/devices", this::handleDevices);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("INFO: Daemon control endpoint listening on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort() + "/jobs"
+                + " (token: " + tokenFile.getAbsolutePath() + ")");
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        if (!tokenFile.delete() && tokenFile.exists()) {
+            System.err.println("ERROR: Failed to remove token file: " + tokenFile.getAbsolutePath());
+        }
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * @return The bound port (useful when created with port 0).
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            if (!authorize(exchange)) {
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String idPart = path.length() > "/jobs/".length() ? path.substring("/jobs/".length()) : null;
+            Long id = null;
+            if (idPart != null) {
+                try {
+                    id = Long.parseLong(idPart);
+                } catch (NumberFormatException e) {
+                    respond(exchange, 404, error("No such job: " + idPart));
+                    return;
+                }
+            }
+
+            if ("GET".equals(method) && id == null) {
+                respond(exchange, 200, jsonArray(daemon.getJobs()));
+            } else if ("GET".equals(method)) {
+                CollectionDaemon.Job job = daemon.getJob(id);
+                respond(exchange, job != null ? 200 : 404, job != null ? job.toJson() : error("No such job: " + id));
+            } else if ("POST".equals(method) && id == null) {
+                String serial = queryParameter(exchange, "device");
+                if (serial == null || serial.isEmpty()) {
+                    respond(exchange, 400, error("Expected ?device=SERIAL"));
+                    return;
+                }
+                CollectionDaemon.Job job = daemon.trigger(serial);
+                respond(exchange, job != null ? 202 : 404, job != null ? job.toJson() : error("Device is not operational: " + serial));
+            } else if ("DELETE".equals(method) && id != null) {
+                boolean cancelled = daemon.cancel(id);
+                respond(exchange, cancelled ? 202 : 404, cancelled ? daemon.getJob(id).toJson() : error("No queued or running job: " + id));
+            } else {
+                respond(exchange, 405, error("Method " + method + " not supported on " + path));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleDevices(HttpExchange exchange) throws IOException {
+        try {
+            if (!authorize(exchange)) {
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 200, "[" + String.join(", ", daemon.describeSchedules()) + "]");
+            } else {
+                respond(exchange, 405, error("Method " + exchange.getRequestMethod() + " not supported on /devices"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Refuses requests from browsers, requests addressed to another host name (DNS rebinding) and requests
+     * without the token, answering them itself.
+     *
+     * @return True if the request may be served.
+     */
+    private boolean authorize(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            respond(exchange, 403, error("Cross-origin requests are not accepted"));
+            return false;
+        }
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        String port = ":" + getPort();
+        if (host == null || !(host.equals("127.0.0.1" + port) || host.toLowerCase(Locale.ROOT).equals("localhost" + port))) {
+            respond(exchange, 403, error("Unexpected Host header: " + host));
+            return false;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        byte[] expected = ("Bearer " + token).getBytes(StandardCharsets.US_ASCII);
+        if (authorization == null || !MessageDigest.isEqual(expected, authorization.getBytes(StandardCharsets.US_ASCII))) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            respond(exchange, 401, error("Expected Authorization: Bearer <token from " + tokenFile.getName() + ">"));
+            return false;
+        }
+        return true;
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Writes the token to a temporary file that only the owner can access, then moves it into place, so the
+     * token is never readable by others, not even briefly.
+     */
+    private static void writeTokenFile(File tokenFile, String token) throws IOException {
+        Path dir = tokenFile.getAbsoluteFile().getParentFile().toPath();
+        Path temp;
+        try {
+            temp = Files.createTempFile(dir, tokenFile.getName(), ".tmp", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            temp = Files.createTempFile(dir, tokenFile.getName(), ".tmp"); // Not POSIX (Windows): restrict what we can
+            File file = temp.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+        }
+        try {
+            Files.write(temp, (token + "\n").getBytes(StandardCharsets.US_ASCII));
+            Files.move(temp, tokenFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery(); // Already decoded
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String jsonArray(List<CollectionDaemon.Job> jobs) {
+        StringBuilder json = new StringBuilder("[");
+        for (CollectionDaemon.Job job : jobs) {
+            json.append(json.length() > 1 ? ", " : "").append(job.toJson());
+        }
+        return json.append("]").toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + ExtractionMetrics.quote(message) + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.logextractor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Deduplicated storage for extracted logs. Repeated dumps of the same ring buffer overlap heavily, so
+ * instead of a full copy per extraction the log is cut into content-defined chunks (see
+ * {@link DedupOutputStream}) and each distinct chunk is kept once, compressed, in a shared chunk store:
+ * "chunks/" next to the extractions, one file per chunk named by the SHA-256 of its content. Each
+ * extraction itself is only a small manifest ("&lt;log&gt;.txt.dedup") listing its chunks in order, from
+ * which {@link #restore(File, OutputStream)} rebuilds the original text.
+ *
+ * Chunks are written to a temporary file, forced to disk and moved into place, so several extractions
+ * (e.g. with --all) can share one store and a crash never leaves a partial chunk under its hash. A chunk
+ * found already in the store is still checked against its hash before it is reused, and rewritten if it is
+ * damaged. The directories holding new chunks are synced before the manifest naming them is written.
+ * Deleting a manifest does not delete its chunks, which other manifests may use.
+ */
+public final class DedupArchive {
+
+    static final String STORE_DIRECTORY = "chunks";
+    static final int HASH_LENGTH = 32; // SHA-256
+
+    private static final int MAGIC = 0x49564944; // "IVID"
+    private static final int VERSION = 1;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path storeDirectory;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Inflater inflater = new Inflater();
+    private final MessageDigest digest = sha256();
+    private final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+    private final Set<Path> unsyncedDirectories = new LinkedHashSet<>();
+
+    /**
+     * @param storeDirectory The chunk store; created when the first chunk is added.
+     */
+    DedupArchive(Path storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+
+    /**
+     * @return The chunk store shared by the manifests in the same directory as the given one.
+     */
+    public static Path storeDirectoryFor(Path manifest) {
+        return manifest.toAbsolutePath().getParent().resolve(STORE_DIRECTORY);
+    }
+
+    /**
+     * Adds a chunk unless the store already holds an intact copy of it.
+     *
+     * @param hash The SHA-256 of the chunk.
+     * @return true if the chunk was new (or damaged) and has been written.
+     */
+    boolean put(byte[] hash, byte[] data, int length) throws IOException {
+        Path chunk = chunkPath(hash);
+        if (Files.exists(chunk) && isIntact(chunk, hash, length)) {
+            return false; // Same hash, same content: nothing to write
+        }
+        Path directory = chunk.getParent();
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory);
+            unsyncedDirectories.add(storeDirectory); // The new fan-out directory is an entry in the store
+        }
+        Path temp = Files.createTempFile(directory, chunk.getFileName().toString(), ".tmp");
+        try {
+            deflater.reset();
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                DeflaterOutputStream out = new DeflaterOutputStream(file, deflater, STREAM_BUFFER_SIZE);
+                out.write(data, 0, length);
+                out.finish();
+                file.getChannel().force(true); // On disk before it can be found under its hash
+            }
+            // Another extraction may have stored the same chunk meanwhile; either copy will do
+            Files.move(temp, chunk, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        unsyncedDirectories.add(directory);
+        return true;
+    }
+
+    /**
+     * Syncs the directories that chunks have been added to, so the chunks outlast a crash once a manifest
+     * names them.
+     */
+    void sync() throws IOException {
+        for (Path directory : unsyncedDirectories) {
+            forceDirectory(directory);
+        }
+        unsyncedDirectories.clear();
+    }
+
+    /**
+     * Releases the compressor. The store itself needs no closing.
+     */
+    void close() {
+        deflater.end();
+        inflater.end();
+    }
+
+    /**
+     * @return true if the stored chunk inflates to exactly the given length and hash; false if a crash or a
+     *         full disk left it truncated or corrupt.
+     */
+    private boolean isIntact(Path chunk, byte[] hash, int length) {
+        digest.reset();
+        inflater.reset();
+        long chunkBytes = 0;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(chunk), inflater, STREAM_BUFFER_SIZE)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                chunkBytes += read;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return chunkBytes == length && Arrays.equals(digest.digest(), hash);
+    }
+
+    /**
+     * Writes a manifest: the length of the log, then the hash and length of each chunk in order.
+     *
+     * @param entries {@link #HASH_LENGTH} bytes of hash followed by an int length, per chunk.
+     */
+    static void writeManifest(Path manifest, long totalLength, int chunkCount, byte[] entries, int entriesLength) throws IOException {
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(totalLength);
+            out.writeInt(chunkCount);
+            out.write(entries, 0, entriesLength);
+            out.flush();
+            file.getChannel().force(true); // On disk before it replaces a previous manifest
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(manifest.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Syncs a directory, making the renames into it durable. Skipped where directories cannot be opened (Windows).
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories cannot be opened or synced on this platform; the rename is as durable as it gets
+        }
+    }
+
+    /**
+     * Rebuilds the log described by a manifest, checking every chunk against its hash.
+     *
+     * @return The number of bytes written.
+     * @throws IOException If the manifest is invalid, or a chunk is missing or damaged.
+     */
+    public static long restore(File manifest, OutputStream out) throws IOException {
+        Path store = storeDirectoryFor(manifest.toPath());
+        MessageDigest digest = sha256();
+        byte[] hash = new byte[HASH_LENGTH];
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        long written = 0;
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest.toPath())))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a dedup manifest: " + manifest.getAbsolutePath());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported dedup manifest version " + version + ": " + manifest.getAbsolutePath());
+            }
+            long totalLength = in.readLong();
+            int chunkCount = in.readInt();
+            for (int i = 0; i < chunkCount; i++) {
+                in.readFully(hash);
+                int length = in.readInt();
+                Path chunk = chunkPath(store, hash);
+                digest.reset();
+                inflater.reset();
+                long chunkBytes = 0;
+                try (InputStream chunkIn = new InflaterInputStream(Files.newInputStream(chunk), inflater, STREAM_BUFFER_SIZE)) {
+                    int read;
+                    while ((read = chunkIn.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                        out.write(buffer, 0, read);
+                        chunkBytes += read;
+                    }
+                } catch (NoSuchFileException e) {
+                    throw new IOException("Chunk " + (i + 1) + " of " + chunkCount + " is missing from the store: " + chunk);
+                } catch (EOFException e) {
+                    throw new IOException("Chunk " + (i + 1) + " of " + chunkCount + " is truncated: " + chunk);
+                }
+                if (chunkBytes != length || !Arrays.equals(digest.digest(), hash)) {
+                    throw new IOException("Chunk " + (i + 1) + " of " + chunkCount + " does not match its hash: " + chunk);
+                }
+                written += chunkBytes;
+            }
+            if (written != totalLength) {
+                throw new IOException("Manifest lists " + written + " bytes but records a length of " + totalLength + ": " + manifest.getAbsolutePath());
+            }
+        } finally {
+            inflater.end();
+        }
+        out.flush();
+        return written;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    private Path chunkPath(byte[] hash) {
+        return chunkPath(storeDirectory, hash);
+    }
+
+    /**
+     * @return "ab/abcdef..." under the store: the first byte of the hash fans chunks out over 256 directories.
+     */
+    private static Path chunkPath(Path store, byte[] hash) {
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        String name = new String(hex);
+        return store.resolve(name.substring(0, 2)).resolve(name);
+    }
+}
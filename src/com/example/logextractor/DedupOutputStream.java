@@ -0,0 +1,150 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Cuts a log into content-defined chunks and stores it in a {@link DedupArchive}: chunks the store already
+ * holds are not written again, and the manifest listing the chunks is written when the stream is closed.
+ *
+ * Boundaries come from a gear rolling hash over the last 64 bytes: a chunk may end once the hash has its
+ * top {@link #BOUNDARY_BITS} bits clear and it is at least {@link #MIN_CHUNK_SIZE} long, and it then ends at
+ * the next newline, so chunks hold whole lines. Since the hash depends only on nearby content, two dumps
+ * containing the same stretch of log cut it at the same places, wherever that stretch starts in each dump;
+ * after a ring buffer wraps, only the first chunk of the next dump differs.
+ */
+public class DedupOutputStream extends OutputStream {
+
+    static final int MIN_CHUNK_SIZE = 2 * 1024;
+    static final int MAX_CHUNK_SIZE = 64 * 1024;
+    static final int BOUNDARY_BITS = 13; // About 8 KiB between candidate boundaries
+
+    private static final long BOUNDARY_MASK = -1L << (Long.SIZE - BOUNDARY_BITS);
+    private static final long[] GEAR = new long[256];
+    private static final int ENTRY_SIZE = DedupArchive.HASH_LENGTH + 4;
+
+    static {
+        Random random = new Random(0x49564944L); // Fixed, so boundaries stay the same across runs and versions
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final DedupArchive archive;
+    private final Path manifest;
+    private final MessageDigest digest = DedupArchive.sha256();
+    private final byte[] chunk = new byte[MAX_CHUNK_SIZE];
+    private int chunkLength;
+    private long hash;
+    private boolean cutAtNextLine;
+
+    private byte[] entries = new byte[ENTRY_SIZE * 256];
+    private int entriesLength;
+    private int chunkCount;
+    private int newChunks;
+    private long newBytes;
+    private long totalLength;
+    private boolean closed;
+
+    /**
+     * @param manifest The manifest file to write on close; chunks go to the store next to it
+     *                 (see {@link DedupArchive#storeDirectoryFor(Path)}).
+     */
+    public DedupOutputStream(Path manifest) {
+        this.manifest = manifest;
+        this.archive = new DedupArchive(DedupArchive.storeDirectoryFor(manifest));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            chunk[chunkLength++] = b;
+            hash = (hash << 1) + GEAR[b & 0xff];
+            if (chunkLength == MAX_CHUNK_SIZE) {
+                cut(); // A very long line, or no boundary for a long stretch
+            } else if (cutAtNextLine || (chunkLength >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0)) {
+                cutAtNextLine = true;
+                if (b == '\n') {
+                    cut();
+                }
+            }
+        }
+        totalLength += length;
+    }
+
+    private void cut() throws IOException {
+        digest.update(chunk, 0, chunkLength);
+        byte[] chunkHash = digest.digest();
+        if (archive.put(chunkHash, chunk, chunkLength)) {
+            newChunks++;
+            newBytes += chunkLength;
+        }
+        if (entriesLength + ENTRY_SIZE > entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        System.arraycopy(chunkHash, 0, entries, entriesLength, chunkHash.length);
+        entriesLength += chunkHash.length;
+        entries[entriesLength++] = (byte) (chunkLength >>> 24);
+        entries[entriesLength++] = (byte) (chunkLength >>> 16);
+        entries[entriesLength++] = (byte) (chunkLength >>> 8);
+        entries[entriesLength++] = (byte) chunkLength;
+        chunkCount++;
+        chunkLength = 0;
+        hash = 0;
+        cutAtNextLine = false;
+    }
+
+    /**
+     * Stores the last chunk and writes the manifest.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (chunkLength > 0) {
+                cut();
+            }
+            archive.sync(); // New chunks are durable before the manifest refers to them
+            DedupArchive.writeManifest(manifest, totalLength, chunkCount, entries, entriesLength);
+            System.out.println("INFO: Deduplicated " + totalLength + " bytes into " + chunkCount + " chunk(s); " + newChunks
+                    + " new, " + newBytes + " bytes added to the chunk store.");
+        } finally {
+            archive.close();
+        }
+    }
+
+    /**
+     * @return The chunks written to the store so far (the others were already there).
+     */
+    public int getNewChunks() {
+        return newChunks;
+    }
+
+    /**
+     * @return The bytes of the chunks written to the store so far, before compression.
+     */
+    public long getNewBytes() {
+        return newBytes;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.logextractor;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a live map of device serial to state, fed by the adb server's "track-devices" service, so device
+ * checks are answered from memory instead of running "adb devices" each time. The server pushes the full
+ * device list whenever it changes; the registry diffs consecutive lists and notifies its listeners.
+ *
+ * The tracker runs on a daemon thread. While it is not connected to the server, {@link #isTracking()}
+ * is false and callers should query the server themselves rather than trust a possibly stale map.
+ */
+public class DeviceRegistry {
+
+    private static final long RETRY_DELAY_MILLIS = 2000;
+
+    /**
+     * Notified from the tracker thread when a device attaches, detaches or changes state.
+     */
+    public interface Listener {
+        /**
+         * @param serial The device serial.
+         * @param oldState The previous state, or null if the device just attached.
+         * @param newState The new state (e.g. "device", "unauthorized", "offline"), or null if the device detached.
+         */
+        void deviceChanged(String serial, String oldState, String newState);
+    }
+
+    private final AdbHelper adbHelper;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstList = new CountDownLatch(1);
+
+    private volatile Map<String, String> devices = Collections.emptyMap();
+    private volatile boolean tracking;
+    private volatile boolean stopped;
+    private volatile InputStream currentStream;
+    private Thread thread;
+
+    /**
+     * @param adbHelper Supplies the adb server connection, or the adb executable if no server client is set.
+     */
+    public DeviceRegistry(AdbHelper adbHelper) {
+        this.adbHelper = adbHelper;
+    }
+
+    /**
+     * Starts tracking on a background thread. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::trackLoop, "adb-device-tracker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops tracking and closes the connection to the server.
+     */
+    public void stop() {
+        stopped = true;
+        tracking = false;
+        closeQuietly(currentStream);
+        Thread trackerThread;
+        synchronized (this) {
+            trackerThread = thread;
+        }
+        if (trackerThread != null) {
+            trackerThread.interrupt();
+        }
+    }
+
+    /**
+     * Waits until the first device list has arrived.
+     *
+     * @return true if the registry is tracking devices.
+     */
+    public boolean awaitFirstList(long timeout, TimeUnit unit) throws InterruptedException {
+        return firstList.await(timeout, unit) && tracking;
+    }
+
+    /**
+     * @return true while the registry is connected to the server and its device map is current.
+     */
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * @return An unmodifiable snapshot of serial to state, in the order reported by the server.
+     */
+    public Map<String, String> getDevices() {
+        return devices;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void trackLoop() {
+        boolean reportFailure = true; // Report the first failure of a run of failed attempts only
+        while (!stopped) {
+            try (InputStream in = openTrackingStream()) {
+                currentStream = in;
+                String list;
+                while ((list = readFrame(in)) != null) {
+                    Map<String, String> newDevices = AdbHelper.parseDeviceList(Arrays.asList(list.split("\n")));
+                    Map<String, String> oldDevices = devices;
+                    devices = Collections.unmodifiableMap(new LinkedHashMap<>(newDevices));
+                    tracking = true;
+                    firstList.countDown();
+                    reportFailure = true;
+                    fireChanges(oldDevices, newDevices);
+                }
+            } catch (IOException e) {
+                if (!stopped && reportFailure) {
+                    System.err.println("ERROR: Device tracking connection failed, retrying in the background: " + e.getMessage());
+                    reportFailure = false;
+                }
+            } finally {
+                currentStream = null;
+                tracking = false;
+            }
+            if (!stopped) {
+                firstList.countDown(); // Do not keep startup waiting while the server is unreachable
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private InputStream openTrackingStream() throws IOException {
+        AdbSocketClient client = adbHelper.getServerClient();
+        if (client != null) {
+            try {
+                SocketChannel channel = client.openTrackDevices();
+                return Channels.newInputStream(channel);
+            } catch (AdbSocketClient.ServerUnavailableException e) {
+                // Fall through to the adb executable, which starts the server if needed
+            }
+        }
+        final Process process = adbHelper.startAdbProcess(null, Collections.singletonList("track-devices"));
+        return new FilterInputStream(process.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                process.destroy();
+                super.close();
+            }
+        };
+    }
+
+    /**
+     * Reads one device list: 4 hex digits of length, then the list in "adb devices" line format.
+     *
+     * @return The list, or null at the end of the stream.
+     */
+    static String readFrame(InputStream in) throws IOException {
+        byte[] header = new byte[4];
+        int headerLength = readFully(in, header);
+        if (headerLength == 0) {
+            return null;
+        }
+        if (headerLength < header.length) {
+            throw new EOFException("Device tracking stream ended inside a frame header");
+        }
+        String lengthText = new String(header, StandardCharsets.US_ASCII);
+        int length;
+        try {
+            length = Integer.parseInt(lengthText, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed device list length '" + lengthText + "'");
+        }
+        byte[] payload = new byte[length];
+        if (readFully(in, payload) < length) {
+            throw new EOFException("Device tracking stream ended inside a device list");
+        }
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Notifies listeners of every difference between two device lists.
+     */
+    void fireChanges(Map<String, String> oldDevices, Map<String, String> newDevices) {
+        for (Map.Entry<String, String> device : newDevices.entrySet()) {
+            String oldState = oldDevices.get(device.getKey());
+            if (!device.getValue().equals(oldState)) {
+                fire(device.getKey(), oldState, device.getValue());
+            }
+        }
+        for (Map.Entry<String, String> device : oldDevices.entrySet()) {
+            if (!newDevices.containsKey(device.getKey())) {
+                fire(device.getKey(), device.getValue(), null);
+            }
+        }
+    }
+
+    private void fire(String serial, String oldState, String newState) {
+        for (Listener listener : listeners) {
+            try {
+                listener.deviceChanged(serial, oldState, newState);
+            } catch (RuntimeException e) {
+                System.err.println("ERROR: Device listener failed for " + serial + ": " + e);
+            }
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Closing only serves to unblock the tracker thread
+            }
+        }
+    }
+}
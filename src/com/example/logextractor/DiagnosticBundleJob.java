@@ -0,0 +1,555 @@
+package com.example.logextractor;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Collects a diagnostic bundle per device: a bugreport, tombstones, ANR traces, dropbox entries and the
+ * logcat dump, pulled as concurrent tasks and streamed straight into one ZIP file per device.
+ *
+ * The pulls of all devices share a fixed pool, so at most "maxParallel" run at once. A device's ZIP takes
+ * one entry at a time: a pull claims it only when its first byte arrives, so slow starters (bugreportz
+ * spends minutes generating before it sends anything) do not hold up the others. Each artifact has its own
+ * deadline; a missed deadline fails that artifact only. What was collected, and what failed and why, is
+ * listed in a "bundle-report.txt" entry.
+ */
+public class DiagnosticBundleJob {
+
+    public static final int DEFAULT_MAX_PARALLEL = 4;
+    public static final String REPORT_ENTRY = "bundle-report.txt";
+
+    /**
+     * The things a bundle can contain, each with its default deadline.
+     */
+    public enum Artifact {
+        /** Full bugreport zip, streamed by "bugreportz -s" (Android 12 and later). */
+        BUGREPORT("bugreport", 900),
+        /** Native crash dumps from /data/tombstones. */
+        TOMBSTONES("tombstones", 120),
+        /** ANR traces from /data/anr. */
+        ANR("anr", 120),
+        /** Dropbox entries (crashes, watchdogs, strict mode), as printed by "dumpsys dropbox --print". */
+        DROPBOX("dropbox", 180),
+        /** The current logcat buffers, as threadtime text. */
+        LOGCAT("logcat", 300);
+
+        private final String optionName;
+        private final long defaultTimeoutSeconds;
+
+        Artifact(String optionName, long defaultTimeoutSeconds) {
+            this.optionName = optionName;
+            this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+        }
+
+        public String getOptionName() {
+            return optionName;
+        }
+
+        public long getDefaultTimeoutSeconds() {
+            return defaultTimeoutSeconds;
+        }
+
+        /**
+         * @return The artifact, or null if the name is unknown.
+         */
+        public static Artifact fromOptionName(String name) {
+            for (Artifact artifact : values()) {
+                if (artifact.optionName.equalsIgnoreCase(name)) {
+                    return artifact;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Outcome of one artifact pull.
+     */
+    public static class ArtifactResult {
+        private final Artifact artifact;
+        private final int entries;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final String error;
+
+        ArtifactResult(Artifact artifact, int entries, long bytes, long elapsedNanos, String error) {
+            this.artifact = artifact;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+        }
+
+        public Artifact getArtifact() {
+            return artifact;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /** @return Why the pull failed or is incomplete, or null. */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-12s %-7s %12d bytes %4d file(s) %8.1f s%s", artifact.getOptionName(),
+                    isSuccess() ? "OK" : "FAILED", bytes, entries, elapsedNanos / 1e9,
+                    error != null ? "  " + error.replace('\n', ' ') : "");
+        }
+    }
+
+    private final AdbHelper adbHelper;
+    private final int maxParallel;
+    private final Map<Artifact, Long> timeoutSeconds = new EnumMap<>(Artifact.class);
+    private final AtomicInteger failedArtifacts = new AtomicInteger();
+
+    /**
+     * @param maxParallel The maximum number of artifact pulls running at once, over all devices.
+     */
+    public DiagnosticBundleJob(AdbHelper adbHelper, int maxParallel) {
+        this.adbHelper = adbHelper;
+        this.maxParallel = maxParallel;
+        for (Artifact artifact : Artifact.values()) {
+            timeoutSeconds.put(artifact, artifact.getDefaultTimeoutSeconds());
+        }
+    }
+
+    /**
+     * @return How many artifact pulls failed or timed out so far, over all devices.
+     */
+    public int getFailedArtifacts() {
+        return failedArtifacts.get();
+    }
+
+    public long getTimeoutSeconds(Artifact artifact) {
+        return timeoutSeconds.get(artifact);
+    }
+
+    public void setTimeoutSeconds(Artifact artifact, long seconds) {
+        timeoutSeconds.put(artifact, seconds);
+    }
+
+    /**
+     * Parses a comma-separated artifact list such as "bugreport,anr". An empty list means all artifacts.
+     *
+     * @throws IllegalArgumentException If the list names an unknown or repeated artifact.
+     */
+    public static List<Artifact> parseArtifacts(String artifactList) {
+        List<Artifact> artifacts = new ArrayList<>();
+        if (artifactList != null) {
+            for (String name : artifactList.trim().split("\\s*,\\s*")) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                Artifact artifact = Artifact.fromOptionName(name);
+                if (artifact == null) {
+                    throw new IllegalArgumentException("Unknown bundle artifact '" + name + "'; use any of " + artifactNames() + ".");
+                }
+                if (artifacts.contains(artifact)) {
+                    throw new IllegalArgumentException("Artifact listed twice: " + name);
+                }
+                artifacts.add(artifact);
+            }
+        }
+        return artifacts.isEmpty() ? Arrays.asList(Artifact.values()) : artifacts;
+    }
+
+    /**
+     * Applies per-artifact deadlines given as "bugreport:1200,anr:60" (seconds).
+     *
+     * @throws IllegalArgumentException If an entry is malformed or names an unknown artifact.
+     */
+    public void setTimeouts(String timeoutList) {
+        for (String item : timeoutList.trim().split("\\s*,\\s*")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            int separator = item.indexOf(':');
+            Artifact artifact = separator > 0 ? Artifact.fromOptionName(item.substring(0, separator)) : null;
+            if (artifact == null) {
+                throw new IllegalArgumentException("Expected ARTIFACT:SECONDS with an artifact out of " + artifactNames() + ", got: " + item);
+            }
+            long seconds;
+            try {
+                seconds = Long.parseLong(item.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                seconds = 0;
+            }
+            if (seconds < 1) {
+                throw new IllegalArgumentException("Timeout for " + artifact.getOptionName() + " must be a positive number of seconds, got: "
+                        + item.substring(separator + 1));
+            }
+            timeoutSeconds.put(artifact, seconds);
+        }
+    }
+
+    /**
+     * @return The bundle file name, e.g. "ivi_bundle_emulator-5554_20240101_120000.zip".
+     */
+    public static String buildBundleFileName(String targetDevice, String timestamp) {
+        return "ivi_bundle_" + AdbHelper.safeDeviceName(targetDevice) + "_" + timestamp + ".zip";
+    }
+
+    /**
+     * Collects the given artifacts from every device into one ZIP per device. The devices are not checked first.
+     *
+     * @param serials The devices to collect from (a single null entry stands for the default device).
+     * @param artifacts What to collect.
+     * @param outputDirectory The directory where the bundles should be saved.
+     * @return One result per device, in the same order as the given serials; a failed device has a null file.
+     * @throws InterruptedException If interrupted while waiting for the pulls.
+     */
+    public List<MultiDeviceExtractor.DeviceResult> collect(List<String> serials, List<Artifact> artifacts, String outputDirectory)
+            throws InterruptedException {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        long startNanos = System.nanoTime();
+        List<DeviceBundle> bundles = new ArrayList<>();
+        for (String serial : serials) {
+            File zipFile = new File(outputDirectory, buildBundleFileName(serial, timestamp));
+            try {
+                bundles.add(new DeviceBundle(serial, zipFile));
+            } catch (IOException e) {
+                System.err.println("ERROR: Cannot create bundle " + zipFile.getAbsolutePath() + ": " + e.getMessage());
+                bundles.add(null);
+            }
+        }
+
+        int tasks = serials.size() * artifacts.size();
+        int threads = Math.max(1, Math.min(maxParallel, tasks));
+        System.out.println("INFO: Collecting " + artifacts.size() + " artifact(s) from " + serials.size() + " device(s) using " + threads
+                + " worker(s): " + artifactNames(artifacts));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new MultiDeviceExtractor.WorkerThreadFactory("bundle-"));
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            // Artifact by artifact, so every device gets its slowest pull (the bugreport) started first
+            for (final Artifact artifact : artifacts) {
+                for (final DeviceBundle bundle : bundles) {
+                    if (bundle != null) {
+                        futures.add(pool.submit(() -> bundle.add(pull(bundle, artifact))));
+                    }
+                }
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    System.err.println("ERROR: Bundle task failed: " + e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<MultiDeviceExtractor.DeviceResult> results = new ArrayList<>();
+        for (int i = 0; i < serials.size(); i++) {
+            DeviceBundle bundle = bundles.get(i);
+            String name = serials.get(i) != null ? serials.get(i) : "default";
+            if (bundle == null) {
+                results.add(new MultiDeviceExtractor.DeviceResult(name, null, 0L, 0L));
+                continue;
+            }
+            File zipFile = bundle.finish(timestamp);
+            results.add(new MultiDeviceExtractor.DeviceResult(name, zipFile, zipFile != null ? zipFile.length() : 0L, System.nanoTime() - startNanos));
+        }
+        return results;
+    }
+
+    /**
+     * Pulls one artifact into the device's ZIP within the artifact's deadline.
+     */
+    private ArtifactResult pull(DeviceBundle bundle, Artifact artifact) {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(timeoutSeconds.get(artifact));
+        String serial = bundle.serial;
+        int entries = 0;
+        long bytes = 0;
+        String error = null;
+        System.out.println("INFO: Pulling " + artifact.getOptionName() + " from " + (serial != null ? serial : "default device") + "...");
+        try {
+            switch (artifact) {
+                case BUGREPORT:
+                    ZipEntryStream report = bundle.openEntry("bugreport.zip", false);
+                    bytes = stream(serial, Arrays.asList("exec-out", "bugreportz -s"), report, deadlineNanos);
+                    entries = 1;
+                    if (!report.startsWith("PK")) {
+                        // bugreportz reports failures ("FAIL:...") as text on the same stream
+                        error = "bugreportz did not return a zip: " + new String(report.head(), StandardCharsets.US_ASCII).trim();
+                    }
+                    break;
+                case TOMBSTONES:
+                case ANR:
+                    String directory = artifact == Artifact.TOMBSTONES ? "/data/tombstones" : "/data/anr";
+                    List<String> files = adbHelper.executeAdbCommand(serial, Arrays.asList("shell", "ls", "-1", directory), remainingMillis(deadlineNanos));
+                    for (String file : files) {
+                        file = file.trim();
+                        if (file.startsWith("ls: ")) {
+                            // Over an adb server connection there is no exit code, only the message
+                            throw new IOException(file);
+                        }
+                        if (file.isEmpty() || file.contains("/")) {
+                            continue;
+                        }
+                        String path = directory + "/" + file;
+                        bytes += stream(serial, Arrays.asList("exec-out", AdbSocketClient.shellCommand(Arrays.asList("shell", "cat", path))),
+                                bundle.openEntry(artifact.getOptionName() + "/" + file, true), deadlineNanos);
+                        entries++;
+                    }
+                    break;
+                case DROPBOX:
+                    bytes = stream(serial, Arrays.asList("shell", "dumpsys", "dropbox", "--print"), bundle.openEntry("dropbox.txt", true), deadlineNanos);
+                    entries = 1;
+                    break;
+                default:
+                    bytes = stream(serial, Arrays.asList("logcat", "-d", "-v", "threadtime"), bundle.openEntry("logcat.txt", true), deadlineNanos);
+                    entries = 1;
+                    break;
+            }
+        } catch (IOException e) {
+            error = e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted";
+        }
+        ArtifactResult result = new ArtifactResult(artifact, entries, bytes, System.nanoTime() - startNanos, error);
+        if (error != null) {
+            failedArtifacts.incrementAndGet();
+        }
+        System.out.println("INFO: " + (serial != null ? serial : "default") + ": " + result);
+        return result;
+    }
+
+    /**
+     * Streams one command's output into a ZIP entry, closing the entry even if the command fails.
+     */
+    private long stream(String serial, List<String> commandArgs, ZipEntryStream entry, long deadlineNanos) throws IOException, InterruptedException {
+        try {
+            return adbHelper.executeAdbCommandToStream(serial, commandArgs, TransferMode.TEXT, entry, null, remainingMillis(deadlineNanos));
+        } finally {
+            entry.finish();
+        }
+    }
+
+    /**
+     * @throws IOException If the deadline has already passed.
+     */
+    private static long remainingMillis(long deadlineNanos) throws IOException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remaining <= 0) {
+            throw new IOException("Timed out before all files were pulled");
+        }
+        return remaining;
+    }
+
+    private static String artifactNames() {
+        return artifactNames(Arrays.asList(Artifact.values()));
+    }
+
+    private static String artifactNames(List<Artifact> artifacts) {
+        List<String> names = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            names.add(artifact.getOptionName());
+        }
+        return String.join(",", names);
+    }
+
+    /**
+     * The ZIP file of one device, written through a file channel. Entries are written one at a time;
+     * {@link #lock} is held from an entry's first byte until it is finished.
+     */
+    private static class DeviceBundle {
+        private final String serial;
+        private final File zipFile;
+        private final ZipOutputStream zip;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<ArtifactResult> results = new ArrayList<>(); // Guarded by this
+        private IOException writeError; // Guarded by lock
+
+        DeviceBundle(String serial, File zipFile) throws IOException {
+            this.serial = serial;
+            this.zipFile = zipFile;
+            FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.zip = new ZipOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        }
+
+        ZipEntryStream openEntry(String name, boolean compress) {
+            return new ZipEntryStream(this, name, compress);
+        }
+
+        synchronized void add(ArtifactResult result) {
+            results.add(result);
+        }
+
+        /**
+         * Adds the report entry and closes the file.
+         *
+         * @return The ZIP file, or null if it could not be written.
+         */
+        File finish(String timestamp) {
+            StringBuilder report = new StringBuilder();
+            report.append("Diagnostic bundle for ").append(serial != null ? serial : "the default device").append(", started ").append(timestamp).append('\n');
+            synchronized (this) {
+                for (ArtifactResult result : results) {
+                    report.append(result).append('\n');
+                }
+            }
+            lock.lock();
+            try {
+                if (writeError == null) {
+                    zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+                    zip.putNextEntry(new ZipEntry(REPORT_ENTRY));
+                    zip.write(report.toString().getBytes(StandardCharsets.UTF_8));
+                    zip.closeEntry();
+                }
+                zip.close();
+            } catch (IOException e) {
+                writeError = e;
+            } finally {
+                lock.unlock();
+            }
+            if (writeError != null) {
+                System.err.println("ERROR: Failed to write bundle " + zipFile.getAbsolutePath() + ": " + writeError.getMessage());
+                return null;
+            }
+            System.out.println("INFO: Bundle saved to: " + zipFile.getAbsolutePath());
+            return zipFile;
+        }
+    }
+
+    /**
+     * One ZIP entry, started on the first write so the bundle is not claimed while the device is still preparing
+     * its output. {@link #finish()} must be called on the thread that wrote to it.
+     */
+    private static class ZipEntryStream extends OutputStream {
+        private static final int HEAD_LENGTH = 200;
+
+        private final DeviceBundle bundle;
+        private final String name;
+        private final boolean compress;
+        private final byte[] head = new byte[HEAD_LENGTH];
+        private int headLength;
+        private boolean started;
+
+        private ZipEntryStream(DeviceBundle bundle, String name, boolean compress) {
+            this.bundle = bundle;
+            this.name = name;
+            this.compress = compress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            start();
+            int n = Math.min(len, head.length - headLength);
+            System.arraycopy(b, off, head, headLength, n);
+            headLength += n;
+            try {
+                bundle.zip.write(b, off, len);
+            } catch (IOException e) {
+                bundle.writeError = e;
+                throw e;
+            }
+        }
+
+        /**
+         * Closes the entry, creating it empty if nothing was written, and releases the bundle.
+         */
+        void finish() throws IOException {
+            start();
+            try {
+                bundle.zip.closeEntry();
+            } catch (IOException e) {
+                bundle.writeError = e;
+                throw e;
+            } finally {
+                bundle.lock.unlock();
+            }
+        }
+
+        boolean startsWith(String prefix) {
+            byte[] expected = prefix.getBytes(StandardCharsets.US_ASCII);
+            if (headLength < expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (head[i] != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        byte[] head() {
+            return Arrays.copyOf(head, headLength);
+        }
+
+        private void start() throws IOException {
+            if (started) {
+                return;
+            }
+            bundle.lock.lock();
+            started = true;
+            if (bundle.writeError != null) {
+                IOException e = new IOException("Bundle is not writable: " + bundle.writeError.getMessage(), bundle.writeError);
+                bundle.lock.unlock();
+                started = false;
+                throw e;
+            }
+            try {
+                // Already compressed artifacts (the bugreport zip) are stored as they are
+                bundle.zip.setLevel(compress ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+                bundle.zip.putNextEntry(new ZipEntry(name));
+            } catch (IOException e) {
+                bundle.writeError = e;
+                bundle.lock.unlock();
+                started = false;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends a log to a FileChannel so that a crash of the JVM or the host loses at most the last few
+ * moments of it, without an fsync per line.
+ *
+ * Bytes are staged in a direct buffer and written in whole {@link #BLOCK_SIZE} blocks at block-aligned
+ * file offsets. A commit writes what is staged, forces it to disk and then reports the committed length to
+ * a {@link CommitListener}, which records it with the capture's progress (see {@link LogcatCheckpoint}).
+ * Commits are grouped: one happens at most every sync interval, when the interval has passed by the time
+ * more bytes arrive or the writer is flushed, and always on close. Since the progress is only recorded
+ * after the data is on disk, it never points past what survived; {@link #recover(File, long)} cuts a file
+ * back to its last committed length before a capture resumes.
+ *
+ * Callers must write whole lines between commits for the committed length to fall on a line boundary.
+ * Not thread-safe.
+ */
+public class DurableLogWriter extends OutputStream {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1000;
+
+    private static final int BUFFER_SIZE = 4 * BLOCK_SIZE;
+    private static final int RECOVERY_READ_SIZE = 8 * 1024;
+
+    /**
+     * Told the length of the file each time everything up to that length is on disk.
+     */
+    public interface CommitListener {
+        void committed(File file, long length) throws IOException;
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final long syncIntervalNanos;
+    private final CommitListener listener;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private long writtenLength; // Handed to the channel
+    private long committedLength; // Forced to disk and reported
+    private long lastCommitNanos = System.nanoTime();
+    private int commits;
+    private boolean closed;
+
+    /**
+     * @param file The file to write; created if missing.
+     * @param append true to continue after the existing content, false to start from an empty file.
+     * @param syncIntervalMillis The most time between commits while bytes keep arriving; 0 commits only on close.
+     * @param listener Notified after each commit (can be null).
+     */
+    public DurableLogWriter(File file, boolean append, long syncIntervalMillis, CommitListener listener) throws IOException {
+        this.file = file;
+        this.channel = append
+                ? FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+                : FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.listener = listener;
+        writtenLength = channel.size();
+        committedLength = writtenLength;
+        channel.position(writtenLength);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /**
+     * Stages the bytes, writing full blocks out as the buffer fills, then commits if the sync interval has passed.
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                writeAlignedBlocks();
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+        }
+        if (isCommitDue()) {
+            commit();
+        }
+    }
+
+    /**
+     * Hands the staged bytes to the operating system, and commits if the sync interval has passed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (isCommitDue()) {
+            commit();
+        } else {
+            writeStaged();
+        }
+    }
+
+    /**
+     * Writes everything staged, forces it to disk and reports the new length, regardless of the interval.
+     */
+    public void commit() throws IOException {
+        writeStaged();
+        lastCommitNanos = System.nanoTime();
+        if (writtenLength == committedLength) {
+            return;
+        }
+        channel.force(false); // Data only; the length is recorded by the listener
+        committedLength = writtenLength;
+        commits++;
+        if (listener != null) {
+            listener.committed(file, committedLength);
+        }
+    }
+
+    /**
+     * Commits and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            commit();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The length of the file including staged bytes.
+     */
+    public long length() {
+        return writtenLength + buffer.position();
+    }
+
+    /**
+     * @return The length known to be on disk.
+     */
+    public long getCommittedLength() {
+        return committedLength;
+    }
+
+    /**
+     * @return How long until a flush would commit the bytes not yet on disk (0 = now), or -1 if there are none
+     *         or commits only happen on close.
+     */
+    public long getCommitDelayMillis() {
+        if (syncIntervalNanos == 0 || length() == committedLength) {
+            return -1;
+        }
+        long remainingNanos = syncIntervalNanos - (System.nanoTime() - lastCommitNanos);
+        return remainingNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) : 0; // Rounded up, so 0 means due
+    }
+
+    /**
+     * @return The number of commits that forced data to disk.
+     */
+    public int getCommits() {
+        return commits;
+    }
+
+    /**
+     * Makes a file that an interrupted capture was writing safe to append to: cuts off anything written
+     * after the last commit (it was not recorded as captured and will be fetched again), then any torn
+     * line left at the end.
+     *
+     * @param committedLength The length recorded at the last commit, or -1 if unknown.
+     * @return The number of bytes removed.
+     */
+    public static long recover(File file, long committedLength) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long originalLength = channel.size();
+            long length = committedLength >= 0 ? Math.min(committedLength, originalLength) : originalLength;
+            length = lastLineEnd(channel, length);
+            if (length < originalLength) {
+                channel.truncate(length);
+                channel.force(true);
+            }
+            return originalLength - length;
+        }
+    }
+
+    /**
+     * @return The offset just past the last newline before the given length, or 0 if there is none.
+     */
+    private static long lastLineEnd(FileChannel channel, long length) throws IOException {
+        ByteBuffer tail = ByteBuffer.allocate(RECOVERY_READ_SIZE);
+        long end = length;
+        while (end > 0) {
+            long start = Math.max(0, end - RECOVERY_READ_SIZE);
+            tail.clear();
+            tail.limit((int) (end - start));
+            while (tail.hasRemaining() && channel.read(tail, start + tail.position()) != -1) {
+                // Read the whole range
+            }
+            for (int i = tail.position() - 1; i >= 0; i--) {
+                if (tail.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private boolean isCommitDue() {
+        return syncIntervalNanos > 0 && System.nanoTime() - lastCommitNanos >= syncIntervalNanos;
+    }
+
+    /**
+     * Writes the staged bytes that end on a block boundary of the file, keeping the rest staged.
+     */
+    private void writeAlignedBlocks() throws IOException {
+        long end = writtenLength + buffer.position();
+        int count = (int) (end - end % BLOCK_SIZE - writtenLength);
+        if (count <= 0) {
+            writeStaged(); // Cannot happen while the buffer holds more than a block
+            return;
+        }
+        int staged = buffer.position();
+        buffer.flip();
+        buffer.limit(count);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.limit(staged);
+        buffer.compact();
+        writtenLength += count;
+    }
+
+    private void writeStaged() throws IOException {
+        buffer.flip();
+        writtenLength += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
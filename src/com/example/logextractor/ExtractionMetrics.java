@@ -0,0 +1,282 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Timings and counters for one extraction, split into phases:
+ * device check, spawn (starting adb or opening the server connection), time to first byte, transfer, and
+ * flush (closing the output file). Phases that did not happen (e.g. no device check) are reported as absent.
+ *
+ * The phase marks are set by the extracting thread; the byte and line counters by the stream the output passes through.
+ */
+public class ExtractionMetrics {
+
+    public static final String FILE_SUFFIX = ".metrics.json";
+
+    private static final long NOT_REACHED = -1;
+
+    private final String device;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private String transport;
+    private long deviceCheckNanos = NOT_REACHED;
+    private long spawnStartNanos = NOT_REACHED;
+    private long commandStartedNanos = NOT_REACHED;
+    private long firstByteNanos = NOT_REACHED;
+    private long transferDoneNanos = NOT_REACHED;
+    private long closedNanos = NOT_REACHED;
+    private long bytes;
+    private long wireBytes = NOT_REACHED;
+    private long lines;
+    private int retries;
+    private File logFile;
+    private boolean success;
+    private String error;
+
+    /**
+     * @param device The device serial (can be null for the default device).
+     */
+    public ExtractionMetrics(String device) {
+        this.device = device;
+    }
+
+    void setDeviceCheckNanos(long nanos) {
+        deviceCheckNanos = nanos;
+    }
+
+    void markSpawnStart() {
+        spawnStartNanos = System.nanoTime();
+    }
+
+    /**
+     * @param transport How the command reached the device: "adb-server" or "adb-process".
+     */
+    void markCommandStarted(String transport) {
+        this.transport = transport;
+        commandStartedNanos = System.nanoTime();
+    }
+
+    void markTransferDone() {
+        transferDoneNanos = System.nanoTime();
+    }
+
+    void markClosed() {
+        closedNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts received output: bytes, lines, and the arrival of the first byte.
+     */
+    void addOutput(byte[] buffer, int offset, int length) {
+        if (length > 0 && firstByteNanos == NOT_REACHED) {
+            firstByteNanos = System.nanoTime();
+        }
+        bytes += length;
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] == '\n') {
+                lines++;
+            }
+        }
+    }
+
+    /**
+     * @param wireBytes The bytes received from adb before decoding (differs from the output for compact transfer modes).
+     */
+    void setWireBytes(long wireBytes) {
+        this.wireBytes = wireBytes;
+    }
+
+    void addRetry() {
+        retries++;
+    }
+
+    void finish(File logFile, boolean success, String error) {
+        if (closedNanos == NOT_REACHED) {
+            markClosed();
+        }
+        this.logFile = logFile;
+        this.success = success;
+        this.error = error;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public long getDeviceCheckNanos() {
+        return deviceCheckNanos;
+    }
+
+    /** @return Time to start adb or open the server connection, or -1 if not reached. */
+    public long getSpawnNanos() {
+        return between(spawnStartNanos, commandStartedNanos);
+    }
+
+    /** @return Time from the command running to its first output byte, or -1 if no output arrived. */
+    public long getTimeToFirstByteNanos() {
+        return between(commandStartedNanos, firstByteNanos);
+    }
+
+    /** @return Time from the first to the last output byte, or -1 if not reached. */
+    public long getTransferNanos() {
+        return between(firstByteNanos, transferDoneNanos);
+    }
+
+    /** @return Time to flush and close the output file, or -1 if not reached. */
+    public long getFlushNanos() {
+        return between(transferDoneNanos, closedNanos);
+    }
+
+    public long getTotalNanos() {
+        return (closedNanos != NOT_REACHED ? closedNanos : System.nanoTime()) - startNanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** @return The bytes received from adb before decoding, or -1 if the transfer did not finish. */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    /** @return Lines per second over the transfer phase, or 0 if there was none. */
+    public double getLinesPerSecond() {
+        long transfer = getTransferNanos();
+        return transfer > 0 ? lines * 1e9 / transfer : 0;
+    }
+
+    /** @return Megabytes per second over the whole extraction. */
+    public double getMegabytesPerSecond() {
+        long total = getTotalNanos();
+        return total > 0 ? bytes / (1024.0 * 1024.0) / (total / 1e9) : 0;
+    }
+
+    /** @return How often a transport was given up and the command rerun another way. */
+    public int getRetries() {
+        return retries;
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /** @return The failure message, or null. */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return A one-line summary for the console.
+     */
+    public String describePhases() {
+        return "device check " + millis(deviceCheckNanos) + ", spawn " + millis(getSpawnNanos())
+                + ", first byte " + millis(getTimeToFirstByteNanos()) + ", transfer " + millis(getTransferNanos())
+                + ", flush " + millis(getFlushNanos()) + "; " + lines + " lines"
+                + (wireBytes != NOT_REACHED && wireBytes != bytes ? " from " + wireBytes + " bytes transferred" : "")
+                + String.format(Locale.ROOT, " (%.0f lines/s)", getLinesPerSecond())
+                + (retries > 0 ? ", " + retries + " retry(ies)" : "");
+    }
+
+    /**
+     * @return The metrics as a JSON object. Durations are in milliseconds; absent phases are null.
+     */
+    public String toJson() {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        StringBuilder json = new StringBuilder("{\n");
+        field(json, "device", quote(device));
+        field(json, "logFile", quote(logFile != null ? logFile.getName() : null));
+        field(json, "startTime", quote(iso.format(new Date(startMillis))));
+        field(json, "success", String.valueOf(success));
+        field(json, "error", quote(error));
+        field(json, "transport", quote(transport));
+        field(json, "deviceCheckMillis", jsonMillis(deviceCheckNanos));
+        field(json, "spawnMillis", jsonMillis(getSpawnNanos()));
+        field(json, "timeToFirstByteMillis", jsonMillis(getTimeToFirstByteNanos()));
+        field(json, "transferMillis", jsonMillis(getTransferNanos()));
+        field(json, "flushMillis", jsonMillis(getFlushNanos()));
+        field(json, "totalMillis", jsonMillis(getTotalNanos()));
+        field(json, "bytes", String.valueOf(bytes));
+        field(json, "wireBytes", wireBytes != NOT_REACHED ? String.valueOf(wireBytes) : "null");
+        field(json, "lines", String.valueOf(lines));
+        field(json, "linesPerSecond", String.format(Locale.ROOT, "%.1f", getLinesPerSecond()));
+        field(json, "megabytesPerSecond", String.format(Locale.ROOT, "%.3f", getMegabytesPerSecond()));
+        json.append("  \"retries\": ").append(retries).append("\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Writes {@link #toJson()} atomically to the given file.
+     */
+    public void writeJson(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), toJson().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The summary file for a log file, e.g. "ivi_logcat_x_20240101_120000.txt.metrics.json".
+     */
+    public static File metricsFileFor(File logFile) {
+        return new File(logFile.getPath() + FILE_SUFFIX);
+    }
+
+    private static long between(long from, long to) {
+        return from != NOT_REACHED && to != NOT_REACHED ? to - from : NOT_REACHED;
+    }
+
+    private static String millis(long nanos) {
+        return nanos == NOT_REACHED ? "-" : String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+
+    private static String jsonMillis(long nanos) {
+        return nanos == NOT_REACHED ? "null" : String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        json.append("  \"").append(name).append("\": ").append(value).append(",\n");
+    }
+
+    /**
+     * @return The value as a JSON string literal, or "null".
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
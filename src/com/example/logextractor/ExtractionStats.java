@@ -0,0 +1,103 @@
+package com.example.logextractor;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Aggregates {@link ExtractionMetrics} over the lifetime of an {@link AdbHelper}, and can publish them over JMX
+ * so long-running collections can be watched with jconsole or a monitoring agent.
+ */
+public class ExtractionStats implements ExtractionStatsMXBean {
+
+    public static final String OBJECT_NAME = "com.example.logextractor:type=ExtractionStats";
+
+    private long extractionCount;
+    private long failureCount;
+    private long totalBytes;
+    private long totalLines;
+    private long retryCount;
+    private ExtractionMetrics last;
+
+    /**
+     * Adds a finished extraction.
+     */
+    public synchronized void record(ExtractionMetrics metrics) {
+        extractionCount++;
+        if (!metrics.isSuccess()) {
+            failureCount++;
+        }
+        totalBytes += metrics.getBytes();
+        totalLines += metrics.getLines();
+        retryCount += metrics.getRetries();
+        last = metrics;
+    }
+
+    /**
+     * @return The most recently finished extraction, or null if there was none.
+     */
+    public synchronized ExtractionMetrics getLast() {
+        return last;
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server under {@link #OBJECT_NAME}.
+     *
+     * @throws JMException If the name is already registered or the bean is rejected.
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public synchronized long getExtractionCount() {
+        return extractionCount;
+    }
+
+    @Override
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    @Override
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    @Override
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    @Override
+    public synchronized String getLastDevice() {
+        return last != null ? last.getDevice() : null;
+    }
+
+    @Override
+    public synchronized double getLastTotalMillis() {
+        return last != null ? last.getTotalNanos() / 1e6 : -1;
+    }
+
+    @Override
+    public synchronized double getLastTimeToFirstByteMillis() {
+        return last != null && last.getTimeToFirstByteNanos() >= 0 ? last.getTimeToFirstByteNanos() / 1e6 : -1;
+    }
+
+    @Override
+    public synchronized double getLastTransferMillis() {
+        return last != null && last.getTransferNanos() >= 0 ? last.getTransferNanos() / 1e6 : -1;
+    }
+
+    @Override
+    public synchronized double getLastMegabytesPerSecond() {
+        return last != null ? last.getMegabytesPerSecond() : 0;
+    }
+}
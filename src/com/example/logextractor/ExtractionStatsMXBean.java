@@ -0,0 +1,27 @@
+package com.example.logextractor;
+
+/**
+ * Extraction totals and the latest extraction's timings, as exposed over JMX by {@link ExtractionStats}.
+ */
+public interface ExtractionStatsMXBean {
+
+    long getExtractionCount();
+
+    long getFailureCount();
+
+    long getTotalBytes();
+
+    long getTotalLines();
+
+    long getRetryCount();
+
+    String getLastDevice();
+
+    double getLastTotalMillis();
+
+    double getLastTimeToFirstByteMillis();
+
+    double getLastTransferMillis();
+
+    double getLastMegabytesPerSecond();
+}
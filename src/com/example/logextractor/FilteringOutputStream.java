@@ -0,0 +1,42 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes on only the log lines accepted by a {@link LogFilter}. Sits between the ADB read loop and the
+ * file writer, so rejected lines never reach the disk.
+ */
+public class FilteringOutputStream extends LineSplittingOutputStream {
+
+    private final LogFilter.LineMatcher matcher;
+    private long linesKept;
+    private long linesDropped;
+
+    /**
+     * @param filter The filter to apply.
+     * @param out The stream receiving the accepted lines. It is closed when this stream is closed.
+     */
+    public FilteringOutputStream(LogFilter filter, OutputStream out) {
+        super(out);
+        this.matcher = filter.newLineMatcher();
+    }
+
+    public long getLinesKept() {
+        return linesKept;
+    }
+
+    public long getLinesDropped() {
+        return linesDropped;
+    }
+
+    @Override
+    protected void onLine(byte[] bytes, int offset, int length) throws IOException {
+        if (matcher.accepts(bytes, offset, length)) {
+            out.write(bytes, offset, length);
+            linesKept++;
+        } else {
+            linesDropped++;
+        }
+    }
+}
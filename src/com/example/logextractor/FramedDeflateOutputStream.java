@@ -0,0 +1,143 @@
+package com.example.logextractor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the block-framed compressed format (".txt.fz"). Unlike a single GZIP stream, every frame is
+ * compressed independently, so a file can be split at frame boundaries and decompressed in parallel
+ * (see {@link FramedDeflateReader}).
+ *
+ * Layout: the magic bytes "IVFZ" and a version byte, followed by frames of
+ * [int uncompressedLength][int compressedLength][int crc32][compressedLength bytes of raw deflate data],
+ * and a final frame with both lengths set to 0 that marks a complete file. Integers are big-endian.
+ * Frames are cut at the last line break inside a block where possible, so each frame holds whole lines.
+ */
+public class FramedDeflateOutputStream extends OutputStream {
+
+    static final byte[] MAGIC = {'I', 'V', 'F', 'Z'};
+    static final int VERSION = 1;
+    static final int FRAME_HEADER_SIZE = 12;
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024; // Readers refuse larger frames, so a corrupt header cannot exhaust memory
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] block;
+    private byte[] compressed;
+    private int blockLength;
+    private boolean closed;
+
+    public FramedDeflateOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param out The stream receiving the framed data. It is closed when this stream is closed.
+     * @param blockSize The maximum number of uncompressed bytes per frame, at most {@link #MAX_BLOCK_SIZE}.
+     */
+    public FramedDeflateOutputStream(OutputStream out, int blockSize) throws IOException {
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ", got " + blockSize);
+        }
+        this.out = new DataOutputStream(out);
+        this.block = new byte[blockSize];
+        this.compressed = new byte[maxCompressedLength(blockSize)];
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    /**
+     * @return The largest compressed frame a block of the given size can produce.
+     */
+    static int maxCompressedLength(int blockSize) {
+        return blockSize + blockSize / 8 + 64;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (length > 0) {
+            int n = Math.min(length, block.length - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, n);
+            blockLength += n;
+            offset += n;
+            length -= n;
+            if (blockLength == block.length) {
+                writeFrameAtLineBoundary();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                writeFrame(blockLength);
+            }
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeFrameAtLineBoundary() throws IOException {
+        int cut = blockLength;
+        for (int i = blockLength - 1; i >= 0; i--) {
+            if (block[i] == '\n') {
+                cut = i + 1;
+                break;
+            }
+        }
+        writeFrame(cut);
+        // Carry the incomplete line over into the next frame
+        System.arraycopy(block, cut, block, 0, blockLength - cut);
+        blockLength -= cut;
+    }
+
+    private void writeFrame(int length) throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                byte[] grown = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, grown, 0, compressedLength);
+                compressed = grown;
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        crc.reset();
+        crc.update(block, 0, length);
+
+        out.writeInt(length);
+        out.writeInt(compressedLength);
+        out.writeInt((int) crc.getValue());
+        out.write(compressed, 0, compressedLength);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.logextractor;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads files written by {@link FramedDeflateOutputStream}. The frame table is built by hopping from
+ * header to header without decompressing anything; frames are then inflated on a thread pool and
+ * written out in their original order.
+ */
+public class FramedDeflateReader {
+
+    private static final int FRAME_HEADER_SIZE = FramedDeflateOutputStream.FRAME_HEADER_SIZE;
+    private static final int MAX_COMPRESSED_LENGTH = FramedDeflateOutputStream.maxCompressedLength(FramedDeflateOutputStream.MAX_BLOCK_SIZE);
+
+    /**
+     * Location of one frame in the file.
+     */
+    static class Frame {
+        final long dataOffset;
+        final int uncompressedLength;
+        final int compressedLength;
+        final int crc32;
+
+        Frame(long dataOffset, int uncompressedLength, int compressedLength, int crc32) {
+            this.dataOffset = dataOffset;
+            this.uncompressedLength = uncompressedLength;
+            this.compressedLength = compressedLength;
+            this.crc32 = crc32;
+        }
+    }
+
+    private final File file;
+
+    public FramedDeflateReader(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Scans the frame headers.
+     *
+     * @throws IOException If the file is not in the framed format, is truncated, or has a corrupt frame header.
+     */
+    List<Frame> readFrameTable() throws IOException {
+        List<Frame> frames = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+            ByteBuffer magic = ByteBuffer.allocate(FramedDeflateOutputStream.MAGIC.length + 1);
+            readFully(channel, magic, 0);
+            for (int i = 0; i < FramedDeflateOutputStream.MAGIC.length; i++) {
+                if (magic.get(i) != FramedDeflateOutputStream.MAGIC[i]) {
+                    throw new IOException("Not a framed log file: " + file.getAbsolutePath());
+                }
+            }
+            if (magic.get(FramedDeflateOutputStream.MAGIC.length) != FramedDeflateOutputStream.VERSION) {
+                throw new IOException("Unsupported framed log version " + magic.get(FramedDeflateOutputStream.MAGIC.length) + ": " + file.getAbsolutePath());
+            }
+
+            long position = magic.capacity();
+            while (true) {
+                header.clear();
+                readFully(channel, header, position);
+                int uncompressedLength = header.getInt(0);
+                int compressedLength = header.getInt(4);
+                int crc32 = header.getInt(8);
+                if (uncompressedLength == 0 && compressedLength == 0) {
+                    return frames; // End marker
+                }
+                // Lengths are checked before anything is allocated from them or the scan moves on by them
+                if (compressedLength <= 0 || compressedLength > MAX_COMPRESSED_LENGTH
+                        || uncompressedLength <= 0 || uncompressedLength > FramedDeflateOutputStream.MAX_BLOCK_SIZE) {
+                    throw new IOException("Corrupt frame header at offset " + position + " (uncompressed length " + uncompressedLength
+                            + ", compressed length " + compressedLength + "): " + file.getAbsolutePath());
+                }
+                position += FRAME_HEADER_SIZE;
+                if (position + compressedLength > channel.size()) {
+                    throw new EOFException("Framed log file is truncated: " + file.getAbsolutePath());
+                }
+                frames.add(new Frame(position, uncompressedLength, compressedLength, crc32));
+                position += compressedLength;
+            }
+        }
+    }
+
+    /**
+     * Decompresses the whole file into the given stream, inflating up to {@code threads} frames at once.
+     *
+     * @return The number of uncompressed bytes written.
+     * @throws IOException If the file is malformed, a frame fails its checksum, or writing fails.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public long decompress(OutputStream out, int threads) throws IOException, InterruptedException {
+        List<Frame> frames = readFrameTable();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Keep a bounded window of frames in flight so memory does not grow with the file size
+            Deque<Future<byte[]>> window = new ArrayDeque<>();
+            int next = 0;
+            int maxInFlight = Math.max(1, threads) * 2;
+            while (next < frames.size() || !window.isEmpty()) {
+                while (next < frames.size() && window.size() < maxInFlight) {
+                    final Frame frame = frames.get(next++);
+                    window.addLast(pool.submit(() -> inflate(channel, frame)));
+                }
+                byte[] data = window.removeFirst().get();
+                out.write(data);
+                total += data.length;
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to decompress " + file.getAbsolutePath() + ": " + cause, cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        return total;
+    }
+
+    private byte[] inflate(FileChannel channel, Frame frame) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(frame.compressedLength);
+        readFully(channel, compressed, frame.dataOffset);
+        byte[] data = new byte[frame.uncompressedLength];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array(), 0, frame.compressedLength);
+            int length = 0;
+            while (length < data.length && !inflater.finished()) {
+                int n = inflater.inflate(data, length, data.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != data.length) {
+                throw new IOException("Corrupt frame at offset " + frame.dataOffset + " in " + file.getAbsolutePath());
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt frame at offset " + frame.dataOffset + " in " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if ((int) crc.getValue() != frame.crc32) {
+            throw new IOException("Checksum mismatch in frame at offset " + frame.dataOffset + " in " + file.getAbsolutePath());
+        }
+        return data;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("Unexpected end of framed log file");
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Base for output streams that process a log byte stream line by line. Complete lines are passed to
+ * {@link #onLine} straight from the caller's buffer where possible; a line split across writes is
+ * collected in an internal buffer first. An unterminated final line is delivered on close.
+ */
+public abstract class LineSplittingOutputStream extends OutputStream {
+
+    private static final int INITIAL_LINE_CAPACITY = 4096;
+
+    protected final OutputStream out;
+    private byte[] pending = new byte[INITIAL_LINE_CAPACITY];
+    private int pendingLength;
+
+    /**
+     * @param out The downstream stream. It is closed when this stream is closed.
+     */
+    protected LineSplittingOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Handles one line, including its terminator (except possibly for the last line of the stream).
+     */
+    protected abstract void onLine(byte[] bytes, int offset, int length) throws IOException;
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        int end = offset + length;
+        int lineStart = offset;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            if (pendingLength > 0) {
+                // Complete the line that started in an earlier write
+                appendPending(bytes, lineStart, i + 1 - lineStart);
+                onLine(pending, 0, pendingLength);
+                pendingLength = 0;
+            } else {
+                onLine(bytes, lineStart, i + 1 - lineStart);
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < end) {
+            appendPending(bytes, lineStart, end - lineStart);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (pendingLength > 0) {
+                onLine(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void appendPending(byte[] bytes, int offset, int length) {
+        if (pendingLength + length > pending.length) {
+            byte[] grown = new byte[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(bytes, offset, pending, pendingLength, length);
+        pendingLength += length;
+    }
+}
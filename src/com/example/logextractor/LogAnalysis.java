@@ -0,0 +1,277 @@
+package com.example.logextractor;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Line and byte counts of a threadtime log, per tag, pid, level and minute (see {@link LogAnalyzer}).
+ *
+ * Counting is keyed by the dense ids of a {@link TagTable} and {@link LongKeyTable}s, so adding a line
+ * allocates nothing. Each analysis thread fills its own instance; they are then combined with
+ * {@link #merge(LogAnalysis)}. Not thread-safe.
+ */
+public final class LogAnalysis {
+
+    // Levels are indexed in LogFilter.LEVELS order; anything else is counted as '?'
+    private static final int ERROR_LEVEL = LogFilter.LEVELS.indexOf('E');
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    /**
+     * One row of the report: a tag, pid, level or minute with its totals.
+     */
+    public static final class Entry {
+        private final String name;
+        private final long lines;
+        private final long bytes;
+        private final long errors;
+
+        Entry(String name, long lines, long bytes, long errors) {
+            this.name = name;
+            this.lines = lines;
+            this.bytes = bytes;
+            this.errors = errors;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The lines at level E or above (E, F, A).
+         */
+        public long getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Lines, bytes and error lines per id, in arrays grown as ids are handed out.
+     */
+    private static final class Counts {
+        long[] lines = new long[64];
+        long[] bytes = new long[64];
+        long[] errors = new long[64];
+
+        void add(int id, long lineCount, long byteCount, long errorCount) {
+            if (id >= lines.length) {
+                int capacity = Math.max(lines.length * 2, id + 1);
+                lines = Arrays.copyOf(lines, capacity);
+                bytes = Arrays.copyOf(bytes, capacity);
+                errors = Arrays.copyOf(errors, capacity);
+            }
+            lines[id] += lineCount;
+            bytes[id] += byteCount;
+            errors[id] += errorCount;
+        }
+    }
+
+    private final TagTable tags = new TagTable();
+    private final Counts tagCounts = new Counts();
+    private final LongKeyTable pids = new LongKeyTable();
+    private final Counts pidCounts = new Counts();
+    private final LongKeyTable minutes = new LongKeyTable();
+    private final Counts minuteCounts = new Counts();
+    private final long[] levelLines = new long[LogFilter.LEVELS.length() + 1];
+    private final long[] levelBytes = new long[LogFilter.LEVELS.length() + 1];
+
+    private long lines;
+    private long bytes;
+    private long unparsedLines;
+    private long firstTimestamp = Long.MAX_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Counts one parsed line.
+     */
+    void add(LogcatRecord record) {
+        int level = LogFilter.LEVELS.indexOf(record.level);
+        if (level < 0) {
+            level = LogFilter.LEVELS.length();
+        }
+        long error = level >= ERROR_LEVEL && level < LogFilter.LEVELS.length() ? 1 : 0;
+        int length = record.lineLength;
+        tagCounts.add(tags.idOf(record), 1, length, error);
+        pidCounts.add(pids.idOf(record.pid), 1, length, error);
+        minuteCounts.add(minutes.idOf(record.timestamp / MILLIS_PER_MINUTE), 1, length, error);
+        levelLines[level]++;
+        levelBytes[level] += length;
+        lines++;
+        bytes += length;
+        firstTimestamp = Math.min(firstTimestamp, record.timestamp);
+        lastTimestamp = Math.max(lastTimestamp, record.timestamp);
+    }
+
+    /**
+     * Counts a line that is not in threadtime format (e.g. "--------- beginning of main").
+     */
+    void addUnparsed(int length) {
+        lines++;
+        bytes += length;
+        unparsedLines++;
+    }
+
+    /**
+     * Adds the counts of another analysis (of a different part of the log) to this one.
+     */
+    void merge(LogAnalysis other) {
+        for (int id = 0; id < other.tags.size(); id++) {
+            byte[] tag = other.tags.bytes(id);
+            tagCounts.add(tags.idOf(tag, 0, tag.length), other.tagCounts.lines[id], other.tagCounts.bytes[id], other.tagCounts.errors[id]);
+        }
+        mergeKeys(pids, pidCounts, other.pids, other.pidCounts);
+        mergeKeys(minutes, minuteCounts, other.minutes, other.minuteCounts);
+        for (int level = 0; level < levelLines.length; level++) {
+            levelLines[level] += other.levelLines[level];
+            levelBytes[level] += other.levelBytes[level];
+        }
+        lines += other.lines;
+        bytes += other.bytes;
+        unparsedLines += other.unparsedLines;
+        firstTimestamp = Math.min(firstTimestamp, other.firstTimestamp);
+        lastTimestamp = Math.max(lastTimestamp, other.lastTimestamp);
+    }
+
+    private static void mergeKeys(LongKeyTable keys, Counts counts, LongKeyTable otherKeys, Counts otherCounts) {
+        for (int id = 0; id < otherKeys.size(); id++) {
+            counts.add(keys.idOf(otherKeys.key(id)), otherCounts.lines[id], otherCounts.bytes[id], otherCounts.errors[id]);
+        }
+    }
+
+    /**
+     * @return All lines, including those not in threadtime format.
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getUnparsedLines() {
+        return unparsedLines;
+    }
+
+    public int getTagCount() {
+        return tags.size();
+    }
+
+    public int getPidCount() {
+        return pids.size();
+    }
+
+    /**
+     * @return The number of distinct minutes with at least one line.
+     */
+    public int getMinuteCount() {
+        return minutes.size();
+    }
+
+    /**
+     * @return The tags producing the most bytes, largest first.
+     */
+    public List<Entry> topTags(int limit) {
+        List<Entry> entries = new ArrayList<>(tags.size());
+        for (int id = 0; id < tags.size(); id++) {
+            entries.add(new Entry(tags.name(id), tagCounts.lines[id], tagCounts.bytes[id], tagCounts.errors[id]));
+        }
+        return top(entries, limit);
+    }
+
+    /**
+     * @return The processes producing the most bytes, largest first.
+     */
+    public List<Entry> topPids(int limit) {
+        List<Entry> entries = new ArrayList<>(pids.size());
+        for (int id = 0; id < pids.size(); id++) {
+            entries.add(new Entry(Long.toString(pids.key(id)), pidCounts.lines[id], pidCounts.bytes[id], pidCounts.errors[id]));
+        }
+        return top(entries, limit);
+    }
+
+    /**
+     * @return The minutes with the most bytes ("MM-DD HH:MM"), largest first.
+     */
+    public List<Entry> busiestMinutes(int limit) {
+        List<Entry> entries = new ArrayList<>(minutes.size());
+        for (int id = 0; id < minutes.size(); id++) {
+            entries.add(new Entry(formatMinute(minutes.key(id)), minuteCounts.lines[id], minuteCounts.bytes[id], minuteCounts.errors[id]));
+        }
+        return top(entries, limit);
+    }
+
+    /**
+     * @return One entry per level that occurs, from V to A, then '?' for unknown letters.
+     */
+    public List<Entry> levels() {
+        List<Entry> entries = new ArrayList<>();
+        for (int level = 0; level < levelLines.length; level++) {
+            if (levelLines[level] > 0) {
+                boolean error = level >= ERROR_LEVEL && level < LogFilter.LEVELS.length();
+                String name = level < LogFilter.LEVELS.length() ? String.valueOf(LogFilter.LEVELS.charAt(level)) : "?";
+                entries.add(new Entry(name, levelLines[level], levelBytes[level], error ? levelLines[level] : 0));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Prints the report: totals, the level mix, and the top tags, pids and minutes by bytes.
+     *
+     * @param limit Rows per top list.
+     */
+    public void writeReport(PrintStream out, int limit) {
+        out.println(String.format(Locale.ROOT, "Lines: %d (%d not in threadtime format), bytes: %d, tags: %d, pids: %d",
+                lines, unparsedLines, bytes, tags.size(), pids.size()));
+        if (minutes.size() > 0) {
+            // Counted, not subtracted: timestamp keys have no year and gaps between months, so their difference
+            // is not a duration
+            long activeMinutes = minutes.size();
+            Entry peak = busiestMinutes(1).get(0);
+            out.println(String.format(Locale.ROOT, "Time span: %s to %s (%d min with lines), average %.0f lines/min, busiest minute %s (%d lines)",
+                    LogcatLineParser.formatTimestampKey(firstTimestamp), LogcatLineParser.formatTimestampKey(lastTimestamp), activeMinutes,
+                    (double) (lines - unparsedLines) / activeMinutes, peak.getName(), peak.getLines()));
+        }
+
+        out.println("\nLevels:");
+        for (Entry entry : levels()) {
+            out.println(String.format(Locale.ROOT, "  %-3s %12d lines %14d bytes %6.2f%%", entry.getName(), entry.getLines(), entry.getBytes(), percent(entry.getBytes(), bytes)));
+        }
+        writeTop(out, "Top " + limit + " tags by bytes:", topTags(limit));
+        writeTop(out, "Top " + limit + " pids by bytes:", topPids(limit));
+        writeTop(out, "Busiest " + limit + " minutes by bytes:", busiestMinutes(limit));
+    }
+
+    private void writeTop(PrintStream out, String title, List<Entry> entries) {
+        out.println("\n" + title);
+        for (Entry entry : entries) {
+            out.println(String.format(Locale.ROOT, "  %-24s %12d lines %14d bytes %6.2f%%  errors %10d (%5.1f%%)", entry.getName(), entry.getLines(),
+                    entry.getBytes(), percent(entry.getBytes(), bytes), entry.getErrors(), percent(entry.getErrors(), entry.getLines())));
+        }
+    }
+
+    private static List<Entry> top(List<Entry> entries, int limit) {
+        Collections.sort(entries, (a, b) -> Long.compare(b.getBytes(), a.getBytes()));
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+
+    private static double percent(long part, long whole) {
+        return whole > 0 ? 100.0 * part / whole : 0;
+    }
+
+    private static String formatMinute(long minute) {
+        return LogcatLineParser.formatTimestampKey(minute * MILLIS_PER_MINUTE).substring(0, 11); // "MM-DD HH:MM"
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes a {@link LogAnalysis} of an extracted threadtime log using every core.
+ *
+ * The file is cut into line-aligned chunks of about {@link #DEFAULT_CHUNK_SIZE} bytes (finding a boundary
+ * only reads up to the next newline). A fork/join task tree then maps and parses the chunks in parallel,
+ * each leaf counting into its own {@link LogAnalysis}, and merges the partial results pairwise on the way
+ * back up. Merging is cheap (proportional to the distinct tags, pids and minutes, not to the lines), so
+ * the analysis scales with the cores until the disk becomes the limit.
+ */
+public final class LogAnalyzer {
+
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BOUNDARY_READ_SIZE = 64 * 1024;
+
+    private LogAnalyzer() {
+    }
+
+    /**
+     * Analyzes a threadtime log file.
+     *
+     * @param parallelism The number of threads to use.
+     * @throws IOException If the log file cannot be read.
+     */
+    public static LogAnalysis analyze(File logFile, int parallelism) throws IOException {
+        return analyze(logFile, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    static LogAnalysis analyze(File logFile, int parallelism, int chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            List<long[]> chunks = chunkBoundaries(channel, chunkSize);
+            if (chunks.isEmpty()) {
+                return new LogAnalysis();
+            }
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+            try {
+                return pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Splits the file into chunks of whole lines: each chunk but the last ends just after a newline.
+     *
+     * @return {offset, length} per chunk, in file order.
+     */
+    static List<long[]> chunkBoundaries(FileChannel channel, int chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_READ_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size) {
+                end = nextLineStart(channel, end - 1, probe, size);
+            }
+            chunks.add(new long[]{start, end - start});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The offset just after the first newline at or after the position, or the file size if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe, long size) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Analyzes the chunks [from, to): a single chunk directly, more by splitting the range in two.
+     */
+    private static final class ChunkTask extends RecursiveTask<LogAnalysis> {
+        private static final long serialVersionUID = 1L;
+        private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>(); // One chunk buffer per pool thread
+
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LogAnalysis compute() {
+            if (to - from == 1) {
+                try {
+                    return analyzeChunk(chunks.get(from)[0], (int) chunks.get(from)[1]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, chunks, from, middle);
+            left.fork();
+            LogAnalysis result = new ChunkTask(channel, chunks, middle, to).compute();
+            LogAnalysis leftResult = left.join();
+            leftResult.merge(result);
+            return leftResult;
+        }
+
+        private LogAnalysis analyzeChunk(long offset, int length) throws IOException {
+            byte[] buffer = BUFFERS.get();
+            if (buffer == null || buffer.length < length) {
+                buffer = new byte[length];
+                BUFFERS.set(buffer);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            mapped.get(buffer, 0, length);
+
+            LogAnalysis analysis = new LogAnalysis();
+            LogcatRecord record = new LogcatRecord();
+            int lineStart = 0;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n' || i == length - 1) {
+                    int lineEnd = i + 1;
+                    if (LogcatLineParser.parse(buffer, lineStart, lineEnd, record)) {
+                        analysis.add(record);
+                    } else {
+                        analysis.addUnparsed(lineEnd - lineStart);
+                    }
+                    lineStart = lineEnd;
+                }
+            }
+            return analysis;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Selects which log lines are kept: logcat-style tag:level specs, pids, a literal message substring and
+ * a message regex. All given criteria must match.
+ *
+ * Tag specs are also handed to logcat on the device ({@link #deviceArgs()}), so unwanted lines are not
+ * even transferred; pid and message criteria are checked on the host. Instances are immutable and can
+ * be shared between threads; per-thread matching state lives in a {@link LineMatcher}.
+ */
+public class LogFilter {
+
+    static final String LEVELS = "VDIWEFA"; // Increasing priority; 'S' (silent) is above all
+    private static final int SILENT = LEVELS.length();
+
+    private final Map<String, Integer> tagLevels; // Tag -> minimum level index
+    private final int defaultLevel; // For tags without a spec
+    private final int[] pids;
+    private final byte[] literal;
+    private final Pattern regex;
+
+    private LogFilter(Map<String, Integer> tagLevels, int defaultLevel, int[] pids, byte[] literal, Pattern regex) {
+        this.tagLevels = tagLevels;
+        this.defaultLevel = defaultLevel;
+        this.pids = pids;
+        this.literal = literal;
+        this.regex = regex;
+    }
+
+    /**
+     * Builds a filter from command-line style values. Every argument may be null.
+     *
+     * @param specs Tag specs like "AudioHAL:W CarService:W *:E", separated by spaces or commas. A tag without a level means V.
+     * @param pidList Process ids, separated by commas.
+     * @param literal A substring the message must contain.
+     * @param regex A regular expression the message must contain a match for.
+     * @throws IllegalArgumentException If a spec, pid or regex is malformed.
+     */
+    public static LogFilter parse(String specs, String pidList, String literal, String regex) {
+        Map<String, Integer> tagLevels = new LinkedHashMap<>();
+        int defaultLevel = 0;
+        boolean defaultGiven = false;
+        if (specs != null) {
+            for (String spec : specs.split("[\\s,]+")) {
+                if (spec.isEmpty()) {
+                    continue;
+                }
+                int colon = spec.lastIndexOf(':');
+                String tag = colon < 0 ? spec : spec.substring(0, colon);
+                int level = colon < 0 ? 0 : levelIndex(spec.substring(colon + 1), spec);
+                if (tag.isEmpty()) {
+                    throw new IllegalArgumentException("Missing tag in filter spec: " + spec);
+                }
+                if ("*".equals(tag)) {
+                    defaultLevel = level;
+                    defaultGiven = true;
+                } else {
+                    tagLevels.put(tag, level);
+                }
+            }
+        }
+        if (!tagLevels.isEmpty() && !defaultGiven) {
+            defaultLevel = SILENT; // Like logcat: naming tags means "only these tags"
+        }
+
+        int[] pids = new int[0];
+        if (pidList != null && !pidList.trim().isEmpty()) {
+            String[] parts = pidList.trim().split("\\s*,\\s*");
+            pids = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                try {
+                    pids[i] = Integer.parseInt(parts[i]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not a process id: " + parts[i]);
+                }
+            }
+        }
+
+        byte[] literalBytes = literal != null && !literal.isEmpty() ? literal.getBytes(StandardCharsets.UTF_8) : null;
+        Pattern pattern = regex != null && !regex.isEmpty() ? Pattern.compile(regex) : null;
+        return new LogFilter(Collections.unmodifiableMap(tagLevels), defaultLevel, pids, literalBytes, pattern);
+    }
+
+    /**
+     * @return The logcat filterspecs that apply the tag:level part of this filter on the device
+     *         (empty if there is no tag or level criterion).
+     */
+    public List<String> deviceArgs() {
+        List<String> args = new ArrayList<>();
+        if (tagLevels.isEmpty() && defaultLevel == 0) {
+            return args;
+        }
+        for (Map.Entry<String, Integer> entry : tagLevels.entrySet()) {
+            args.add(entry.getKey() + ":" + levelName(entry.getValue()));
+        }
+        args.add("*:" + levelName(defaultLevel));
+        return args;
+    }
+
+    /**
+     * @return A matcher for use by a single thread.
+     */
+    public LineMatcher newLineMatcher() {
+        return new LineMatcher();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        if (!deviceArgs().isEmpty()) {
+            description.append("tags ").append(String.join(" ", deviceArgs()));
+        }
+        if (pids.length > 0) {
+            StringBuilder pidText = new StringBuilder();
+            for (int pid : pids) {
+                pidText.append(pidText.length() > 0 ? "," : "").append(pid);
+            }
+            description.append(description.length() > 0 ? ", " : "").append("pids ").append(pidText);
+        }
+        if (literal != null) {
+            description.append(description.length() > 0 ? ", " : "").append("message contains '")
+                    .append(new String(literal, StandardCharsets.UTF_8)).append("'");
+        }
+        if (regex != null) {
+            description.append(description.length() > 0 ? ", " : "").append("message matches /").append(regex.pattern()).append("/");
+        }
+        return description.length() > 0 ? description.toString() : "none";
+    }
+
+    /**
+     * Per-thread matching state: a reusable parsed record and regex matcher, so checking a line allocates nothing.
+     */
+    public class LineMatcher {
+        private final LogcatRecord record = new LogcatRecord();
+        private final ByteCharSequence message = new ByteCharSequence();
+        private final Matcher regexMatcher = regex != null ? regex.matcher("") : null;
+
+        /**
+         * @return true if the line passes the filter. Lines that are not in threadtime format never pass.
+         */
+        public boolean accepts(byte[] bytes, int offset, int length) {
+            if (!LogcatLineParser.parse(bytes, offset, offset + length, record)) {
+                return false;
+            }
+            return accepts(record);
+        }
+
+        /**
+         * @return true if an already parsed line passes the filter.
+         */
+        public boolean accepts(LogcatRecord parsed) {
+            int level = LEVELS.indexOf(parsed.level);
+            if (level < minimumLevel(parsed)) {
+                return false;
+            }
+            if (pids.length > 0 && !containsPid(parsed.pid)) {
+                return false;
+            }
+            if (literal != null && !parsed.messageContains(literal)) {
+                return false;
+            }
+            if (regexMatcher != null) {
+                message.reset(parsed.buffer, parsed.messageOffset, parsed.messageLength);
+                return regexMatcher.reset(message).find();
+            }
+            return true;
+        }
+
+        private int minimumLevel(LogcatRecord parsed) {
+            if (tagLevels.isEmpty()) {
+                return defaultLevel;
+            }
+            // Tags are few; comparing bytes avoids building a String for the map lookup
+            for (Map.Entry<String, Integer> entry : tagLevels.entrySet()) {
+                if (tagMatches(parsed, entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+            return defaultLevel;
+        }
+    }
+
+    private boolean containsPid(int pid) {
+        for (int candidate : pids) {
+            if (candidate == pid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean tagMatches(LogcatRecord record, String tag) {
+        if (tag.length() != record.tagLength) {
+            return false; // Tags are ASCII in practice; a non-ASCII tag simply never matches this fast path
+        }
+        for (int i = 0; i < record.tagLength; i++) {
+            if (record.buffer[record.tagOffset + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int levelIndex(String level, String spec) {
+        if (level.length() == 1) {
+            char c = Character.toUpperCase(level.charAt(0));
+            if (c == 'S') {
+                return SILENT;
+            }
+            int index = LEVELS.indexOf(c);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Invalid level in filter spec '" + spec + "'; use one of V, D, I, W, E, F, S.");
+    }
+
+    private static String levelName(int level) {
+        return level == SILENT ? "S" : String.valueOf(LEVELS.charAt(level));
+    }
+
+    /**
+     * A reusable CharSequence view of a byte range, one char per byte (ISO-8859-1), for regex matching without decoding.
+     */
+    private static final class ByteCharSequence implements CharSequence {
+        private byte[] bytes;
+        private int offset;
+        private int length;
+
+        void reset(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, offset + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.logextractor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sidecar index for an extracted threadtime log file (stored as "&lt;log&gt;.idx").
+ *
+ * The log is cut into line-aligned blocks of roughly {@link #DEFAULT_BLOCK_SIZE} bytes. For every block
+ * the index keeps its file offset, length and the earliest and latest timestamp in it, plus postings
+ * from each tag to the blocks containing it. A query then only needs to read the blocks that can match
+ * (see {@link LogIndexQuery}).
+ *
+ * Timestamps are stored as sortable keys, see {@link LogcatLineParser#timestampKey(byte[], int, int)}.
+ */
+public class LogIndex {
+
+    static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    static final String INDEX_EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x49564958; // "IVIX"
+    private static final int VERSION = 1;
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * One line-aligned block of the log file.
+     */
+    static class Block {
+        final long offset;
+        final int length;
+        final long minTimestamp;
+        final long maxTimestamp;
+
+        Block(long offset, int length, long minTimestamp, long maxTimestamp) {
+            this.offset = offset;
+            this.length = length;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+        }
+
+        boolean overlaps(long from, long to) {
+            return minTimestamp <= to && maxTimestamp >= from;
+        }
+    }
+
+    private final long logLength;
+    private final List<Block> blocks;
+    private final Map<String, int[]> postings;
+
+    LogIndex(long logLength, List<Block> blocks, Map<String, int[]> postings) {
+        this.logLength = logLength;
+        this.blocks = blocks;
+        this.postings = postings;
+    }
+
+    /**
+     * @return The size of the log file when it was indexed; used to detect a stale index.
+     */
+    public long getLogLength() {
+        return logLength;
+    }
+
+    List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return The ids of the blocks containing the tag, in ascending order (empty if the tag never occurs).
+     */
+    int[] getPostings(String tag) {
+        int[] ids = postings.get(tag);
+        return ids != null ? ids : new int[0];
+    }
+
+    /**
+     * @return The number of distinct tags in the log.
+     */
+    public int getTagCount() {
+        return postings.size();
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * @return The sidecar index file for a log file.
+     */
+    public static File indexFileFor(File logFile) {
+        return new File(logFile.getAbsoluteFile().getParentFile(), logFile.getName() + INDEX_EXTENSION);
+    }
+
+    /**
+     * Indexes a threadtime log file with a single sequential read.
+     *
+     * @throws IOException If the log file cannot be read.
+     */
+    public static LogIndex build(File logFile) throws IOException {
+        return build(logFile, DEFAULT_BLOCK_SIZE);
+    }
+
+    static LogIndex build(File logFile, int blockSize) throws IOException {
+        Builder builder = new Builder(blockSize);
+        try (InputStream in = Files.newInputStream(logFile.toPath())) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int carry = 0; // Bytes of an incomplete line kept at the start of the buffer
+            long fileOffset = 0; // File offset of buffer[0]
+            int read;
+            while ((read = in.read(buffer, carry, buffer.length - carry)) != -1) {
+                int end = carry + read;
+                int lineStart = 0;
+                for (int i = carry; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        builder.addLine(buffer, lineStart, i + 1, fileOffset);
+                        lineStart = i + 1;
+                    }
+                }
+                carry = end - lineStart;
+                if (carry == buffer.length) {
+                    // A line longer than the buffer; grow so it is still indexed as one line
+                    byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, carry);
+                    buffer = grown;
+                } else if (carry > 0 && lineStart > 0) {
+                    System.arraycopy(buffer, lineStart, buffer, 0, carry);
+                }
+                fileOffset += lineStart;
+            }
+            if (carry > 0) {
+                builder.addLine(buffer, 0, carry, fileOffset); // Last line without a line break
+            }
+        }
+        return builder.finish(logFile.length());
+    }
+
+    /**
+     * Accumulates blocks and postings while the log is scanned line by line. Lines are parsed into a
+     * reused record and tags are resolved through a {@link TagTable}, so nothing is allocated per line.
+     */
+    private static class Builder {
+        private final int blockSize;
+        private final List<Block> blocks = new ArrayList<>();
+        private final LogcatRecord record = new LogcatRecord();
+        private final TagTable tags = new TagTable();
+        private int[][] tagPostings = new int[64][];
+        private int[] tagPostingCounts = new int[64];
+        private long blockStart;
+        private long blockEnd;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        Builder(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        void addLine(byte[] buffer, int lineStart, int lineEnd, long bufferOffset) {
+            if (LogcatLineParser.parse(buffer, lineStart, lineEnd, record)) {
+                minTimestamp = Math.min(minTimestamp, record.timestamp);
+                maxTimestamp = Math.max(maxTimestamp, record.timestamp);
+                addPosting(tags.idOf(record), blocks.size());
+            }
+            blockEnd = bufferOffset + lineEnd;
+            if (blockEnd - blockStart >= blockSize) {
+                closeBlock();
+            }
+        }
+
+        LogIndex finish(long logLength) {
+            if (blockEnd > blockStart) {
+                closeBlock();
+            }
+            Map<String, int[]> postings = new LinkedHashMap<>();
+            for (int tagId = 0; tagId < tags.size(); tagId++) {
+                postings.put(tags.name(tagId), Arrays.copyOf(tagPostings[tagId], tagPostingCounts[tagId]));
+            }
+            return new LogIndex(logLength, blocks, postings);
+        }
+
+        private void addPosting(int tagId, int blockId) {
+            if (tagId == tagPostings.length) {
+                tagPostings = Arrays.copyOf(tagPostings, tagId * 2);
+                tagPostingCounts = Arrays.copyOf(tagPostingCounts, tagId * 2);
+            }
+            int[] ids = tagPostings[tagId];
+            int count = tagPostingCounts[tagId];
+            if (ids == null) {
+                ids = new int[8];
+                tagPostings[tagId] = ids;
+            } else if (ids[count - 1] == blockId) {
+                return; // Already recorded for this block
+            } else if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                tagPostings[tagId] = ids;
+            }
+            ids[count] = blockId;
+            tagPostingCounts[tagId] = count + 1;
+        }
+
+        private void closeBlock() {
+            blocks.add(new Block(blockStart, (int) (blockEnd - blockStart), minTimestamp, maxTimestamp));
+            blockStart = blockEnd;
+            minTimestamp = Long.MAX_VALUE;
+            maxTimestamp = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Writes the index to a file, replacing any previous one atomically.
+     */
+    public void write(File indexFile) throws IOException {
+        File temp = new File(indexFile.getAbsoluteFile().getParentFile(), indexFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logLength);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeLong(block.offset);
+                out.writeInt(block.length);
+                out.writeLong(block.minTimestamp);
+                out.writeLong(block.maxTimestamp);
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+                out.writeUTF(entry.getKey());
+                int[] ids = entry.getValue();
+                out.writeInt(ids.length);
+                int previous = 0;
+                for (int id : ids) {
+                    writeVarInt(out, id - previous); // Postings are ascending; deltas keep them small
+                    previous = id;
+                }
+            }
+        }
+        Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by {@link #write(File)}.
+     *
+     * @throws IOException If the file cannot be read or is not an index file.
+     */
+    public static LogIndex read(File indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a log index file: " + indexFile.getAbsolutePath());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported log index version " + version + ": " + indexFile.getAbsolutePath());
+            }
+            long logLength = in.readLong();
+            int blockCount = in.readInt();
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(in.readLong(), in.readInt(), in.readLong(), in.readLong()));
+            }
+            int tagCount = in.readInt();
+            Map<String, int[]> postings = new LinkedHashMap<>();
+            for (int i = 0; i < tagCount; i++) {
+                String tag = in.readUTF();
+                int[] ids = new int[in.readInt()];
+                int previous = 0;
+                for (int j = 0; j < ids.length; j++) {
+                    previous += readVarInt(in);
+                    ids[j] = previous;
+                }
+                postings.put(tag, ids);
+            }
+            return new LogIndex(logLength, Collections.unmodifiableList(blocks), postings);
+        }
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
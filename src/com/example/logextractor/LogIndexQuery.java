@@ -0,0 +1,166 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers tag, level and time-range queries over an indexed log file. Only the blocks the index says can
+ * match the tag and time range are touched: consecutive candidate blocks are memory-mapped together and
+ * scanned line by line, and matching lines are copied to the output. The level is checked while scanning.
+ */
+public class LogIndexQuery {
+
+    private static final long MAX_MAPPING_SIZE = 256L * 1024 * 1024; // Keep individual mappings modest
+
+    private final File logFile;
+    private final LogIndex index;
+
+    private int blocksRead;
+    private long bytesScanned;
+
+    public LogIndexQuery(File logFile, LogIndex index) {
+        this.logFile = logFile;
+        this.index = index;
+    }
+
+    /**
+     * Opens the index next to a log file.
+     *
+     * @throws IOException If there is no index, it cannot be read, or the log file changed since it was indexed.
+     */
+    public static LogIndexQuery open(File logFile) throws IOException {
+        File indexFile = LogIndex.indexFileFor(logFile);
+        if (!indexFile.exists()) {
+            throw new IOException("No index found for " + logFile.getAbsolutePath() + "; build one with --index first.");
+        }
+        LogIndex index = LogIndex.read(indexFile);
+        if (index.getLogLength() != logFile.length()) {
+            throw new IOException("Index " + indexFile.getName() + " is stale (log file size changed); rebuild it with --index.");
+        }
+        return new LogIndexQuery(logFile, index);
+    }
+
+    /**
+     * @return The number of blocks read by the last query.
+     */
+    public int getBlocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * @return The number of log bytes scanned by the last query.
+     */
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    /**
+     * Writes every line matching the tag and falling within [from, to] to the output, at any level.
+     *
+     * @see #query(String, char, long, long, OutputStream)
+     */
+    public long query(String tag, long from, long to, OutputStream out) throws IOException {
+        return query(tag, 'V', from, to, out);
+    }
+
+    /**
+     * Writes every line matching the tag, at or above the level and falling within [from, to] to the output.
+     *
+     * @param tag The exact tag to match, or null for any tag.
+     * @param minLevel The lowest priority to include: 'V' (everything), 'D', 'I', 'W', 'E', 'F' or 'A'.
+     * @param from The earliest timestamp key to include (see {@link LogcatLineParser#parseTimestampKey}).
+     * @param to The latest timestamp key to include.
+     * @return The number of matching lines.
+     * @throws IllegalArgumentException If the level is not a logcat priority letter.
+     * @throws IOException If the log file cannot be read or writing the output fails.
+     */
+    public long query(String tag, char minLevel, long from, long to, OutputStream out) throws IOException {
+        int minLevelIndex = LogFilter.LEVELS.indexOf(Character.toUpperCase(minLevel));
+        if (minLevelIndex < 0) {
+            throw new IllegalArgumentException("Invalid level '" + minLevel + "'; use one of V, D, I, W, E, F, A.");
+        }
+        blocksRead = 0;
+        bytesScanned = 0;
+        List<LogIndex.Block> candidates = candidateBlocks(tag, from, to);
+        byte[] tagBytes = tag != null ? tag.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] block = new byte[LogIndex.DEFAULT_BLOCK_SIZE * 2];
+        LogcatRecord record = new LogcatRecord();
+        long matches = 0;
+
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            int i = 0;
+            while (i < candidates.size()) {
+                // Merge a run of adjacent blocks into one mapping
+                LogIndex.Block first = candidates.get(i);
+                long runEnd = first.offset + first.length;
+                int j = i + 1;
+                while (j < candidates.size() && candidates.get(j).offset == runEnd
+                        && runEnd + candidates.get(j).length - first.offset <= MAX_MAPPING_SIZE) {
+                    runEnd += candidates.get(j).length;
+                    j++;
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, first.offset, runEnd - first.offset);
+                for (int k = i; k < j; k++) {
+                    // Blocks hold whole lines, so each one can be scanned on its own
+                    int length = candidates.get(k).length;
+                    if (length > block.length) {
+                        block = new byte[length];
+                    }
+                    mapped.get(block, 0, length);
+                    matches += scanBlock(block, length, record, tagBytes, minLevelIndex, from, to, out);
+                    bytesScanned += length;
+                }
+                blocksRead += j - i;
+                i = j;
+            }
+        }
+        out.flush();
+        return matches;
+    }
+
+    private static long scanBlock(byte[] block, int length, LogcatRecord record, byte[] tagBytes, int minLevelIndex, long from, long to,
+            OutputStream out) throws IOException {
+        long matches = 0;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (block[i] == '\n' || i == length - 1) {
+                int lineEnd = i + 1;
+                if (LogcatLineParser.parse(block, lineStart, lineEnd, record) && record.timestamp >= from && record.timestamp <= to
+                        && (tagBytes == null || record.tagEquals(tagBytes))
+                        && (minLevelIndex == 0 || LogFilter.LEVELS.indexOf(record.level) >= minLevelIndex)) {
+                    out.write(block, lineStart, lineEnd - lineStart);
+                    matches++;
+                }
+                lineStart = lineEnd;
+            }
+        }
+        return matches;
+    }
+
+    private List<LogIndex.Block> candidateBlocks(String tag, long from, long to) {
+        List<LogIndex.Block> blocks = index.getBlocks();
+        List<LogIndex.Block> candidates = new ArrayList<>();
+        if (tag != null) {
+            for (int id : index.getPostings(tag)) {
+                LogIndex.Block block = blocks.get(id);
+                if (block.overlaps(from, to)) {
+                    candidates.add(block);
+                }
+            }
+        } else {
+            for (LogIndex.Block block : blocks) {
+                if (block.overlaps(from, to)) {
+                    candidates.add(block);
+                }
+            }
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Persists a {@link LogcatPosition} in a small per-device file in the output directory, so the
+ * next incremental run can ask logcat only for lines newer than the last one captured.
+ *
+ * It can also record which log file the position belongs to and how much of that file was on disk
+ * when it was saved (see {@link DurableLogWriter}), so a capture interrupted by a crash can cut the file
+ * back to that length and resume appending from the position, without gaps or duplicates.
+ */
+public class LogcatCheckpoint {
+
+    private static final String KEY_SINCE_TIME = "sinceTime";
+    private static final String KEY_LINES_AT_TIMESTAMP = "linesAtTimestamp";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_COMMITTED_LENGTH = "committedLength";
+
+    private final File file;
+    private String logFileName;
+    private long committedLength = -1;
+
+    public LogcatCheckpoint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return The checkpoint file for a device, e.g. ".ivi_logcat_emulator-5554.checkpoint".
+     */
+    public static LogcatCheckpoint forDevice(File outputDirectory, String targetDevice) {
+        return new LogcatCheckpoint(new File(outputDirectory, ".ivi_logcat_" + AdbHelper.safeDeviceName(targetDevice) + ".checkpoint"));
+    }
+
+    /**
+     * @return The progress journal of a "--follow" capture, e.g. ".ivi_logcat_emulator-5554.journal".
+     */
+    public static LogcatCheckpoint journalForDevice(File outputDirectory, String targetDevice) {
+        return new LogcatCheckpoint(new File(outputDirectory, ".ivi_logcat_" + AdbHelper.safeDeviceName(targetDevice) + ".journal"));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The name of the log file recorded by the last load or save, or null if none was recorded.
+     */
+    public String getLogFileName() {
+        return logFileName;
+    }
+
+    /**
+     * @return The committed length of the log file recorded by the last load or save, or -1 if none was recorded.
+     */
+    public long getCommittedLength() {
+        return committedLength;
+    }
+
+    /**
+     * Loads the checkpoint into the given position. A missing file leaves the position empty.
+     *
+     * @return true if a checkpoint was found and loaded.
+     * @throws IOException If the file exists but cannot be read or is malformed.
+     */
+    public boolean loadInto(LogcatPosition position) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        }
+        String sinceTime = properties.getProperty(KEY_SINCE_TIME);
+        String lines = properties.getProperty(KEY_LINES_AT_TIMESTAMP, "1");
+        if (sinceTime == null) {
+            return false;
+        }
+        try {
+            position.restore(sinceTime, Integer.parseInt(lines));
+            logFileName = properties.getProperty(KEY_FILE);
+            committedLength = Long.parseLong(properties.getProperty(KEY_COMMITTED_LENGTH, "-1"));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed checkpoint file " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    /**
+     * Saves the position, replacing the previous checkpoint atomically so an interrupted save never leaves a half-written file.
+     */
+    public void save(LogcatPosition position) throws IOException {
+        save(position, null, -1);
+    }
+
+    /**
+     * Saves the position together with the log file it belongs to and the length of that file already on disk.
+     *
+     * @param logFileName The name of the log file, in the checkpoint's directory (can be null).
+     * @param committedLength The length of the log file up to the last line captured, or -1 if unknown.
+     */
+    public void save(LogcatPosition position, String logFileName, long committedLength) throws IOException {
+        if (!position.hasPosition()) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(KEY_SINCE_TIME, position.getSinceTime());
+        properties.setProperty(KEY_LINES_AT_TIMESTAMP, Integer.toString(position.getLinesAtTimestamp()));
+        if (logFileName != null) {
+            properties.setProperty(KEY_FILE, logFileName);
+        }
+        if (committedLength >= 0) {
+            properties.setProperty(KEY_COMMITTED_LENGTH, Long.toString(committedLength));
+        }
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, "Last logcat line captured by Android IVI Log Extractor");
+            out.getChannel().force(true); // On disk before it replaces the previous checkpoint
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.logFileName = logFileName;
+        this.committedLength = committedLength;
+    }
+
+    /**
+     * Removes the checkpoint, e.g. once a capture has ended cleanly and has nothing to resume.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous live-tail capture: keeps "adb logcat" running and writes its output into rotating
+ * segment files until stopped. If the device drops off (e.g. USB disconnect) the follower waits for it
+ * to come back and restarts logcat with "-T" from the last captured line, so nothing is lost or duplicated.
+ *
+ * With a journal, the position is saved after every commit of the segment files, together with the
+ * committed length. If the JVM or host dies, the next capture for the device finds the journal, cuts the
+ * last segment back to what the journal covers and carries on appending to it from there. The journal is
+ * removed when a capture ends cleanly.
+ */
+public class LogcatFollower {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_POLL_MILLIS = 50; // How often an idle stream is checked for new output while a commit is pending
+    private static final long RECONNECT_DELAY_MILLIS = 5000; // Poll interval while the device is away, unless the device registry reports it back sooner
+
+    private final AdbHelper adbHelper;
+    private final String targetDevice;
+    private final RotatingLogWriter writer;
+    private final LogcatCheckpoint journal;
+    private final LogcatPosition position = new LogcatPosition();
+    private final LogFilter.LineMatcher filterMatcher;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final Object reconnectSignal = new Object();
+
+    private volatile boolean stopped;
+    private volatile Process currentProcess;
+
+    public LogcatFollower(AdbHelper adbHelper, String targetDevice, RotatingLogWriter writer) {
+        this(adbHelper, targetDevice, writer, null);
+    }
+
+    /**
+     * @param journal Where progress is recorded, and resumed from if a previous capture was interrupted (can be null).
+     */
+    public LogcatFollower(AdbHelper adbHelper, String targetDevice, RotatingLogWriter writer, LogcatCheckpoint journal) {
+        this.adbHelper = adbHelper;
+        this.targetDevice = targetDevice;
+        this.writer = writer;
+        this.journal = journal;
+        LogFilter filter = adbHelper.getLogFilter();
+        this.filterMatcher = filter != null ? filter.newLineMatcher() : null;
+    }
+
+    /**
+     * Captures until {@link #stop()} is called. Blocks the calling thread.
+     *
+     * @throws IOException If writing the log files fails.
+     */
+    public void run() throws IOException {
+        DeviceRegistry registry = adbHelper.getDeviceRegistry();
+        DeviceRegistry.Listener deviceListener = this::onDeviceChanged;
+        if (registry != null) {
+            registry.addListener(deviceListener);
+        }
+        boolean completed = false;
+        try {
+            if (journal != null) {
+                resumeFromJournal();
+                writer.setCommitListener((file, length) -> journal.save(position, file.getName(), length));
+            }
+            while (!stopped) {
+                if (!adbHelper.isDeviceConnected(targetDevice)) {
+                    System.out.println("INFO: Waiting for device " + (targetDevice != null ? targetDevice : "default") + " to reconnect...");
+                    sleepBeforeReconnect();
+                    continue;
+                }
+                try {
+                    captureUntilDisconnect();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause(); // Writing to disk failed; reconnecting would not help
+                }
+                if (!stopped) {
+                    System.out.println("INFO: Logcat stream ended, device may have disconnected. Reconnecting...");
+                    sleepBeforeReconnect();
+                }
+            }
+            completed = true;
+        } finally {
+            if (registry != null) {
+                registry.removeListener(deviceListener);
+            }
+            try {
+                writer.close();
+                if (completed && journal != null) {
+                    journal.delete(); // Nothing to resume; the next capture starts a new series
+                }
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * Picks up where an interrupted capture left off, if the journal holds its progress.
+     */
+    private void resumeFromJournal() throws IOException {
+        if (!journal.loadInto(position) || journal.getLogFileName() == null) {
+            return;
+        }
+        System.out.println("INFO: Resuming interrupted capture after last captured line at " + position.getSinceTime()
+                + " (journal: " + journal.getFile().getName() + ")");
+        long discarded = writer.resume(journal.getLogFileName(), journal.getCommittedLength());
+        if (discarded > 0) {
+            System.out.println("INFO: Discarded " + discarded + " uncommitted byte(s) at the end of the segment; they will be captured again.");
+        }
+    }
+
+    /**
+     * Stops the capture, ending the running logcat process. Safe to call from a shutdown hook.
+     */
+    public void stop() {
+        stopped = true;
+        Process process = currentProcess;
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Waits for {@link #run()} to flush and close its files after {@link #stop()}.
+     *
+     * @return true if the capture finished within the timeout.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    private void captureUntilDisconnect() throws IOException {
+        List<String> logcatArgs = new ArrayList<>();
+        logcatArgs.add("logcat");
+        logcatArgs.add("-v");
+        logcatArgs.add("threadtime");
+        if (position.hasPosition()) {
+            logcatArgs.add("-T");
+            logcatArgs.add(position.getSinceTimeArgument());
+            position.beginResume();
+        }
+        AdbHelper.addFilterArgs(logcatArgs, adbHelper.getLogFilter());
+
+        Process process = adbHelper.startAdbProcess(targetDevice, logcatArgs);
+        currentProcess = process;
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int carry = 0; // Bytes of an incomplete line kept at the start of the buffer
+            int read;
+            while ((read = in.read(buffer, carry, buffer.length - carry)) != -1) {
+                int end = carry + read;
+                int lineStart = 0;
+                for (int i = carry; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        writeLine(buffer, lineStart, i + 1 - lineStart);
+                        lineStart = i + 1;
+                    }
+                }
+                carry = end - lineStart;
+                if (carry == buffer.length) {
+                    // A single line longer than the buffer; write it out as-is
+                    writeLine(buffer, 0, carry);
+                    carry = 0;
+                } else if (carry > 0 && lineStart > 0) {
+                    System.arraycopy(buffer, lineStart, buffer, 0, carry);
+                }
+                if (in.available() == 0) {
+                    flushWriter(); // Stream is idle; get what we have onto disk
+                    commitWhileIdle(in);
+                }
+            }
+            flushWriter();
+        } catch (IOException e) {
+            if (!stopped) {
+                System.err.println("ERROR: Reading logcat stream failed: " + e.getMessage());
+            }
+        } finally {
+            process.destroy();
+            currentProcess = null;
+        }
+    }
+
+    // Write failures are rethrown unchecked so they are not mistaken for a dropped logcat stream
+    private void writeLine(byte[] buffer, int offset, int length) {
+        // The position sees every line, so a reconnect resumes correctly even after filtered-out lines
+        if (position.accept(buffer, offset, length) && (filterMatcher == null || filterMatcher.accepts(buffer, offset, length))) {
+            try {
+                writer.writeLine(buffer, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flushWriter() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Commits the lines written so far once the sync interval has passed, unless more output arrives first,
+     * so a quiet stream does not leave its last lines uncommitted until the next line.
+     */
+    private void commitWhileIdle(InputStream in) throws IOException {
+        long delay;
+        while (!stopped && (delay = writer.getCommitDelayMillis()) >= 0 && in.available() == 0) {
+            if (delay == 0) {
+                flushWriter();
+                return;
+            }
+            try {
+                Thread.sleep(Math.min(delay, IDLE_POLL_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+        }
+    }
+
+    private void onDeviceChanged(String serial, String oldState, String newState) {
+        if (targetDevice != null && !targetDevice.equals(serial)) {
+            return;
+        }
+        System.out.println("INFO: Device " + serial + " is now " + (newState != null ? newState : "detached") + ".");
+        if ("device".equals(newState)) {
+            synchronized (reconnectSignal) {
+                reconnectSignal.notifyAll(); // Reconnect right away instead of waiting out the poll interval
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            synchronized (reconnectSignal) {
+                reconnectSignal.wait(RECONNECT_DELAY_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+    }
+
+    /**
+     * Builds the segment file prefix, e.g. "ivi_logcat_emulator-5554_20240101_120000".
+     */
+    static String segmentBaseName(String targetDevice, String timestamp) {
+        String fileName = AdbHelper.buildLogFileName(targetDevice, timestamp);
+        return fileName.substring(0, fileName.length() - ".txt".length());
+    }
+}
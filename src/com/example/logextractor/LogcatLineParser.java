@@ -0,0 +1,166 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Parses threadtime logcat lines straight from byte buffers:
+ * <pre>
+ * MM-DD HH:MM:SS.mmm  PID  TID L TAG     : message
+ * </pre>
+ * Fields are decoded into a reusable {@link LogcatRecord}; no objects are allocated per line.
+ * Lines that are not in threadtime format (e.g. "--------- beginning of main") are rejected.
+ */
+public final class LogcatLineParser {
+
+    private LogcatLineParser() {
+    }
+
+    /**
+     * Parses one line.
+     *
+     * @param buffer The buffer holding the line.
+     * @param offset Start of the line.
+     * @param end End of the line (exclusive); a trailing "\n" or "\r\n" is allowed.
+     * @param record The record to fill in.
+     * @return true if the line is a threadtime line and the record was filled in.
+     */
+    public static boolean parse(byte[] buffer, int offset, int end, LogcatRecord record) {
+        if (!LogcatPosition.isTimestamp(buffer, offset, end - offset)) {
+            return false;
+        }
+        int contentEnd = end;
+        if (contentEnd > offset && buffer[contentEnd - 1] == '\n') {
+            contentEnd--;
+        }
+        if (contentEnd > offset && buffer[contentEnd - 1] == '\r') {
+            contentEnd--;
+        }
+
+        int i = skipSpaces(buffer, offset + LogcatPosition.TIMESTAMP_LENGTH, contentEnd);
+        int pidStart = i;
+        int pid = 0;
+        while (i < contentEnd && buffer[i] >= '0' && buffer[i] <= '9') {
+            pid = pid * 10 + (buffer[i++] - '0');
+        }
+        if (i == pidStart) {
+            return false;
+        }
+
+        i = skipSpaces(buffer, i, contentEnd);
+        int tidStart = i;
+        int tid = 0;
+        while (i < contentEnd && buffer[i] >= '0' && buffer[i] <= '9') {
+            tid = tid * 10 + (buffer[i++] - '0');
+        }
+        if (i == tidStart) {
+            return false;
+        }
+
+        i = skipSpaces(buffer, i, contentEnd);
+        if (i + 1 >= contentEnd || buffer[i + 1] != ' ') {
+            return false;
+        }
+        byte level = buffer[i];
+
+        int tagStart = skipSpaces(buffer, i + 1, contentEnd);
+        int separator = tagStart;
+        while (separator < contentEnd && !(buffer[separator] == ':' && (separator + 1 == contentEnd || buffer[separator + 1] == ' '))) {
+            separator++;
+        }
+        if (separator >= contentEnd) {
+            return false;
+        }
+        int tagEnd = separator;
+        while (tagEnd > tagStart && buffer[tagEnd - 1] == ' ') {
+            tagEnd--; // Tags are padded to 8 characters
+        }
+        int messageStart = Math.min(separator + 2, contentEnd);
+
+        record.timestamp = timestampKey(buffer, offset);
+        record.pid = pid;
+        record.tid = tid;
+        record.level = level;
+        record.buffer = buffer;
+        record.lineOffset = offset;
+        record.lineLength = end - offset;
+        record.tagOffset = tagStart;
+        record.tagLength = tagEnd - tagStart;
+        record.messageOffset = messageStart;
+        record.messageLength = contentEnd - messageStart;
+        return true;
+    }
+
+    /**
+     * Converts the threadtime timestamp at the start of a line ("MM-DD HH:MM:SS.mmm") into a key that
+     * sorts like the timestamp itself: milliseconds since the start of a (notional) year of 31-day months.
+     *
+     * @return The key, or -1 if the line does not start with a timestamp.
+     */
+    public static long timestampKey(byte[] line, int offset, int length) {
+        if (!LogcatPosition.isTimestamp(line, offset, length)) {
+            return -1;
+        }
+        return timestampKey(line, offset);
+    }
+
+    /**
+     * Same as {@link #timestampKey(byte[], int, int)} for a line already known to start with a timestamp.
+     */
+    static long timestampKey(byte[] b, int o) {
+        long month = digits(b, o, 2);
+        long day = digits(b, o + 3, 2);
+        long hour = digits(b, o + 6, 2);
+        long minute = digits(b, o + 9, 2);
+        long second = digits(b, o + 12, 2);
+        long millis = digits(b, o + 15, 3);
+        return ((((month * 31 + day) * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millis;
+    }
+
+    /**
+     * Parses a user-supplied time ("MM-DD HH:MM", "MM-DD HH:MM:SS" or "MM-DD HH:MM:SS.mmm") into a timestamp key.
+     *
+     * @param roundUp If true, omitted fields are filled with their maximum (for the end of a range).
+     * @throws IllegalArgumentException If the text is not in one of the accepted forms.
+     */
+    public static long parseTimestampKey(String text, boolean roundUp) {
+        String template = roundUp ? "12-31 23:59:59.999" : "01-01 00:00:00.000";
+        String trimmed = text.trim();
+        if (trimmed.length() < 11 || trimmed.length() > template.length()) {
+            throw new IllegalArgumentException("Expected a time like '06-15 12:34:56.789', got: " + text);
+        }
+        byte[] bytes = (trimmed + template.substring(trimmed.length())).getBytes(StandardCharsets.US_ASCII);
+        long key = timestampKey(bytes, 0, bytes.length);
+        if (key < 0) {
+            throw new IllegalArgumentException("Expected a time like '06-15 12:34:56.789', got: " + text);
+        }
+        return key;
+    }
+
+    /**
+     * Formats a timestamp key back into "MM-DD HH:MM:SS.mmm".
+     */
+    public static String formatTimestampKey(long key) {
+        long millis = key % 1000;
+        long seconds = key / 1000 % 60;
+        long minutes = key / 60_000 % 60;
+        long hours = key / 3_600_000 % 24;
+        long days = key / 86_400_000 - 1; // Days run from 1, so the 31st is still in its own month
+        return String.format(Locale.ROOT, "%02d-%02d %02d:%02d:%02d.%03d", days / 31, days % 31 + 1, hours, minutes, seconds, millis);
+    }
+
+    private static int skipSpaces(byte[] buffer, int i, int end) {
+        while (i < end && buffer[i] == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static long digits(byte[] b, int offset, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = value * 10 + (b[offset + i] - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Tracks how far a logcat capture has progressed, so it can be resumed with "logcat -T" without
+ * losing or duplicating lines.
+ *
+ * The position is the threadtime timestamp of the last captured line ("MM-DD HH:MM:SS.mmm") plus
+ * the number of captured lines that carried exactly that timestamp. "logcat -T" replays every line
+ * at or after the given time, so on resume those lines are skipped once before capturing continues.
+ * All checks work on raw line bytes; nothing is allocated per line.
+ *
+ * Threadtime timestamps carry no year, and device clocks can jump back (a unit booting with a reset clock
+ * until time sync). If the first line replayed on resume is older than the position, the order the position
+ * relies on is broken: resuming stops and everything from that line on is captured, with a warning, rather
+ * than every new line being dropped as already seen.
+ */
+public class LogcatPosition {
+
+    static final int TIMESTAMP_LENGTH = 18; // "MM-DD HH:MM:SS.mmm"
+
+    private final byte[] lastTimestamp = new byte[TIMESTAMP_LENGTH];
+    private boolean hasTimestamp;
+    private int linesAtTimestamp;
+
+    private boolean resuming;
+    private boolean awaitingFirstReplayed;
+    private int linesToSkip;
+
+    /**
+     * @return true if at least one timestamped line has been recorded.
+     */
+    public boolean hasPosition() {
+        return hasTimestamp;
+    }
+
+    /**
+     * @return The timestamp of the last captured line, suitable for "logcat -T", or null if none was seen yet.
+     */
+    public String getSinceTime() {
+        return hasTimestamp ? new String(lastTimestamp, StandardCharsets.US_ASCII) : null;
+    }
+
+    /**
+     * @return The position as the argument of "logcat -T": the timestamp of the last captured line, qualified with
+     *         its year ("YYYY-MM-DD HH:MM:SS.mmm") when it lies in the previous year, where logcat would take the
+     *         year-less form for a time in the future. Null if no line was seen yet.
+     */
+    public String getSinceTimeArgument() {
+        return getSinceTimeArgument(Calendar.getInstance());
+    }
+
+    String getSinceTimeArgument(Calendar now) {
+        if (!hasTimestamp) {
+            return null;
+        }
+        String sinceTime = getSinceTime();
+        Calendar since = (Calendar) now.clone();
+        since.set(Calendar.MONTH, Integer.parseInt(sinceTime.substring(0, 2)) - 1);
+        since.set(Calendar.DAY_OF_MONTH, Integer.parseInt(sinceTime.substring(3, 5)));
+        since.add(Calendar.DAY_OF_MONTH, -1); // A day of slack for clock and time zone differences
+        if (!since.after(now)) {
+            return sinceTime; // This year's date, the one logcat assumes
+        }
+        return String.format(Locale.ROOT, "%04d-%s", now.get(Calendar.YEAR) - 1, sinceTime);
+    }
+
+    /**
+     * @return The number of captured lines carrying the last timestamp.
+     */
+    public int getLinesAtTimestamp() {
+        return linesAtTimestamp;
+    }
+
+    /**
+     * Restores a previously recorded position.
+     *
+     * @param sinceTime A timestamp in "MM-DD HH:MM:SS.mmm" form.
+     * @param lines The number of lines already captured with that timestamp.
+     */
+    public void restore(String sinceTime, int lines) {
+        byte[] bytes = sinceTime.getBytes(StandardCharsets.US_ASCII);
+        if (!isTimestamp(bytes, 0, bytes.length)) {
+            throw new IllegalArgumentException("Not a logcat threadtime timestamp: " + sinceTime);
+        }
+        System.arraycopy(bytes, 0, lastTimestamp, 0, TIMESTAMP_LENGTH);
+        hasTimestamp = true;
+        linesAtTimestamp = lines;
+    }
+
+    /**
+     * Starts skipping the lines that "logcat -T" will replay from the current position.
+     */
+    public void beginResume() {
+        resuming = hasTimestamp;
+        awaitingFirstReplayed = hasTimestamp;
+        linesToSkip = linesAtTimestamp;
+    }
+
+    /**
+     * Decides whether a line should be captured and, if so, records it as the new position.
+     *
+     * @param line Buffer holding the line.
+     * @param offset Start of the line in the buffer.
+     * @param length Length of the line, including its line terminator.
+     * @return true if the line is new and should be written, false if it was already captured.
+     */
+    public boolean accept(byte[] line, int offset, int length) {
+        boolean timestamped = isTimestamp(line, offset, length);
+        if (resuming) {
+            if (!timestamped) {
+                return false; // Buffer banners ("--------- beginning of main") are replayed too
+            }
+            int order = compareToLast(line, offset);
+            boolean first = awaitingFirstReplayed;
+            awaitingFirstReplayed = false;
+            if (first && order < 0) {
+                // Nothing older than the position is replayed unless the clock went back or the year rolled over
+                System.out.println("WARNING: Log resumes at " + new String(line, offset, TIMESTAMP_LENGTH, StandardCharsets.US_ASCII)
+                        + ", before the last captured line at " + getSinceTime() + " (clock change or new year); capturing from there.");
+                resuming = false;
+            } else if (order < 0 || (order == 0 && linesToSkip > 0)) {
+                if (order == 0) {
+                    linesToSkip--;
+                }
+                return false;
+            } else {
+                resuming = false;
+            }
+        }
+        if (timestamped) {
+            if (hasTimestamp && compareToLast(line, offset) == 0) {
+                linesAtTimestamp++;
+            } else {
+                System.arraycopy(line, offset, lastTimestamp, 0, TIMESTAMP_LENGTH);
+                hasTimestamp = true;
+                linesAtTimestamp = 1;
+            }
+        }
+        return true;
+    }
+
+    private int compareToLast(byte[] line, int offset) {
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            int diff = line[offset + i] - lastTimestamp[i];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether the bytes start with a threadtime timestamp ("MM-DD HH:MM:SS.mmm").
+     */
+    static boolean isTimestamp(byte[] line, int offset, int length) {
+        if (length < TIMESTAMP_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            byte b = line[offset + i];
+            switch (i) {
+                case 2:
+                    if (b != '-') return false;
+                    break;
+                case 5:
+                    if (b != ' ') return false;
+                    break;
+                case 8:
+                case 11:
+                    if (b != ':') return false;
+                    break;
+                case 14:
+                    if (b != '.') return false;
+                    break;
+                default:
+                    if (b < '0' || b > '9') return false;
+            }
+        }
+        return true;
+    }
+}
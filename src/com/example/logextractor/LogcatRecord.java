@@ -0,0 +1,86 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A parsed threadtime logcat line. Instances are mutable and meant to be reused: {@link LogcatLineParser}
+ * overwrites the fields for every line, and the tag and message are only offsets into the parsed buffer,
+ * so parsing allocates nothing. Copy out whatever must outlive the buffer.
+ */
+public final class LogcatRecord {
+
+    /** Sortable timestamp key, see {@link LogcatLineParser#timestampKey(byte[], int)}. */
+    public long timestamp;
+    public int pid;
+    public int tid;
+    /** Priority letter: 'V', 'D', 'I', 'W', 'E', 'F' or 'A'. */
+    public byte level;
+
+    /** The buffer the offsets below point into. */
+    public byte[] buffer;
+    public int lineOffset;
+    /** Length of the whole line, including the line terminator if present. */
+    public int lineLength;
+    public int tagOffset;
+    public int tagLength;
+    public int messageOffset;
+    /** Length of the message, excluding the line terminator. */
+    public int messageLength;
+
+    /**
+     * @return true if the tag equals the given bytes.
+     */
+    public boolean tagEquals(byte[] tag) {
+        if (tag.length != tagLength) {
+            return false;
+        }
+        for (int i = 0; i < tagLength; i++) {
+            if (buffer[tagOffset + i] != tag[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A hash of the tag bytes, stable across buffers (for primitive-keyed lookups).
+     */
+    public int tagHash() {
+        int hash = 1;
+        for (int i = 0; i < tagLength; i++) {
+            hash = 31 * hash + buffer[tagOffset + i];
+        }
+        return hash;
+    }
+
+    /**
+     * @return true if the message contains the given bytes.
+     */
+    public boolean messageContains(byte[] needle) {
+        int last = messageOffset + messageLength - needle.length;
+        outer:
+        for (int i = messageOffset; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (buffer[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The tag as a String. Allocates; intended for reporting, not per-line processing.
+     */
+    public String tagAsString() {
+        return new String(buffer, tagOffset, tagLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The message as a String. Allocates; intended for reporting, not per-line processing.
+     */
+    public String messageAsString() {
+        return new String(buffer, messageOffset, messageLength, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.logextractor;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids to long keys (pids, minutes, ...), the primitive counterpart of {@link TagTable}:
+ * lookups neither box nor allocate, so ids can index plain arrays in per-line processing. Not thread-safe.
+ */
+public final class LongKeyTable {
+
+    private static final int INITIAL_CAPACITY = 256; // Slots; always a power of two
+
+    private int[] slots = new int[INITIAL_CAPACITY]; // Key id + 1, 0 = empty
+    private long[] keys = new long[16];
+    private int size;
+
+    /**
+     * @return The id of the key, adding the key if it was not seen before.
+     */
+    public int idOf(long key) {
+        int mask = slots.length - 1;
+        int slot = mix(key) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(key, slot);
+            }
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return The key for an id returned by {@link #idOf(long)}.
+     */
+    public long key(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @return The number of distinct keys seen.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(long key, int slot) {
+        int id = size++;
+        if (id == keys.length) {
+            keys = Arrays.copyOf(keys, id * 2);
+        }
+        keys[id] = key;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(keys[id]) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        slots = grown;
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L; // Consecutive keys (pids, minutes) would otherwise cluster
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -1,13 +1,40 @@
 package com.example.logextractor;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
 
 public class Main {
 
     private static final String DEFAULT_OUTPUT_DIR_NAME = "ivi_logs";
+    private static final String INCREMENTAL_FILE_SUFFIX = "incremental";
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final long DEFAULT_ROTATE_SIZE_MB = 64;
+    private static final long DEFAULT_ROTATE_MINUTES = 60;
+    private static final long DEFAULT_MAX_TOTAL_MB = 1024;
+    private static final long DEFAULT_TOP = 20;
+    private static final int MAX_PARALLEL = 256; // Each unit of --parallel is a thread, and usually an adb process
+    private static final long DEVICE_REGISTRY_WAIT_MILLIS = 3000; // Upper bound on startup delay for the first device list
+    private static final List<String> KNOWN_OPTIONS = Arrays.asList("--all", "--parallel",
+            "--follow", "--rotate-size", "--rotate-minutes", "--max-total", "--incremental",
+            "--format", "--decompress", "--index", "--query", "--tag", "--level", "--from", "--to",
+            "--filter", "--pid", "--match", "--regex", "--buffers", "--merge", "--jmx",
+            "--transfer", "--bundle", "--bundle-timeouts", "--analyze", "--top", "--daemon",
+            "--schedule", "--control-port", "--sync-interval", "--dump-timeout");
 
     public static void main(String[] args) {
         if (args.length > 0 && (args[0].equals("-h") || args[0].equals("--help"))) {
@@ -15,14 +42,135 @@ public class Main {
             return;
         }
 
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> positionalArgs = new ArrayList<>();
+        if (!parseArguments(args, options, positionalArgs)) {
+            printHelp();
+            return;
+        }
+
+        if (options.containsKey("--query")) {
+            runQuery(options); // Before the banner, so standard output carries only the matching lines
+            return;
+        }
+
         System.out.println("INFO: Android IVI Log Extractor");
         System.out.println("INFO: =========================");
 
+        if (options.containsKey("--decompress")) {
+            runDecompress(options.get("--decompress"));
+            return;
+        }
+        if (options.containsKey("--index")) {
+            runIndex(options.get("--index"));
+            return;
+        }
+        if (options.containsKey("--analyze")) {
+            runAnalyze(options);
+            return;
+        }
+
         AdbHelper adbHelper = new AdbHelper();
+        String formatOption = options.get("--format");
+        if (formatOption != null) {
+            OutputFormat format = OutputFormat.fromOptionName(formatOption);
+            if (format == null) {
+                System.err.println("ERROR: Unknown output format '" + formatOption + "'. Use text, gzip, framed or dedup.");
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            if (format != OutputFormat.TEXT && (options.containsKey("--follow") || options.containsKey("--incremental"))) {
+                System.err.println("ERROR: --format=" + format.getOptionName() + " is not supported together with --follow or --incremental.");
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            adbHelper.setOutputFormat(format);
+        }
+        String transferOption = options.get("--transfer");
+        if (transferOption != null) {
+            TransferMode transfer = TransferMode.fromOptionName(transferOption);
+            if (transfer == null) {
+                System.err.println("ERROR: Unknown transfer mode '" + transferOption + "'. Use text, gzip or binary.");
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            if (transfer != TransferMode.TEXT && options.containsKey("--follow")) {
+                System.err.println("ERROR: --transfer=" + transfer.getOptionName() + " is not supported together with --follow.");
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            adbHelper.setTransferMode(transfer);
+        }
+        if (options.containsKey("--dump-timeout")) {
+            long dumpTimeoutSeconds = parseNonNegative(options, "--dump-timeout", TimeUnit.MILLISECONDS.toSeconds(AdbHelper.DUMP_TIMEOUT_MILLIS));
+            if (dumpTimeoutSeconds < 0) {
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            adbHelper.setDumpTimeoutMillis(TimeUnit.SECONDS.toMillis(dumpTimeoutSeconds));
+        }
+        if (options.containsKey("--filter") || options.containsKey("--pid") || options.containsKey("--match") || options.containsKey("--regex")) {
+            try {
+                LogFilter filter = LogFilter.parse(options.get("--filter"), options.get("--pid"), options.get("--match"), options.get("--regex"));
+                adbHelper.setLogFilter(filter);
+                System.out.println("INFO: Filtering lines: " + filter);
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: Invalid filter: " + e.getMessage());
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+        }
+        if (options.containsKey("--merge") && !options.containsKey("--buffers")) {
+            System.err.println("ERROR: --merge requires --buffers.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        List<String> buffers = null;
+        if (options.containsKey("--buffers")) {
+            if (options.containsKey("--all") || options.containsKey("--follow") || options.containsKey("--incremental")) {
+                System.err.println("ERROR: --buffers is not supported together with --all, --follow or --incremental.");
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            if (options.containsKey("--merge") && adbHelper.getOutputFormat() != OutputFormat.TEXT) {
+                System.err.println("ERROR: --merge is only supported with --format=text.");
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            try {
+                buffers = MultiBufferExtractor.parseBuffers(options.get("--buffers"));
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: " + e.getMessage());
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+        }
+        if (options.containsKey("--jmx")) {
+            try {
+                adbHelper.getStats().registerMBean();
+                System.out.println("INFO: Extraction statistics published over JMX as " + ExtractionStats.OBJECT_NAME);
+            } catch (JMException e) {
+                System.err.println("ERROR: Could not publish extraction statistics over JMX: " + e.getMessage());
+            }
+        }
+        if (options.containsKey("--daemon")) {
+            runDaemon(adbHelper, options, positionalArgs); // Starts the device registry itself, once its options are valid
+            return;
+        }
+        startDeviceRegistry(adbHelper);
+        if (options.containsKey("--bundle")) {
+            runBundle(adbHelper, options, positionalArgs);
+            return;
+        }
+        if (options.containsKey("--all")) {
+            runAllDevices(adbHelper, options, positionalArgs);
+            return;
+        }
+
         String targetDevice = null;
 
-        if (args.length > 0 && !args[0].startsWith("-")) {
-            targetDevice = args[0];
+        if (!positionalArgs.isEmpty()) {
+            targetDevice = positionalArgs.get(0);
             System.out.println("INFO: User specified target device: " + targetDevice);
         }
 
@@ -37,12 +185,88 @@ public class Main {
         System.out.println("INFO: Device " + (targetDevice != null ? targetDevice : "default") + " connected and ready.");
 
         Scanner scanner = new Scanner(System.in);
-        String outputDirStr;
 
         // Determine output directory: use argument if provided, else prompt
         int outputDirArgIndex = (targetDevice == null ? 0 : 1);
-        if (args.length > outputDirArgIndex && args[outputDirArgIndex] != null && !args[outputDirArgIndex].trim().isEmpty()) {
-            outputDirStr = args[outputDirArgIndex];
+        File outputDir = resolveOutputDirectory(positionalArgs.size() > outputDirArgIndex ? positionalArgs.get(outputDirArgIndex) : null, scanner);
+        if (outputDir == null) {
+            scanner.close();
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        if (options.containsKey("--follow")) {
+            scanner.close();
+            runFollow(adbHelper, targetDevice, outputDir, timestamp, options);
+            return;
+        }
+        if (buffers != null) {
+            scanner.close();
+            runBuffers(adbHelper, targetDevice, outputDir, timestamp, buffers, options.containsKey("--merge"));
+            return;
+        }
+        boolean incremental = options.containsKey("--incremental");
+        // Incremental runs keep appending to one file per device instead of a new timestamped file
+        String outputFileName = AdbHelper.buildLogFileName(targetDevice, incremental ? INCREMENTAL_FILE_SUFFIX : timestamp, adbHelper.getOutputFormat());
+
+        System.out.println("INFO: Starting logcat extraction...");
+        System.out.println("INFO: Logs will be saved to: " + new File(outputDir, outputFileName).getAbsolutePath());
+
+        // AdbHelper.extractLogcat now prints its own INFO/ERROR messages.
+        File logFile = incremental
+                ? adbHelper.extractLogcatIncremental(targetDevice, outputDir.getAbsolutePath(), outputFileName)
+                : adbHelper.extractLogcat(targetDevice, outputDir.getAbsolutePath(), outputFileName);
+
+        if (logFile != null && logFile.exists()) {
+            System.out.println("SUCCESS: Log extraction successful!");
+            System.out.println("SUCCESS: Log file saved at: " + logFile.getAbsolutePath());
+            System.out.println("INFO: Log Extractor finished successfully.");
+        } else {
+            System.err.println("ERROR: Log extraction failed. Please check the console for ADB errors or file system issues.");
+            System.err.println("ERROR: Ensure 'adb' is in your system PATH and the connected device remains authorized and operational during extraction.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+        }
+        scanner.close();
+    }
+
+    /**
+     * Splits the command line into options ("--name" or "--name=value") and positional arguments.
+     *
+     * @return false if an unknown option was given.
+     */
+    private static boolean parseArguments(String[] args, Map<String, String> options, List<String> positionalArgs) {
+        for (String arg : args) {
+            if (arg.equals("-a")) {
+                options.put("--all", "");
+            } else if (arg.startsWith("--")) {
+                int separator = arg.indexOf('=');
+                String name = separator < 0 ? arg : arg.substring(0, separator);
+                if (!KNOWN_OPTIONS.contains(name)) {
+                    System.err.println("ERROR: Unknown option: " + name);
+                    return false;
+                }
+                options.put(name, separator < 0 ? "" : arg.substring(separator + 1));
+            } else if (arg.startsWith("-")) {
+                System.err.println("ERROR: Unknown option: " + arg);
+                return false;
+            } else {
+                positionalArgs.add(arg);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Uses the given directory, or prompts for one, and makes sure it exists.
+     *
+     * @param outputDirArg The output directory given on the command line (can be null).
+     * @return The output directory, or null if it could not be created or is not a directory.
+     */
+    private static File resolveOutputDirectory(String outputDirArg, Scanner scanner) {
+        String outputDirStr;
+        if (outputDirArg != null && !outputDirArg.trim().isEmpty()) {
+            outputDirStr = outputDirArg;
             System.out.println("INFO: Using specified output directory: " + outputDirStr);
         } else {
             String defaultPath = System.getProperty("user.home") + File.separator + DEFAULT_OUTPUT_DIR_NAME;
@@ -64,45 +288,505 @@ public class Main {
             } else {
                 System.err.println("ERROR: Failed to create directory: " + outputDir.getAbsolutePath() + ".");
                 System.err.println("ERROR: Please check permissions or try a different path.");
-                scanner.close();
-                System.out.println("INFO: Log Extractor finished with errors.");
-                return;
+                return null;
             }
         } else if (!outputDir.isDirectory()) {
             System.err.println("ERROR: The specified path is not a directory: " + outputDir.getAbsolutePath());
-            scanner.close();
+            return null;
+        }
+        System.out.println("INFO: Using output directory: " + outputDir.getAbsolutePath());
+        return outputDir;
+    }
+
+    /**
+     * Starts tracking devices in the background, so the device checks that follow are answered from memory.
+     * If no device list arrives in time, the checks simply query adb themselves.
+     */
+    private static DeviceRegistry startDeviceRegistry(AdbHelper adbHelper) {
+        DeviceRegistry registry = new DeviceRegistry(adbHelper);
+        registry.start();
+        adbHelper.setDeviceRegistry(registry);
+        // Without this, an "adb track-devices" child process would outlive the JVM
+        Runtime.getRuntime().addShutdownHook(new Thread(registry::stop, "device-registry-shutdown"));
+        try {
+            registry.awaitFirstList(DEVICE_REGISTRY_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return registry;
+    }
+
+    /**
+     * Keeps running, dumping logcat from every operational device on a schedule and serving the local
+     * control endpoint, until the JVM is stopped ("--daemon" mode).
+     */
+    private static void runDaemon(AdbHelper adbHelper, Map<String, String> options, List<String> positionalArgs) {
+        if (options.containsKey("--all") || options.containsKey("--follow") || options.containsKey("--incremental")
+                || options.containsKey("--buffers") || options.containsKey("--bundle")) {
+            System.err.println("ERROR: --daemon is not supported together with --all, --follow, --incremental, --buffers or --bundle.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        long intervalSeconds = parseNonNegative(options, "--daemon", CollectionDaemon.DEFAULT_INTERVAL_SECONDS);
+        int maxParallel = parseParallel(options, CollectionDaemon.DEFAULT_MAX_PARALLEL);
+        long port = parseNonNegative(options, "--control-port", DaemonControlServer.DEFAULT_PORT);
+        if (port > 65535) {
+            System.err.println("ERROR: --control-port expects a port number up to 65535, got: " + port);
+        }
+        if (intervalSeconds < 0 || maxParallel <= 0 || port < 0 || port > 65535) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        Map<String, Long> overrides;
+        try {
+            overrides = CollectionDaemon.parseSchedule(options.get("--schedule"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
             System.out.println("INFO: Log Extractor finished with errors.");
             return;
         }
-        System.out.println("INFO: Using output directory: " + outputDir.getAbsolutePath());
 
+        // No prompt: a daemon usually runs without anyone at the console
+        String outputDirArg = positionalArgs.isEmpty() ? System.getProperty("user.home") + File.separator + DEFAULT_OUTPUT_DIR_NAME : positionalArgs.get(0);
+        File outputDir = resolveOutputDirectory(outputDirArg, null);
+        if (outputDir == null) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
 
-        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        String safeDeviceName = targetDevice != null ? targetDevice.replaceAll("[^a-zA-Z0-9_-]", "_") : "default";
-        String outputFileName = "ivi_logcat_" + safeDeviceName + "_" + timestamp + ".txt";
+        CollectionDaemon daemon = new CollectionDaemon(adbHelper, outputDir, TimeUnit.SECONDS.toMillis(intervalSeconds), overrides, maxParallel);
+        DaemonControlServer control;
+        try {
+            control = new DaemonControlServer(daemon, (int) port, new File(outputDir, DaemonControlServer.TOKEN_FILE_NAME));
+        } catch (IOException e) {
+            System.err.println("ERROR: Cannot open the control endpoint on port " + port + ": " + e.getMessage());
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        DeviceRegistry registry = startDeviceRegistry(adbHelper);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("INFO: Stopping collection daemon...");
+            control.stop();
+            daemon.stop();
+        }, "collection-daemon-shutdown"));
+        daemon.start(registry);
+        control.start();
+        System.out.println("INFO: Collecting until stopped with Ctrl+C.");
+        try {
+            new CountDownLatch(1).await(); // The work happens on the daemon's threads
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        System.out.println("INFO: Starting logcat extraction...");
-        System.out.println("INFO: Logs will be saved to: " + new File(outputDir, outputFileName).getAbsolutePath());
+    /**
+     * Dumps several logcat buffers concurrently into one file each, optionally merging them by timestamp ("--buffers" mode).
+     */
+    private static void runBuffers(AdbHelper adbHelper, String targetDevice, File outputDir, String timestamp, List<String> buffers, boolean merge) {
+        MultiBufferExtractor extractor = new MultiBufferExtractor(adbHelper);
+        long startNanos = System.nanoTime();
+        List<MultiDeviceExtractor.DeviceResult> results;
+        try {
+            results = extractor.extractBuffers(targetDevice, outputDir.getAbsolutePath(), timestamp, buffers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("ERROR: Buffer extraction was interrupted.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        MultiDeviceExtractor.printSummary(results, System.nanoTime() - startNanos, "buffer(s)");
 
-        // AdbHelper.extractLogcat now prints its own INFO/ERROR messages.
-        File logFile = adbHelper.extractLogcat(targetDevice, outputDir.getAbsolutePath(), outputFileName);
+        boolean allSucceeded = true;
+        for (MultiDeviceExtractor.DeviceResult result : results) {
+            allSucceeded &= result.isSuccess();
+        }
+        if (merge) {
+            File mergedFile = new File(outputDir, MultiBufferExtractor.buildBufferFileName(targetDevice, timestamp, "merged", OutputFormat.TEXT));
+            long mergeStartNanos = System.nanoTime();
+            try {
+                long lines = MultiBufferExtractor.mergeByTimestamp(MultiBufferExtractor.successfulFiles(results), mergedFile);
+                System.out.println("INFO: Merged " + lines + " lines by timestamp into " + mergedFile.getAbsolutePath() + " "
+                        + AdbHelper.formatThroughput(mergedFile.length(), System.nanoTime() - mergeStartNanos) + ".");
+            } catch (IOException e) {
+                System.err.println("ERROR: Failed to merge buffer files: " + e.getMessage());
+                allSucceeded = false;
+            }
+        }
+        System.out.println(allSucceeded ? "INFO: Log Extractor finished successfully." : "INFO: Log Extractor finished with errors.");
+    }
 
-        if (logFile != null && logFile.exists()) {
-            System.out.println("SUCCESS: Log extraction successful!");
-            System.out.println("SUCCESS: Log file saved at: " + logFile.getAbsolutePath());
+    /**
+     * Keeps logcat running and writes it into rotating segment files until the JVM is stopped ("--follow" mode).
+     */
+    private static void runFollow(AdbHelper adbHelper, String targetDevice, File outputDir, String timestamp, Map<String, String> options) {
+        long rotateSizeMb = parseNonNegative(options, "--rotate-size", DEFAULT_ROTATE_SIZE_MB);
+        long rotateMinutes = parseNonNegative(options, "--rotate-minutes", DEFAULT_ROTATE_MINUTES);
+        long maxTotalMb = parseNonNegative(options, "--max-total", DEFAULT_MAX_TOTAL_MB);
+        long syncIntervalMillis = parseNonNegative(options, "--sync-interval", DurableLogWriter.DEFAULT_SYNC_INTERVAL_MILLIS);
+        if (rotateSizeMb < 0 || rotateMinutes < 0 || maxTotalMb < 0 || syncIntervalMillis < 0) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        RotatingLogWriter writer = new RotatingLogWriter(outputDir, LogcatFollower.segmentBaseName(targetDevice, timestamp),
+                rotateSizeMb * MEGABYTE, TimeUnit.MINUTES.toMillis(rotateMinutes), maxTotalMb * MEGABYTE, syncIntervalMillis);
+        // Lets a capture killed by a crash or power loss carry on in its last file when started again
+        LogcatCheckpoint journal = LogcatCheckpoint.journalForDevice(outputDir, targetDevice);
+        final LogcatFollower follower = new LogcatFollower(adbHelper, targetDevice, writer, journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("INFO: Stopping live capture...");
+            follower.stop();
+            try {
+                follower.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "logcat-follow-shutdown"));
+
+        System.out.println("INFO: Following logcat (rotate at " + rotateSizeMb + " MB or " + rotateMinutes + " min, keep at most "
+                + maxTotalMb + " MB, sync to disk every " + syncIntervalMillis + " ms; 0 = unlimited). Press Ctrl+C to stop.");
+        try {
+            follower.run();
             System.out.println("INFO: Log Extractor finished successfully.");
+        } catch (IOException e) {
+            System.err.println("ERROR: Live capture failed while writing log files: " + e.getMessage());
+            System.out.println("INFO: Log Extractor finished with errors.");
+        }
+    }
+
+    /**
+     * Decompresses a framed (".txt.fz") log file next to itself, using all cores, or rebuilds a deduplicated
+     * (".txt.dedup") one from its chunk store ("--decompress" mode).
+     */
+    private static void runDecompress(String inputPath) {
+        File input = new File(inputPath);
+        if (inputPath.isEmpty() || !input.isFile()) {
+            System.err.println("ERROR: --decompress expects an existing .txt.fz or .txt.dedup file, got: '" + inputPath + "'");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        String name = input.getName();
+        boolean dedup = name.endsWith(OutputFormat.DEDUP.getExtension());
+        String extension = dedup ? OutputFormat.DEDUP.getExtension() : OutputFormat.FRAMED.getExtension();
+        String outputName = name.endsWith(extension)
+                ? name.substring(0, name.length() - extension.length()) + OutputFormat.TEXT.getExtension()
+                : name + OutputFormat.TEXT.getExtension();
+        File output = new File(input.getAbsoluteFile().getParentFile(), outputName);
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (dedup) {
+            System.out.println("INFO: Restoring " + input.getAbsolutePath() + " from " + DedupArchive.storeDirectoryFor(input.toPath()) + "...");
         } else {
-            System.err.println("ERROR: Log extraction failed. Please check the console for ADB errors or file system issues.");
-            System.err.println("ERROR: Ensure 'adb' is in your system PATH and the connected device remains authorized and operational during extraction.");
+            System.out.println("INFO: Decompressing " + input.getAbsolutePath() + " using " + threads + " thread(s)...");
+        }
+
+        long startNanos = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), 1024 * 1024)) {
+            long bytes = dedup ? DedupArchive.restore(input, out) : new FramedDeflateReader(input).decompress(out, threads);
+            System.out.println("INFO: " + (dedup ? "Restored " : "Decompressed ") + bytes + " bytes " + AdbHelper.formatThroughput(bytes, System.nanoTime() - startNanos) + ".");
+        } catch (IOException | InterruptedException e) {
+            System.err.println("ERROR: Failed to " + (dedup ? "restore " : "decompress ") + input.getAbsolutePath() + ": " + e.getMessage());
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        System.out.println("SUCCESS: " + (dedup ? "Restored" : "Decompressed") + " log saved at: " + output.getAbsolutePath());
+        System.out.println("INFO: Log Extractor finished successfully.");
+    }
+
+    /**
+     * Builds the sidecar index for an extracted text log ("--index" mode).
+     */
+    private static void runIndex(String logPath) {
+        File logFile = new File(logPath);
+        if (logPath.isEmpty() || !logFile.isFile()) {
+            System.err.println("ERROR: --index expects an existing log file, got: '" + logPath + "'");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        System.out.println("INFO: Indexing " + logFile.getAbsolutePath() + "...");
+        long startNanos = System.nanoTime();
+        try {
+            LogIndex index = LogIndex.build(logFile);
+            File indexFile = LogIndex.indexFileFor(logFile);
+            index.write(indexFile);
+            System.out.println("INFO: Indexed " + logFile.length() + " bytes " + AdbHelper.formatThroughput(logFile.length(), System.nanoTime() - startNanos)
+                    + ": " + index.getBlockCount() + " blocks, " + index.getTagCount() + " tags.");
+            System.out.println("SUCCESS: Index saved at: " + indexFile.getAbsolutePath() + " (" + indexFile.length() + " bytes)");
+            System.out.println("INFO: Log Extractor finished successfully.");
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to index " + logFile.getAbsolutePath() + ": " + e.getMessage());
+            System.out.println("INFO: Log Extractor finished with errors.");
+        }
+    }
+
+    /**
+     * Prints per-tag, per-pid, per-level and per-minute volumes of an extracted text log ("--analyze" mode).
+     */
+    private static void runAnalyze(Map<String, String> options) {
+        String logPath = options.get("--analyze");
+        File logFile = new File(logPath);
+        if (logPath.isEmpty() || !logFile.isFile()) {
+            System.err.println("ERROR: --analyze expects an existing log file, got: '" + logPath + "'");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        int threads = parseParallel(options, Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARALLEL));
+        long top = parseNonNegative(options, "--top", DEFAULT_TOP);
+        if (top == 0) {
+            System.err.println("ERROR: --top expects a positive number, got: 0");
+        }
+        if (threads <= 0 || top <= 0) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        System.out.println("INFO: Analyzing " + logFile.getAbsolutePath() + " with " + threads + " thread(s)...");
+        long startNanos = System.nanoTime();
+        try {
+            LogAnalysis analysis = LogAnalyzer.analyze(logFile, threads);
+            System.out.println("INFO: Analyzed " + logFile.length() + " bytes " + AdbHelper.formatThroughput(logFile.length(), System.nanoTime() - startNanos) + ".");
+            System.out.println();
+            analysis.writeReport(System.out, (int) Math.min(top, Integer.MAX_VALUE));
+            System.out.println();
+            System.out.println("INFO: Log Extractor finished successfully.");
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to analyze " + logFile.getAbsolutePath() + ": " + e.getMessage());
             System.out.println("INFO: Log Extractor finished with errors.");
         }
+    }
+
+    /**
+     * Prints the lines of an indexed log that match a tag and/or time range ("--query" mode).
+     * Matching lines go to standard output; progress and statistics go to standard error so the output can be piped.
+     */
+    private static void runQuery(Map<String, String> options) {
+        File logFile = new File(options.get("--query"));
+        String tag = options.get("--tag");
+        String level = options.getOrDefault("--level", "V");
+        if (level.length() != 1) {
+            System.err.println("ERROR: --level expects one of V, D, I, W, E, F, A, got: " + level);
+            System.err.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        long from;
+        long to;
+        try {
+            from = options.containsKey("--from") ? LogcatLineParser.parseTimestampKey(options.get("--from"), false) : Long.MIN_VALUE;
+            to = options.containsKey("--to") ? LogcatLineParser.parseTimestampKey(options.get("--to"), true) : Long.MAX_VALUE;
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.err.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            LogIndexQuery query = LogIndexQuery.open(logFile);
+            OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+            long matches = query.query(tag != null && !tag.isEmpty() ? tag : null, level.charAt(0), from, to, out);
+            double millis = (System.nanoTime() - startNanos) / 1_000_000.0;
+            System.err.println(String.format("INFO: %d matching line(s) in %.1f ms, read %d block(s) / %d bytes of %d.",
+                    matches, millis, query.getBlocksRead(), query.getBytesScanned(), logFile.length()));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("ERROR: Query failed: " + e.getMessage());
+            System.err.println("INFO: Log Extractor finished with errors.");
+        }
+    }
+
+    /**
+     * Reads a non-negative whole-number option.
+     *
+     * @return The option value, the default if absent, or -1 (after printing an error) if it is invalid.
+     */
+    private static long parseNonNegative(Map<String, String> options, String name, long defaultValue) {
+        String value = options.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("ERROR: " + name + " expects a non-negative number, got: " + value);
+        return -1;
+    }
+
+    /**
+     * Reads the "--parallel" option, shared by every mode that runs work concurrently.
+     *
+     * @return The option value, the default if absent, or -1 (after printing an error) if it is not a number
+     *         from 1 to {@link #MAX_PARALLEL}.
+     */
+    private static int parseParallel(Map<String, String> options, int defaultValue) {
+        String value = options.get("--parallel");
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= 1 && parsed <= MAX_PARALLEL) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("ERROR: --parallel expects a number from 1 to " + MAX_PARALLEL + ", got: " + value);
+        return -1;
+    }
+
+    /**
+     * Collects diagnostic bundles (bugreport, tombstones, ANR traces, dropbox, logcat) into one ZIP per device
+     * ("--bundle" mode), from one device or, with "--all", from every operational device.
+     */
+    private static void runBundle(AdbHelper adbHelper, Map<String, String> options, List<String> positionalArgs) {
+        if (options.containsKey("--follow") || options.containsKey("--incremental") || options.containsKey("--buffers")) {
+            System.err.println("ERROR: --bundle is not supported together with --follow, --incremental or --buffers.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        int maxParallel = parseParallel(options, DiagnosticBundleJob.DEFAULT_MAX_PARALLEL);
+        if (maxParallel < 0) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        DiagnosticBundleJob job = new DiagnosticBundleJob(adbHelper, maxParallel);
+        List<DiagnosticBundleJob.Artifact> artifacts;
+        try {
+            artifacts = DiagnosticBundleJob.parseArtifacts(options.get("--bundle"));
+            if (options.containsKey("--bundle-timeouts")) {
+                job.setTimeouts(options.get("--bundle-timeouts"));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        List<String> serials;
+        String outputDirArg;
+        if (options.containsKey("--all")) {
+            try {
+                serials = new MultiDeviceExtractor(adbHelper, 1).findOperationalDevices();
+            } catch (IOException | InterruptedException e) {
+                System.err.println("ERROR: Error checking for ADB devices: " + e.getMessage());
+                System.out.println("INFO: Log Extractor finished with errors.");
+                return;
+            }
+            outputDirArg = positionalArgs.isEmpty() ? null : positionalArgs.get(0);
+        } else {
+            String targetDevice = positionalArgs.isEmpty() ? null : positionalArgs.get(0);
+            serials = adbHelper.isDeviceConnected(targetDevice) ? Collections.singletonList(targetDevice) : Collections.<String>emptyList();
+            outputDirArg = positionalArgs.size() > 1 ? positionalArgs.get(1) : null;
+        }
+        if (serials.isEmpty()) {
+            System.err.println("ERROR: Pre-requisite check failed: No operational Android device/emulator found.");
+            System.err.println("ERROR: You can check connected devices by running 'adb devices' in your terminal.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
+        File outputDir = resolveOutputDirectory(outputDirArg, scanner);
         scanner.close();
+        if (outputDir == null) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        List<MultiDeviceExtractor.DeviceResult> results;
+        try {
+            results = job.collect(serials, artifacts, outputDir.getAbsolutePath());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("ERROR: Bundle collection was interrupted.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        MultiDeviceExtractor.printSummary(results, System.nanoTime() - startNanos, "bundle(s)");
+
+        boolean allSucceeded = job.getFailedArtifacts() == 0;
+        for (MultiDeviceExtractor.DeviceResult result : results) {
+            allSucceeded &= result.isSuccess();
+        }
+        if (job.getFailedArtifacts() > 0) {
+            System.err.println("ERROR: " + job.getFailedArtifacts() + " artifact(s) could not be collected; see " + DiagnosticBundleJob.REPORT_ENTRY
+                    + " in each bundle.");
+        }
+        System.out.println(allSucceeded ? "INFO: Log Extractor finished successfully." : "INFO: Log Extractor finished with errors.");
+    }
+
+    /**
+     * Extracts logcat from every operational device in parallel ("--all" mode).
+     */
+    private static void runAllDevices(AdbHelper adbHelper, Map<String, String> options, List<String> positionalArgs) {
+        int maxParallel = parseParallel(options, MultiDeviceExtractor.DEFAULT_MAX_PARALLEL);
+        if (maxParallel < 0) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        MultiDeviceExtractor extractor = new MultiDeviceExtractor(adbHelper, maxParallel);
+        List<String> serials;
+        try {
+            serials = extractor.findOperationalDevices();
+        } catch (IOException | InterruptedException e) {
+            System.err.println("ERROR: Error checking for ADB devices: " + e.getMessage());
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        if (serials.isEmpty()) {
+            System.err.println("ERROR: Pre-requisite check failed: No operational Android device/emulator found.");
+            System.err.println("ERROR: You can check connected devices by running 'adb devices' in your terminal.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        System.out.println("INFO: Found " + serials.size() + " operational device(s): " + String.join(", ", serials));
+
+        Scanner scanner = new Scanner(System.in);
+        File outputDir = resolveOutputDirectory(positionalArgs.isEmpty() ? null : positionalArgs.get(0), scanner);
+        scanner.close();
+        if (outputDir == null) {
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        List<MultiDeviceExtractor.DeviceResult> results;
+        try {
+            results = extractor.extractAll(serials, outputDir.getAbsolutePath());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("ERROR: Multi-device extraction was interrupted.");
+            System.out.println("INFO: Log Extractor finished with errors.");
+            return;
+        }
+        MultiDeviceExtractor.printSummary(results, System.nanoTime() - startNanos);
+
+        boolean allSucceeded = true;
+        for (MultiDeviceExtractor.DeviceResult result : results) {
+            allSucceeded &= result.isSuccess();
+        }
+        System.out.println(allSucceeded ? "INFO: Log Extractor finished successfully." : "INFO: Log Extractor finished with errors.");
     }
 
     private static void printHelp() {
         System.out.println("Android IVI Log Extractor - Help");
         System.out.println("---------------------------------");
         System.out.println("Usage: java -jar LogExtractor.jar [device_id] [output_directory]");
+        System.out.println("       java -jar LogExtractor.jar --incremental [device_id] [output_directory]");
+        System.out.println("       java -jar LogExtractor.jar --all [--parallel=N] [output_directory]");
+        System.out.println("       java -jar LogExtractor.jar --buffers=main,system,crash [--merge] [device_id] [output_directory]");
+        System.out.println("       java -jar LogExtractor.jar --bundle[=LIST] [--all] [--parallel=N] [device_id] [output_directory]");
+        System.out.println("       java -jar LogExtractor.jar --decompress=<file.txt.fz|file.txt.dedup>");
+        System.out.println("       java -jar LogExtractor.jar --index=<log.txt>");
+        System.out.println("       java -jar LogExtractor.jar --query=<log.txt> [--tag=TAG] [--level=L] [--from=TIME] [--to=TIME]");
+        System.out.println("       java -jar LogExtractor.jar --analyze=<log.txt> [--top=N] [--parallel=N]");
+        System.out.println("       java -jar LogExtractor.jar --daemon[=SECONDS] [--schedule=LIST] [--parallel=N] [--control-port=PORT] [output_directory]");
+        System.out.println("       java -jar LogExtractor.jar --follow [--rotate-size=MB] [--rotate-minutes=N] [--max-total=MB] [--sync-interval=MS] [device_id] [output_directory]");
         System.out.println("\nArguments:");
         System.out.println("  [device_id]        (Optional) The serial ID of the ADB device/emulator to target (e.g., emulator-5554).");
         System.out.println("                     If not specified, the tool will use the first available operational device.");
@@ -111,6 +795,56 @@ public class Main {
         System.out.println("                     If not specified, prompts the user, defaulting to '~/ivi_logs' (user's home directory).");
         System.out.println("\nOptions:");
         System.out.println("  -h, --help         Show this help message and exit.");
+        System.out.println("  --incremental      Append only the lines logged since the previous --incremental run to");
+        System.out.println("                     'ivi_logcat_<device>_incremental.txt'. The position is kept in a checkpoint file.");
+        System.out.println("  -a, --all          Extract from every device in 'device' state at the same time, one file per device.");
+        System.out.println("  --parallel=N       With --all, the maximum number of devices extracted concurrently (default: " + MultiDeviceExtractor.DEFAULT_MAX_PARALLEL + ").");
+        System.out.println("  --format=FORMAT    Output format for dumps: text (default), gzip (.txt.gz), framed (.txt.fz,");
+        System.out.println("                     independently compressed blocks that can be decompressed in parallel) or dedup");
+        System.out.println("                     (.txt.dedup manifest; content already stored by earlier dumps in 'chunks/' is not");
+        System.out.println("                     written again).");
+        System.out.println("  --transfer=MODE    How dumps travel from the device: text (default), gzip (compressed on the device,");
+        System.out.println("                     needs gzip there, Android 9+) or binary (logcat -B, formatted on the host).");
+        System.out.println("  --dump-timeout=SECONDS  Stop a logcat dump that has not finished after SECONDS and discard it (default: "
+                + TimeUnit.MILLISECONDS.toSeconds(AdbHelper.DUMP_TIMEOUT_MILLIS) + ", 0 = no limit).");
+        System.out.println("  --buffers=LIST     Dump these logcat buffers (comma-separated: " + String.join(",", MultiBufferExtractor.KNOWN_BUFFERS) + ")");
+        System.out.println("                     at the same time, one adb process and one file per buffer.");
+        System.out.println("  --merge            With --buffers, also merge the buffer files by timestamp into one '_merged' file.");
+        System.out.println("  --bundle[=LIST]    Collect a diagnostic bundle into 'ivi_bundle_<device>_<timestamp>.zip': any of");
+        System.out.println("                     bugreport,tombstones,anr,dropbox,logcat (default: all). With --all, one ZIP per device;");
+        System.out.println("                     --parallel=N limits the pulls running at once (default: " + DiagnosticBundleJob.DEFAULT_MAX_PARALLEL + ").");
+        System.out.println("  --bundle-timeouts=LIST  Per-artifact deadlines in seconds, e.g. bugreport:1200,anr:60.");
+        System.out.println("  --jmx              Publish extraction totals and the latest timings over JMX (" + ExtractionStats.OBJECT_NAME + ").");
+        System.out.println("  --decompress=FILE  Decompress a framed .txt.fz log into a .txt file next to it, using all cores,");
+        System.out.println("                     or rebuild a .txt.dedup log from its chunk store.");
+        System.out.println("  --filter=SPECS     Keep only matching tags/levels, e.g. --filter=\"AudioHAL:W CarService:W *:E\".");
+        System.out.println("                     Applied by logcat on the device, so dropped lines are not transferred.");
+        System.out.println("  --pid=PIDS         Keep only lines from these process ids (comma-separated).");
+        System.out.println("  --match=TEXT       Keep only lines whose message contains TEXT.");
+        System.out.println("  --regex=PATTERN    Keep only lines whose message contains a match for PATTERN (Java regex).");
+        System.out.println("  --index=FILE       Build a sidecar index (FILE.idx) of time ranges and tags for a threadtime text log.");
+        System.out.println("  --query=FILE       Print the lines of an indexed log matching --tag, --level (minimum priority, e.g. W)");
+        System.out.println("                     and/or --from/--to, reading only the blocks that can match. TIME is 'MM-DD HH:MM[:SS[.mmm]]'.");
+        System.out.println("  --analyze=FILE     Report lines and bytes per tag, pid, level and minute of a threadtime text log,");
+        System.out.println("                     with the top spammers and error rates. Uses all cores (--parallel=N to limit).");
+        System.out.println("  --top=N            With --analyze, the rows per top list (default: " + DEFAULT_TOP + ").");
+        System.out.println("  --follow           Keep logcat running and write it into rotating files until stopped with Ctrl+C.");
+        System.out.println("                     Reconnects and resumes from the last captured line if the device drops off, and");
+        System.out.println("                     carries on in the last file if a previous capture was killed (crash, power loss).");
+        System.out.println("  --rotate-size=MB   With --follow, start a new file once the current one reaches this size (default: " + DEFAULT_ROTATE_SIZE_MB + ", 0 = off).");
+        System.out.println("  --rotate-minutes=N With --follow, start a new file once the current one is this old (default: " + DEFAULT_ROTATE_MINUTES + ", 0 = off).");
+        System.out.println("  --max-total=MB     With --follow, delete the oldest files once all files exceed this size (default: " + DEFAULT_MAX_TOTAL_MB + ", 0 = unlimited).");
+        System.out.println("  --sync-interval=MS With --follow, force captured lines to disk at most this often (default: "
+                + DurableLogWriter.DEFAULT_SYNC_INTERVAL_MILLIS + ", 0 = only when a file is closed).");
+        System.out.println("  --daemon[=SECONDS] Keep running and dump logcat from every operational device every SECONDS (default: "
+                + CollectionDaemon.DEFAULT_INTERVAL_SECONDS + ", 0 = only on request),");
+        System.out.println("                     jittered so devices are not all collected at once. --parallel=N limits the dumps");
+        System.out.println("                     running at once (default: " + CollectionDaemon.DEFAULT_MAX_PARALLEL + "). Saves to output_directory without prompting.");
+        System.out.println("  --schedule=LIST    With --daemon, per-device intervals in seconds, e.g. R58M726X7XN:300,emulator-5554:0.");
+        System.out.println("  --control-port=N   With --daemon, the localhost HTTP port for listing (GET /jobs), triggering");
+        System.out.println("                     (POST /jobs?device=ID) and cancelling (DELETE /jobs/ID) jobs (default: " + DaemonControlServer.DEFAULT_PORT + ").");
+        System.out.println("                     Requests need \"Authorization: Bearer TOKEN\", with TOKEN read from");
+        System.out.println("                     output_directory/" + DaemonControlServer.TOKEN_FILE_NAME + " (only readable by you).");
         System.out.println("\nExamples:");
         System.out.println("  java -jar LogExtractor.jar");
         System.out.println("    (Prompts for output directory, uses first available device)");
@@ -120,6 +854,14 @@ public class Main {
         System.out.println("    (Uses first available device, saves to '/path/to/my/custom_logs')");
         System.out.println("\n  java -jar LogExtractor.jar R58M726X7XN D:\\AndroidLogs");
         System.out.println("    (Targets device 'R58M726X7XN', saves to 'D:\\AndroidLogs')");
+        System.out.println("\n  java -jar LogExtractor.jar --all --parallel=4 /var/logs/ivi_dumps");
+        System.out.println("    (Extracts from all operational devices, 4 at a time, and prints a per-device summary)");
+        System.out.println("\n  java -jar LogExtractor.jar --daemon=600 --schedule=R58M726X7XN:120 /var/logs/ivi_dumps");
+        System.out.println("    (Dumps every device every 10 minutes, R58M726X7XN every 2. To dump it now:");
+        System.out.println("     curl -H \"Authorization: Bearer $(cat /var/logs/ivi_dumps/" + DaemonControlServer.TOKEN_FILE_NAME + ")\" \\");
+        System.out.println("          -X POST \"http://127.0.0.1:" + DaemonControlServer.DEFAULT_PORT + "/jobs?device=R58M726X7XN\")");
+        System.out.println("\n  java -jar LogExtractor.jar --transfer=gzip R58M726X7XN");
+        System.out.println("    (Has the device compress the log before it crosses USB; the file written is plain text)");
         System.out.println("\nPrerequisites:");
         System.out.println("  - Java Runtime Environment (JRE) installed.");
         System.out.println("  - Android Debug Bridge (adb) installed and in your system's PATH.");
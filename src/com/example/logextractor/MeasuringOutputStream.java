@@ -0,0 +1,30 @@
+package com.example.logextractor;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes output through unchanged while counting it into an {@link ExtractionMetrics}. Placed directly
+ * behind the ADB reader, so the counts describe what the device sent, before any filtering or compression.
+ */
+class MeasuringOutputStream extends FilterOutputStream {
+
+    private final ExtractionMetrics metrics;
+
+    MeasuringOutputStream(OutputStream out, ExtractionMetrics metrics) {
+        super(out);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        metrics.addOutput(bytes, offset, length);
+        out.write(bytes, offset, length);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Dumps several logcat buffers ("-b main", "-b crash", ...) from one device at the same time, each through
+ * its own adb process into its own file, so the total time is about that of the slowest buffer.
+ * The per-buffer files can then be merged by timestamp into one combined file.
+ */
+public class MultiBufferExtractor {
+
+    public static final List<String> KNOWN_BUFFERS = Collections.unmodifiableList(Arrays.asList(
+            "main", "system", "crash", "events", "radio", "kernel", "security"));
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final AdbHelper adbHelper;
+
+    public MultiBufferExtractor(AdbHelper adbHelper) {
+        this.adbHelper = adbHelper;
+    }
+
+    /**
+     * Parses a comma-separated buffer list such as "main,system,crash".
+     *
+     * @throws IllegalArgumentException If the list is empty or names an unknown or repeated buffer.
+     */
+    public static List<String> parseBuffers(String bufferList) {
+        List<String> buffers = new ArrayList<>();
+        if (bufferList != null) {
+            for (String buffer : bufferList.trim().split("\\s*,\\s*")) {
+                if (buffer.isEmpty()) {
+                    continue;
+                }
+                if (!KNOWN_BUFFERS.contains(buffer)) {
+                    throw new IllegalArgumentException("Unknown logcat buffer '" + buffer + "'; use any of " + String.join(",", KNOWN_BUFFERS) + ".");
+                }
+                if (buffers.contains(buffer)) {
+                    throw new IllegalArgumentException("Buffer listed twice: " + buffer);
+                }
+                buffers.add(buffer);
+            }
+        }
+        if (buffers.isEmpty()) {
+            throw new IllegalArgumentException("No logcat buffers given.");
+        }
+        return buffers;
+    }
+
+    /**
+     * @return The file name for one buffer of a multi-buffer dump, e.g. "ivi_logcat_emu_20240101_120000_crash.txt".
+     */
+    public static String buildBufferFileName(String targetDevice, String timestamp, String buffer, OutputFormat format) {
+        return AdbHelper.buildLogFileName(targetDevice, timestamp + "_" + buffer, format);
+    }
+
+    /**
+     * Dumps the given buffers concurrently, one adb process per buffer. The device is not checked first.
+     *
+     * @param targetDevice The device to extract from (can be null).
+     * @param outputDirectory The directory where the log files should be saved.
+     * @param timestamp The timestamp used in the file names.
+     * @param buffers The logcat buffers to dump.
+     * @return One result per buffer, in the same order as the given buffers; a failed buffer has a null log file.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public List<MultiDeviceExtractor.DeviceResult> extractBuffers(String targetDevice, String outputDirectory, String timestamp,
+            List<String> buffers) throws InterruptedException {
+        System.out.println("INFO: Extracting " + buffers.size() + " logcat buffer(s) concurrently: " + String.join(", ", buffers));
+        ExecutorService pool = Executors.newFixedThreadPool(buffers.size(), new MultiDeviceExtractor.WorkerThreadFactory("logcat-buffer-"));
+        List<Future<MultiDeviceExtractor.DeviceResult>> futures = new ArrayList<>();
+        try {
+            for (final String buffer : buffers) {
+                futures.add(pool.submit(() -> {
+                    long startNanos = System.nanoTime();
+                    ExtractionMetrics metrics = new ExtractionMetrics(targetDevice);
+                    // Threadtime output carries the full timestamp the merge orders by
+                    File logFile = adbHelper.streamLogcatToFile(targetDevice, outputDirectory,
+                            buildBufferFileName(targetDevice, timestamp, buffer, adbHelper.getOutputFormat()),
+                            Arrays.asList("-b", buffer, "-v", "threadtime"), metrics, 0);
+                    long elapsedNanos = System.nanoTime() - startNanos;
+                    return new MultiDeviceExtractor.DeviceResult(buffer, logFile, logFile != null ? metrics.getBytes() : 0L, elapsedNanos);
+                }));
+            }
+
+            List<MultiDeviceExtractor.DeviceResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    System.err.println("ERROR: Extraction of buffer " + buffers.get(i) + " failed: " + e.getCause());
+                    results.add(new MultiDeviceExtractor.DeviceResult(buffers.get(i), null, 0L, 0L));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges threadtime text logs, each already in time order, into one file ordered by timestamp.
+     * Lines with equal timestamps keep the order of the input files. Lines without a timestamp
+     * (e.g. "--------- beginning of crash") stay with the line before them.
+     *
+     * @return The number of lines written.
+     * @throws IOException If reading an input or writing the output fails.
+     */
+    public static long mergeByTimestamp(List<File> inputs, File output) throws IOException {
+        PriorityQueue<MergeCursor> queue = new PriorityQueue<>(Math.max(1, inputs.size()));
+        List<MergeCursor> cursors = new ArrayList<>();
+        long lines = 0;
+        try (OutputStream out = OutputFormat.TEXT.open(output.toPath())) {
+            for (int i = 0; i < inputs.size(); i++) {
+                MergeCursor cursor = new MergeCursor(new FileInputStream(inputs.get(i)), i);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                MergeCursor cursor = queue.poll();
+                out.write(cursor.line, 0, cursor.lineLength);
+                lines++;
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            for (MergeCursor cursor : cursors) {
+                cursor.in.close();
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Reads one input of the merge a line at a time, through its own buffer, remembering the current line and its timestamp key.
+     */
+    private static final class MergeCursor implements Comparable<MergeCursor> {
+        private final InputStream in;
+        private final int order; // Tie-breaker: position in the input list
+        private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+        private int readPosition;
+        private int readLimit;
+        private byte[] line = new byte[1024];
+        private int lineLength;
+        private long key = Long.MIN_VALUE; // Until the first timestamp, so a leading banner comes out first
+
+        MergeCursor(InputStream in, int order) {
+            this.in = in;
+            this.order = order;
+        }
+
+        /**
+         * Moves to the next line.
+         *
+         * @return false at the end of the input.
+         */
+        boolean advance() throws IOException {
+            lineLength = 0;
+            while (true) {
+                if (readPosition == readLimit) {
+                    readLimit = in.read(readBuffer);
+                    readPosition = 0;
+                    if (readLimit <= 0) {
+                        readLimit = 0;
+                        break;
+                    }
+                }
+                int start = readPosition;
+                while (readPosition < readLimit && readBuffer[readPosition] != '\n') {
+                    readPosition++;
+                }
+                boolean complete = readPosition < readLimit;
+                if (complete) {
+                    readPosition++; // Keep the terminator
+                }
+                append(start, readPosition - start);
+                if (complete) {
+                    break;
+                }
+            }
+            if (lineLength == 0) {
+                return false;
+            }
+            if (line[lineLength - 1] != '\n') {
+                // Terminate an unterminated last line so it cannot run into a line from another input
+                ensureCapacity(lineLength + 1);
+                line[lineLength++] = '\n';
+            }
+            long lineKey = LogcatLineParser.timestampKey(line, 0, lineLength);
+            if (lineKey >= 0) {
+                key = lineKey;
+            }
+            return true;
+        }
+
+        private void append(int start, int length) {
+            ensureCapacity(lineLength + length);
+            System.arraycopy(readBuffer, start, line, lineLength, length);
+            lineLength += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, capacity));
+            }
+        }
+
+        @Override
+        public int compareTo(MergeCursor other) {
+            int byKey = Long.compare(key, other.key);
+            return byKey != 0 ? byKey : Integer.compare(order, other.order);
+        }
+    }
+
+    /**
+     * @return The log files of the buffers that were extracted successfully, in buffer order.
+     */
+    static List<File> successfulFiles(List<MultiDeviceExtractor.DeviceResult> results) {
+        List<File> files = new ArrayList<>();
+        for (MultiDeviceExtractor.DeviceResult result : results) {
+            if (result.isSuccess()) {
+                files.add(result.getLogFile());
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts logcat from every attached device in the "device" state at the same time.
+ * Each device is handled by a worker from a bounded pool and gets its own timestamped log file.
+ */
+public class MultiDeviceExtractor {
+
+    public static final int DEFAULT_MAX_PARALLEL = 8; // Upper bound on concurrent adb processes
+
+    private final AdbHelper adbHelper;
+    private final int maxParallel;
+
+    public MultiDeviceExtractor(AdbHelper adbHelper, int maxParallel) {
+        if (maxParallel < 1) {
+            throw new IllegalArgumentException("maxParallel must be at least 1, got " + maxParallel);
+        }
+        this.adbHelper = adbHelper;
+        this.maxParallel = maxParallel;
+    }
+
+    /**
+     * Outcome of the extraction for a single device.
+     */
+    public static class DeviceResult {
+        private final String serial;
+        private final File logFile;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        DeviceResult(String serial, File logFile, long bytes, long elapsedNanos) {
+            this.serial = serial;
+            this.logFile = logFile;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getSerial() {
+            return serial;
+        }
+
+        /** @return The saved log file, or null if the extraction failed. */
+        public File getLogFile() {
+            return logFile;
+        }
+
+        /** @return The log bytes extracted, before any compression or deduplication by the output format. */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** @return The size of the saved file on disk, or 0 if the extraction failed. */
+        public long getFileBytes() {
+            return logFile != null ? logFile.length() : 0L;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public boolean isSuccess() {
+            return logFile != null;
+        }
+    }
+
+    /**
+     * Returns the serials of all devices currently in the "device" state.
+     *
+     * @throws IOException If "adb devices" cannot be executed.
+     * @throws InterruptedException If the command execution is interrupted.
+     */
+    public List<String> findOperationalDevices() throws IOException, InterruptedException {
+        List<String> serials = new ArrayList<>();
+        for (Map.Entry<String, String> device : adbHelper.listDevices().entrySet()) {
+            if ("device".equalsIgnoreCase(device.getValue())) {
+                serials.add(device.getKey());
+            } else {
+                System.out.println("INFO: Skipping device " + device.getKey() + " in state: " + device.getValue());
+            }
+        }
+        return serials;
+    }
+
+    /**
+     * Extracts logcat from all given devices concurrently into the output directory.
+     *
+     * @param serials The devices to extract from.
+     * @param outputDirectory The directory where the log files should be saved.
+     * @return One result per device, in the same order as the given serials.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public List<DeviceResult> extractAll(List<String> serials, String outputDirectory) throws InterruptedException {
+        final String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        final String dir = outputDirectory;
+        int threads = Math.max(1, Math.min(maxParallel, serials.size()));
+        System.out.println("INFO: Extracting logcat from " + serials.size() + " device(s) using " + threads + " worker(s)...");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new WorkerThreadFactory("logcat-extractor-"));
+        List<Future<DeviceResult>> futures = new ArrayList<>();
+        try {
+            for (final String serial : serials) {
+                futures.add(pool.submit(() -> {
+                    long startNanos = System.nanoTime();
+                    ExtractionMetrics metrics = new ExtractionMetrics(serial);
+                    File logFile = adbHelper.streamLogcatToFile(serial, dir, AdbHelper.buildLogFileName(serial, timestamp, adbHelper.getOutputFormat()),
+                            Collections.<String>emptyList(), metrics, 0);
+                    long elapsedNanos = System.nanoTime() - startNanos;
+                    return new DeviceResult(serial, logFile, logFile != null ? metrics.getBytes() : 0L, elapsedNanos);
+                }));
+            }
+
+            List<DeviceResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    System.err.println("ERROR: Extraction for device " + serials.get(i) + " failed: " + e.getCause());
+                    results.add(new DeviceResult(serials.get(i), null, 0L, 0L));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints a per-device table of wall time and throughput, followed by the totals.
+     */
+    public static void printSummary(List<DeviceResult> results, long totalElapsedNanos) {
+        printSummary(results, totalElapsedNanos, "device(s)");
+    }
+
+    /**
+     * Prints the summary table, naming what each row stands for (e.g. "buffer(s)") in the totals line.
+     * Where the file on disk differs in size from the log (compressed, deduplicated or filtered), its size is shown too.
+     */
+    static void printSummary(List<DeviceResult> results, long totalElapsedNanos, String unit) {
+        System.out.println("INFO: ---- Extraction summary ----");
+        long totalBytes = 0;
+        int succeeded = 0;
+        for (DeviceResult result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+                totalBytes += result.getBytes();
+                long fileBytes = result.getFileBytes();
+                System.out.println(String.format("INFO: %-24s OK     %12d bytes %s -> %s%s", result.getSerial(), result.getBytes(),
+                        AdbHelper.formatThroughput(result.getBytes(), result.getElapsedNanos()), result.getLogFile().getName(),
+                        fileBytes != result.getBytes() ? " (" + fileBytes + " bytes on disk)" : ""));
+            } else {
+                System.out.println(String.format("INFO: %-24s FAILED", result.getSerial()));
+            }
+        }
+        System.out.println("INFO: " + succeeded + "/" + results.size() + " " + unit + " extracted, " + totalBytes + " bytes "
+                + AdbHelper.formatThroughput(totalBytes, totalElapsedNanos) + " overall.");
+    }
+
+    /**
+     * Creates numbered daemon threads, so a stuck adb process cannot keep the JVM alive.
+     */
+    static class WorkerThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        WorkerThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
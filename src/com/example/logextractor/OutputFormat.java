@@ -0,0 +1,85 @@
+package com.example.logextractor;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * File format for extracted logs. Compressed formats compress on a separate thread while the log
+ * streams in (see {@link AsyncCompressingOutputStream}).
+ */
+public enum OutputFormat {
+
+    /** Plain text, as produced by logcat. */
+    TEXT("text", ".txt"),
+    /** A single GZIP stream, readable with standard tools (zcat, gunzip). */
+    GZIP("gzip", ".txt.gz"),
+    /** Independently compressed frames that can be split and decompressed in parallel (see {@link FramedDeflateReader}). */
+    FRAMED("framed", ".txt.fz"),
+    /** A manifest of content-defined chunks kept once in a shared chunk store (see {@link DedupArchive}). */
+    DEDUP("dedup", ".txt.dedup");
+
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final String optionName;
+    private final String extension;
+
+    OutputFormat(String optionName, String extension) {
+        this.optionName = optionName;
+        this.extension = extension;
+    }
+
+    public String getOptionName() {
+        return optionName;
+    }
+
+    /**
+     * @return The file name extension, e.g. ".txt.gz".
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Opens a stream that writes the given file in this format. Closing it finishes compression (or, for
+     * {@link #DEDUP}, writes the manifest) and closes the file.
+     */
+    public OutputStream open(Path path) throws IOException {
+        if (this == DEDUP) {
+            // The manifest is only written on close; chunks go to the store as they are cut
+            return new AsyncCompressingOutputStream(new DedupOutputStream(path), "dedup-" + path.getFileName());
+        }
+        OutputStream file = Files.newOutputStream(path);
+        try {
+            switch (this) {
+                case GZIP:
+                    return new AsyncCompressingOutputStream(new GZIPOutputStream(file, FILE_BUFFER_SIZE), "gzip-" + path.getFileName());
+                case FRAMED:
+                    return new AsyncCompressingOutputStream(new FramedDeflateOutputStream(new BufferedOutputStream(file, FILE_BUFFER_SIZE)),
+                            "framed-" + path.getFileName());
+                default:
+                    return file;
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a format by its command-line name ("text", "gzip", "framed" or "dedup").
+     *
+     * @return The format, or null if the name is unknown.
+     */
+    public static OutputFormat fromOptionName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.optionName.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Splits a logcat byte stream into lines and forwards only the lines that {@link LogcatPosition}
+ * accepts, recording the position as it goes. Used to append just the new lines of a "logcat -T" run.
+ * An incomplete final line is held back until more bytes arrive or the stream is closed.
+ */
+public class PositionTrackingOutputStream extends LineSplittingOutputStream {
+
+    private final LogcatPosition position;
+    private long bytesWritten;
+
+    /**
+     * @param position The position to check lines against and update.
+     * @param out The stream receiving accepted lines. It is closed when this stream is closed.
+     */
+    public PositionTrackingOutputStream(LogcatPosition position, OutputStream out) {
+        super(out);
+        this.position = position;
+    }
+
+    /**
+     * @return The number of bytes forwarded downstream so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    protected void onLine(byte[] bytes, int offset, int length) throws IOException {
+        if (position.accept(bytes, offset, length)) {
+            out.write(bytes, offset, length);
+            bytesWritten += length;
+        }
+    }
+}
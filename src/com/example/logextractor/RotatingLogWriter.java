@@ -0,0 +1,208 @@
+package com.example.logextractor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Writes log lines into size- and time-bounded segment files named
+ * "ivi_logcat_&lt;device&gt;_&lt;timestamp&gt;_&lt;n&gt;.txt", deleting the oldest segments once the
+ * total size exceeds a cap. Each segment is written by a {@link DurableLogWriter}, which forces it to
+ * disk in group commits; segments only roll over on line boundaries. A capture interrupted by a crash
+ * can carry on in its last segment with {@link #resume(String, long)}.
+ */
+public class RotatingLogWriter implements Closeable {
+
+    private final File directory;
+    private String baseName;
+    private final long maxFileBytes;
+    private final long maxFileMillis;
+    private final long maxTotalBytes;
+    private final long syncIntervalMillis;
+
+    private final Deque<File> segments = new ArrayDeque<>();
+    private long closedSegmentsBytes;
+    private DurableLogWriter.CommitListener commitListener;
+
+    private DurableLogWriter channel;
+    private File currentFile;
+    private long currentBytes;
+    private long currentOpenedMillis;
+    private int segmentIndex;
+
+    /**
+     * @param directory The directory receiving the segment files.
+     * @param baseName The file name prefix, e.g. "ivi_logcat_emulator-5554_20240101_120000".
+     * @param maxFileBytes Roll over once a segment reaches this size (0 disables size-based rotation).
+     * @param maxFileMillis Roll over once a segment is this old (0 disables time-based rotation).
+     * @param maxTotalBytes Delete the oldest segments once all segments exceed this size (0 keeps everything).
+     */
+    public RotatingLogWriter(File directory, String baseName, long maxFileBytes, long maxFileMillis, long maxTotalBytes) {
+        this(directory, baseName, maxFileBytes, maxFileMillis, maxTotalBytes, DurableLogWriter.DEFAULT_SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param syncIntervalMillis The most time between forcing the current segment to disk while lines keep
+     *                           arriving (0 = only when a segment is closed).
+     */
+    public RotatingLogWriter(File directory, String baseName, long maxFileBytes, long maxFileMillis, long maxTotalBytes, long syncIntervalMillis) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileMillis = maxFileMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    /**
+     * Sets the listener told the segment and its length after each commit, including the final commit of a
+     * segment closed on rollover.
+     */
+    public void setCommitListener(DurableLogWriter.CommitListener commitListener) {
+        this.commitListener = commitListener;
+    }
+
+    /**
+     * Continues an interrupted capture in an existing segment instead of starting a new series: the segment
+     * is cut back to its committed length (see {@link DurableLogWriter#recover(File, long)}) and reopened for
+     * appending. Earlier segments of the same series count towards the total size cap again.
+     *
+     * @param segmentName The segment file name recorded by the commit listener, e.g. "ivi_logcat_emu_20240101_120000_3.txt".
+     * @param committedLength Its committed length, or -1 if unknown.
+     * @return The number of bytes cut off the segment.
+     * @throws IOException If the name is not a segment name or the file cannot be reopened.
+     */
+    public long resume(String segmentName, long committedLength) throws IOException {
+        int index = segmentIndexOf(segmentName);
+        if (index < 1 || channel != null) {
+            throw new IOException("Cannot resume log segment " + segmentName);
+        }
+        baseName = segmentName.substring(0, segmentName.lastIndexOf('_'));
+        File segment = new File(directory, segmentName);
+        long discarded = DurableLogWriter.recover(segment, committedLength);
+
+        File[] earlier = directory.listFiles((dir, name) -> isEarlierSegment(name, segmentName));
+        if (earlier != null) {
+            Arrays.sort(earlier, (a, b) -> Integer.compare(segmentIndexOf(a.getName()), segmentIndexOf(b.getName())));
+            for (File file : earlier) {
+                segments.addLast(file);
+                closedSegmentsBytes += file.length();
+            }
+        }
+        segmentIndex = index;
+        currentFile = segment;
+        channel = new DurableLogWriter(segment, true, syncIntervalMillis, commitListener);
+        segments.addLast(segment);
+        currentBytes = channel.length();
+        currentOpenedMillis = System.currentTimeMillis();
+        System.out.println("INFO: Resuming log segment: " + segment.getAbsolutePath() + " (" + currentBytes + " bytes)");
+        return discarded;
+    }
+
+    /**
+     * Writes one complete line (including its terminator), then closes the segment if it is due to roll over,
+     * so every commit reported covers exactly the lines written so far.
+     */
+    public void writeLine(byte[] line, int offset, int length) throws IOException {
+        if (channel == null) {
+            openNextSegment();
+            enforceTotalCap();
+        }
+        channel.write(line, offset, length);
+        currentBytes += length;
+        if (shouldRollOver()) {
+            channel.close();
+            channel = null;
+            closedSegmentsBytes += currentBytes;
+            currentBytes = 0;
+        }
+    }
+
+    /**
+     * Writes any staged bytes to the current segment file, committing them if the sync interval has passed.
+     */
+    public void flush() throws IOException {
+        if (channel != null) {
+            channel.flush();
+        }
+    }
+
+    /**
+     * @return How long until {@link #flush()} would commit the lines not yet on disk (0 = now), or -1 if there are none.
+     */
+    public long getCommitDelayMillis() {
+        return channel != null ? channel.getCommitDelayMillis() : -1;
+    }
+
+    /**
+     * @return The segment currently being written (or just closed on rollover), or null before the first line.
+     */
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private boolean shouldRollOver() {
+        if (maxFileBytes > 0 && currentBytes >= maxFileBytes) {
+            return true;
+        }
+        return maxFileMillis > 0 && System.currentTimeMillis() - currentOpenedMillis >= maxFileMillis;
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentIndex++;
+        currentFile = new File(directory, baseName + "_" + segmentIndex + ".txt");
+        channel = new DurableLogWriter(currentFile, false, syncIntervalMillis, commitListener);
+        segments.addLast(currentFile);
+        currentBytes = 0;
+        currentOpenedMillis = System.currentTimeMillis();
+        System.out.println("INFO: Writing log segment: " + currentFile.getAbsolutePath());
+    }
+
+    private void enforceTotalCap() {
+        if (maxTotalBytes <= 0) {
+            return;
+        }
+        // Never delete the segment being written; the cap applies to the closed ones
+        while (segments.size() > 1 && closedSegmentsBytes + currentBytes > maxTotalBytes) {
+            File oldest = segments.removeFirst();
+            long size = oldest.length();
+            if (oldest.delete()) {
+                System.out.println("INFO: Deleted oldest log segment to stay within size cap: " + oldest.getName());
+            } else {
+                System.err.println("ERROR: Failed to delete old log segment: " + oldest.getAbsolutePath());
+            }
+            closedSegmentsBytes -= size;
+        }
+    }
+
+    private boolean isEarlierSegment(String name, String segmentName) {
+        int index = segmentIndexOf(name);
+        return index > 0 && index < segmentIndexOf(segmentName) && name.equals(baseName + "_" + index + ".txt");
+    }
+
+    /**
+     * @return n for "&lt;base&gt;_&lt;n&gt;.txt", or -1.
+     */
+    private static int segmentIndexOf(String name) {
+        int separator = name.lastIndexOf('_');
+        if (separator < 0 || !name.endsWith(".txt")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(separator + 1, name.length() - ".txt".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
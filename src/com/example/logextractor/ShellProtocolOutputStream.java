@@ -0,0 +1,106 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Unpacks the output of a "shell,v2," service, which adbd offers since Android 7.0 (device feature "shell_v2").
+ * Unlike the legacy "shell:" service it reports how the command exited: everything arrives in packets of a
+ * 1-byte id (1 = stdout, 2 = stderr, 3 = exit code), a little-endian 4-byte length and the data.
+ *
+ * The raw bytes from the connection are written to this stream; stdout and stderr are passed on to the wrapped
+ * stream, combined as the legacy service and the adb executable deliver them. The start of stderr is kept so a
+ * failing command can be reported with its error message.
+ */
+class ShellProtocolOutputStream extends OutputStream {
+
+    static final int ID_STDOUT = 1;
+    static final int ID_STDERR = 2;
+    static final int ID_EXIT = 3;
+
+    private static final int HEADER_SIZE = 5;
+    private static final int ERROR_HEAD_SIZE = 1000;
+
+    private final OutputStream out;
+    private final byte[] header = new byte[HEADER_SIZE];
+    private final byte[] errorHead = new byte[ERROR_HEAD_SIZE];
+    private int headerLength;
+    private int packetId;
+    private long packetRemaining; // Data bytes of the current packet still to come; 0 while reading a header
+    private int errorHeadLength;
+    private int exitCode = -1;
+    private long bytesWritten;
+
+    /**
+     * @param out The stream receiving the command's output. It is not closed by this stream.
+     */
+    ShellProtocolOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (packetRemaining == 0) {
+                int n = Math.min(length, HEADER_SIZE - headerLength);
+                System.arraycopy(bytes, offset, header, headerLength, n);
+                headerLength += n;
+                offset += n;
+                length -= n;
+                if (headerLength == HEADER_SIZE) {
+                    packetId = header[0] & 0xFF;
+                    packetRemaining = (header[1] & 0xFFL) | (header[2] & 0xFFL) << 8 | (header[3] & 0xFFL) << 16 | (header[4] & 0xFFL) << 24;
+                    headerLength = 0;
+                }
+                continue;
+            }
+            int n = (int) Math.min(length, packetRemaining);
+            if (packetId == ID_STDOUT || packetId == ID_STDERR) {
+                if (packetId == ID_STDERR) {
+                    int kept = Math.min(n, ERROR_HEAD_SIZE - errorHeadLength);
+                    System.arraycopy(bytes, offset, errorHead, errorHeadLength, kept);
+                    errorHeadLength += kept;
+                }
+                out.write(bytes, offset, n);
+                bytesWritten += n;
+            } else if (packetId == ID_EXIT) {
+                exitCode = bytes[offset] & 0xFF;
+            } // Window size and stdin packets do not come from the device
+            packetRemaining -= n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * @return The command's exit code, or -1 if it has not been received (yet).
+     */
+    int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return The start of what the command printed to stderr.
+     */
+    String getErrorOutput() {
+        return new String(errorHead, 0, errorHeadLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of stdout and stderr bytes passed on.
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+}
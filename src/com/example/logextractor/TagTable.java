@@ -0,0 +1,117 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids to tags, looked up directly from a {@link LogcatRecord}'s buffer. Only the first
+ * sighting of a tag allocates (a copy of its bytes and its name); later lookups allocate nothing, so ids
+ * can key primitive arrays and maps in per-line processing. Not thread-safe.
+ */
+public final class TagTable {
+
+    private static final int INITIAL_CAPACITY = 256; // Slots; always a power of two
+
+    private int[] slots = new int[INITIAL_CAPACITY]; // Tag id + 1, 0 = empty
+    private int[] hashes = new int[16];
+    private byte[][] bytes = new byte[16][];
+    private String[] names = new String[16];
+    private int size;
+
+    /**
+     * @return The id of the record's tag, adding the tag if it was not seen before.
+     */
+    public int idOf(LogcatRecord record) {
+        return idOf(record.buffer, record.tagOffset, record.tagLength);
+    }
+
+    /**
+     * @return The id of the tag held in the given bytes, adding the tag if it was not seen before.
+     */
+    public int idOf(byte[] buffer, int offset, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer[offset + i]; // Same as LogcatRecord.tagHash()
+        }
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(buffer, offset, length, hash, slot);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && equals(bytes[id], buffer, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return The bytes of the tag for an id; for looking the tag up in another table. Must not be modified.
+     */
+    public byte[] bytes(int id) {
+        return bytes[id];
+    }
+
+    /**
+     * @return The tag name for an id returned by {@link #idOf(LogcatRecord)}.
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return The number of distinct tags seen.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(byte[] buffer, int offset, int length, int hash, int slot) {
+        int id = size++;
+        if (id == names.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            bytes = Arrays.copyOf(bytes, id * 2);
+            names = Arrays.copyOf(names, id * 2);
+        }
+        hashes[id] = hash;
+        bytes[id] = Arrays.copyOfRange(buffer, offset, offset + length);
+        names[id] = new String(bytes[id], StandardCharsets.UTF_8);
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        slots = grown;
+    }
+
+    private static boolean equals(byte[] tag, byte[] buffer, int offset, int length) {
+        if (tag.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (tag[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
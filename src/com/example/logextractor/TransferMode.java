@@ -0,0 +1,94 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * How logcat output travels from the device to the host. The compact modes run through "adb exec-out",
+ * which passes the device's output through unchanged (no terminal translating line endings), and are
+ * turned back into plain logcat text on the host, so everything after the transfer works the same.
+ */
+public enum TransferMode {
+
+    /** Logcat text, as printed by "adb logcat". */
+    TEXT("text"),
+    /** Logcat text compressed on the device with "gzip" (Android 9 and later ship it in toybox). */
+    GZIP("gzip"),
+    /**
+     * Binary logcat entries ("logcat -B"), formatted on the host (see {@link BinaryLogDecoder}). The device's
+     * time zone is sent ahead of them, so timestamps match text mode and can be passed back to "logcat -T".
+     */
+    BINARY("binary");
+
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private final String optionName;
+
+    TransferMode(String optionName) {
+        this.optionName = optionName;
+    }
+
+    public String getOptionName() {
+        return optionName;
+    }
+
+    /**
+     * Turns a logcat command into the adb command transferring its output in this mode.
+     *
+     * @param logcatArgs Arguments as passed to the adb executable, starting with "logcat".
+     * @return The adb arguments, e.g. "exec-out", "logcat -d | gzip -c".
+     */
+    public List<String> adbCommand(List<String> logcatArgs) {
+        switch (this) {
+            case GZIP:
+                return Arrays.asList("exec-out", AdbSocketClient.shellCommand(logcatArgs) + " | gzip -c");
+            case BINARY:
+                List<String> binaryArgs = new ArrayList<>();
+                for (int i = 0; i < logcatArgs.size(); i++) {
+                    if ("-v".equals(logcatArgs.get(i)) && i + 1 < logcatArgs.size()) {
+                        i++; // Binary output has no format; the decoder always produces threadtime
+                    } else {
+                        binaryArgs.add(logcatArgs.get(i));
+                    }
+                }
+                binaryArgs.add(1, "-B"); // Before any filterspecs, which must come last
+                return Arrays.asList("exec-out", "getprop persist.sys.timezone; " + AdbSocketClient.shellCommand(binaryArgs));
+            default:
+                return logcatArgs;
+        }
+    }
+
+    /**
+     * Wraps the raw transferred bytes in a stream producing logcat text.
+     *
+     * @throws IOException If the output does not start the way this mode expects (e.g. the device lacks gzip).
+     */
+    public InputStream decode(InputStream raw) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(raw, INFLATE_BUFFER_SIZE);
+            case BINARY:
+                return new BinaryLogDecoder(raw, BinaryLogDecoder.readTimeZoneLine(raw));
+            default:
+                return raw;
+        }
+    }
+
+    /**
+     * Looks up a mode by its command-line name ("text", "gzip" or "binary").
+     *
+     * @return The mode, or null if the name is unknown.
+     */
+    public static TransferMode fromOptionName(String name) {
+        for (TransferMode mode : values()) {
+            if (mode.optionName.equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
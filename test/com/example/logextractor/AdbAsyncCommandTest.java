@@ -0,0 +1,169 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks for the asynchronous commands of AdbHelper. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class AdbAsyncCommandTest {
+
+    public static void main(String[] args) throws Exception {
+        AdbAsyncCommandTest tester = new AdbAsyncCommandTest();
+        System.out.println("INFO: Running AdbAsyncCommandTest checks...");
+
+        tester.testConcurrentCommands();
+        tester.testDeadline();
+        tester.testCancel();
+        tester.testBlockingDeadline();
+        tester.testThrowingStream();
+
+        System.out.println("INFO: AdbAsyncCommandTest checks complete.");
+    }
+
+    /**
+     * Many commands in flight at once all complete with their own output.
+     */
+    public void testConcurrentCommands() throws Exception {
+        System.out.println("\nTEST: AdbHelper - Concurrent Async Commands");
+        ShellDevice device = new ShellDevice();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            AdbHelper adbHelper = server.newAdbHelper();
+            List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(adbHelper.executeAdbCommandAsync("emu-1", Arrays.asList("shell", "echo", "line" + i), 5000));
+            }
+            boolean passed = true;
+            for (int i = 0; i < futures.size(); i++) {
+                List<String> lines = futures.get(i).get(5, TimeUnit.SECONDS);
+                passed &= lines.equals(Arrays.asList("echo line" + i, "done"));
+            }
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        }
+    }
+
+    /**
+     * A command past its deadline fails with a TimeoutException, and its connection is closed.
+     */
+    public void testDeadline() throws Exception {
+        System.out.println("\nTEST: AdbHelper - Async Deadline");
+        ShellDevice device = new ShellDevice();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            long start = System.nanoTime();
+            CompletableFuture<List<String>> future = server.newAdbHelper().executeAdbCommandAsync("emu-1", Arrays.asList("shell", "stall"), 300);
+            Throwable cause = null;
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            boolean passed = cause instanceof TimeoutException && elapsedMillis < 3000
+                    && device.stallClosed.await(2, TimeUnit.SECONDS);
+            System.out.println("  - Failed with " + cause + " after " + elapsedMillis + " ms");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        }
+    }
+
+    /**
+     * Cancelling a running command closes its connection.
+     */
+    public void testCancel() throws Exception {
+        System.out.println("\nTEST: AdbHelper - Async Cancel");
+        ShellDevice device = new ShellDevice();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            CompletableFuture<List<String>> future = server.newAdbHelper().executeAdbCommandAsync("emu-1", Arrays.asList("shell", "stall"), 0);
+            boolean started = device.stallStarted.await(2, TimeUnit.SECONDS);
+            future.cancel(true);
+            boolean passed = started && future.isCancelled() && device.stallClosed.await(2, TimeUnit.SECONDS);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        }
+    }
+
+    /**
+     * The blocking call reports a missed deadline as an IOException, as before.
+     */
+    public void testBlockingDeadline() throws Exception {
+        System.out.println("\nTEST: AdbHelper - Blocking Deadline");
+        ShellDevice device = new ShellDevice();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            boolean passed;
+            try {
+                server.newAdbHelper().executeAdbCommand("emu-1", Arrays.asList("shell", "stall"), 300);
+                passed = false;
+            } catch (IOException e) {
+                passed = e.getMessage().contains("timed out after 0.3 s");
+            }
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        }
+    }
+
+    /**
+     * A destination stream that throws a RuntimeException fails its own command only: the shared pump keeps
+     * serving, so a later command without a deadline still completes.
+     */
+    public void testThrowingStream() throws Exception {
+        System.out.println("\nTEST: AdbHelper - Throwing Output Stream");
+        ShellDevice device = new ShellDevice();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            AdbHelper adbHelper = server.newAdbHelper();
+            OutputStream throwing = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    throw new IllegalStateException("destination rejected output");
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    throw new IllegalStateException("destination rejected output");
+                }
+            };
+            Throwable cause = null;
+            try {
+                adbHelper.executeAdbCommandToStreamAsync("emu-1", Arrays.asList("shell", "echo", "boom"), throwing, 0).get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            }
+            List<String> next = null;
+            try {
+                next = adbHelper.executeAdbCommandAsync("emu-1", Arrays.asList("shell", "echo", "after"), 0).get(5, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // The pump thread died
+            }
+            boolean passed = cause instanceof IllegalStateException && Arrays.asList("echo after", "done").equals(next);
+            System.out.println("  - First command failed with " + cause + "; next command returned " + next);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        }
+    }
+
+    /**
+     * Serves shell services for emu-1: "stall" sends nothing until the client hangs up, anything else is
+     * echoed back followed by "done".
+     */
+    private static class ShellDevice implements FakeAdbServer.Handler {
+        final CountDownLatch stallStarted = new CountDownLatch(1);
+        final CountDownLatch stallClosed = new CountDownLatch(1);
+
+        @Override
+        public void handle(String service, FakeAdbServer.Connection connection) throws IOException {
+            connection.okay(); // host:transport:emu-1
+            String shell = connection.readRequest();
+            connection.okay();
+            if ("shell:stall".equals(shell)) {
+                stallStarted.countDown();
+                connection.awaitHangUp();
+                stallClosed.countDown();
+            } else {
+                connection.write(shell.substring("shell:".length()) + "\r\ndone\n");
+            }
+        }
+    }
+}
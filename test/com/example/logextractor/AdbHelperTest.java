@@ -33,6 +33,7 @@ public class AdbHelperTest {
         tester.testIsDeviceConnected_OneDevice();
         tester.testIsDeviceConnected_SpecificDevicePresent();
         tester.testIsDeviceConnected_SpecificDeviceAbsent();
+        tester.testParseDeviceList();
         // Add more calls here as needed
 
         // Tests for extractLogcat would be more involved as they require mocking
@@ -104,6 +105,28 @@ public class AdbHelperTest {
     }
 
 
+    /**
+     * Checks parsing of 'adb devices' output. Unlike the conceptual tests above, this one
+     * runs for real, since parseDeviceList works on plain strings.
+     */
+    public void testParseDeviceList() {
+        System.out.println("\nTEST: parseDeviceList - Mixed Device States");
+        List<String> output = Arrays.asList(
+                "* daemon not running; starting now at tcp:5037",
+                "List of devices attached",
+                "emulator-5554\tdevice",
+                "R58M726X7XN\tunauthorized",
+                "",
+                "192.168.1.20:5555\toffline");
+        java.util.Map<String, String> devices = AdbHelper.parseDeviceList(output);
+        boolean passed = devices.size() == 3
+                && "device".equals(devices.get("emulator-5554"))
+                && "unauthorized".equals(devices.get("R58M726X7XN"))
+                && "offline".equals(devices.get("192.168.1.20:5555"));
+        System.out.println("  - Parsed: " + devices);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
     /**
      * Conceptual test for extractLogcat successful execution.
      * This would require mocking:
@@ -0,0 +1,203 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks for AdbSocketClient against a small fake adb server. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class AdbSocketClientTest {
+
+    private static final String LOGCAT_OUTPUT = "06-15 12:34:56.789  1234  1250 W CarService: hello\n";
+    private static final String LOGCAT_ERROR = "logcat: Unable to open log device '/dev/log/bogus': No such file or directory\n";
+
+    public static void main(String[] args) throws Exception {
+        AdbSocketClientTest tester = new AdbSocketClientTest();
+        System.out.println("INFO: Running AdbSocketClientTest checks...");
+
+        try (FakeAdbServer server = new FakeAdbServer(AdbSocketClientTest::serve)) {
+            AdbSocketClient client = new AdbSocketClient("127.0.0.1", server.getPort());
+            tester.testListDevices(client, server);
+            tester.testShellStreamsOutput(client, server);
+            tester.testRejectedRequest(client);
+        }
+        try (FakeAdbServer server = new FakeAdbServer(AdbSocketClientTest::serve)) {
+            server.setFeatures("cmd,shell_v2,stat_v2");
+            tester.testShellProtocolReportsExit(new AdbSocketClient("127.0.0.1", server.getPort()), server);
+            tester.testHelperFailsOnExitStatus(server);
+        }
+        tester.testServerUnavailable();
+        tester.testShellCommandQuoting();
+
+        System.out.println("INFO: AdbSocketClientTest checks complete.");
+    }
+
+    /**
+     * The device list is parsed from "host:devices", and a second call within the TTL needs no new connection.
+     */
+    public void testListDevices(AdbSocketClient client, FakeAdbServer server) throws IOException {
+        System.out.println("\nTEST: AdbSocketClient - List Devices");
+        Map<String, String> first = client.listDevices();
+        Map<String, String> second = client.listDevices();
+        boolean passed = "device".equals(first.get("emu-1"))
+                && "unauthorized".equals(first.get("bad-3"))
+                && first.size() == 2
+                && first.equals(second)
+                && server.requests.equals(Arrays.asList("host:devices"));
+        System.out.println("  - Devices: " + first + ", requests: " + server.requests);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A shell service is requested after switching the connection to the device, and its output is copied until EOF.
+     */
+    public void testShellStreamsOutput(AdbSocketClient client, FakeAdbServer server) throws IOException {
+        System.out.println("\nTEST: AdbSocketClient - Shell Streams Output");
+        server.requests.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long bytes = client.shell("emu-1", "logcat -d", out);
+        boolean passed = LOGCAT_OUTPUT.equals(out.toString("US-ASCII"))
+                && bytes == LOGCAT_OUTPUT.length()
+                && server.requests.equals(Arrays.asList("host-serial:emu-1:features", "host:transport:emu-1", "shell:logcat -d"));
+        System.out.println("  - Requests: " + server.requests);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * On a device with the "shell_v2" feature the shell protocol is used: output is unpacked, and a command
+     * exiting with an error fails with its stderr instead of passing it off as output.
+     */
+    public void testShellProtocolReportsExit(AdbSocketClient client, FakeAdbServer server) throws IOException {
+        System.out.println("\nTEST: AdbSocketClient - Shell Protocol Reports Exit");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long bytes = client.shell("emu-1", "logcat -d", out);
+        String message = null;
+        try {
+            client.shell("emu-1", "logcat -b bogus -d", new ByteArrayOutputStream());
+        } catch (IOException e) {
+            message = e.getMessage();
+        }
+        boolean passed = LOGCAT_OUTPUT.equals(out.toString("US-ASCII"))
+                && bytes == LOGCAT_OUTPUT.length()
+                && message != null && message.contains("exit code 1") && message.contains("Unable to open log device")
+                && server.requests.equals(Arrays.asList("host-serial:emu-1:features", "host:transport:emu-1", "shell,v2,raw:logcat -d",
+                        "host:transport:emu-1", "shell,v2,raw:logcat -b bogus -d"));
+        System.out.println("  - Error: " + message);
+        System.out.println("  - Requests: " + server.requests);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * The helper's blocking and asynchronous socket paths fail on a non-zero exit like the adb process path does.
+     */
+    public void testHelperFailsOnExitStatus(FakeAdbServer server) throws Exception {
+        System.out.println("\nTEST: AdbSocketClient - Helper Fails On Exit Status");
+        AdbHelper adbHelper = server.newAdbHelper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long bytes = adbHelper.executeAdbCommandToStream("emu-1", Arrays.asList("logcat", "-d"), out);
+        String blocking = null;
+        try {
+            adbHelper.executeAdbCommandToStream("emu-1", Arrays.asList("logcat", "-b", "bogus", "-d"), new ByteArrayOutputStream());
+        } catch (IOException e) {
+            blocking = e.getMessage();
+        }
+        String async = null;
+        try {
+            adbHelper.executeAdbCommandToStreamAsync("emu-1", Arrays.asList("logcat", "-b", "bogus", "-d"), new ByteArrayOutputStream(), 5000)
+                    .get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            async = e.getCause().getMessage();
+        }
+        boolean passed = LOGCAT_OUTPUT.equals(out.toString("US-ASCII"))
+                && bytes == LOGCAT_OUTPUT.length()
+                && blocking != null && blocking.contains("exit code 1") && blocking.contains("Unable to open log device")
+                && async != null && async.contains("exit code 1");
+        System.out.println("  - Blocking: " + blocking);
+        System.out.println("  - Async: " + async);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A FAIL reply surfaces as an IOException carrying the server's message, not as an unavailable server.
+     */
+    public void testRejectedRequest(AdbSocketClient client) {
+        System.out.println("\nTEST: AdbSocketClient - Rejected Request");
+        String message = null;
+        boolean unavailable = false;
+        try {
+            client.shell("missing", "logcat -d", new ByteArrayOutputStream());
+        } catch (AdbSocketClient.ServerUnavailableException e) {
+            unavailable = true;
+        } catch (IOException e) {
+            message = e.getMessage();
+        }
+        boolean passed = !unavailable && message != null && message.contains("device 'missing' not found");
+        System.out.println("  - Error: " + message);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * With nothing listening, the client reports the server as unavailable so callers can fall back.
+     */
+    public void testServerUnavailable() throws IOException {
+        System.out.println("\nTEST: AdbSocketClient - Server Unavailable");
+        int closedPort;
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            probe.bind(new InetSocketAddress("127.0.0.1", 0));
+            closedPort = ((InetSocketAddress) probe.getLocalAddress()).getPort();
+        }
+        boolean passed;
+        try {
+            new AdbSocketClient("127.0.0.1", closedPort).listDevices();
+            passed = false;
+        } catch (AdbSocketClient.ServerUnavailableException e) {
+            passed = true;
+        }
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Words the device shell would expand are quoted; other commands are left to the adb executable.
+     */
+    public void testShellCommandQuoting() {
+        System.out.println("\nTEST: AdbSocketClient - Shell Command Quoting");
+        String command = AdbSocketClient.shellCommand(Arrays.asList("logcat", "-d", "-v", "threadtime", "Car Service:W", "*:E", "it's"));
+        boolean passed = "logcat -d -v threadtime 'Car Service:W' '*:E' 'it'\\''s'".equals(command)
+                && "ls /data".equals(AdbSocketClient.shellCommand(Arrays.asList("shell", "ls", "/data")))
+                && AdbSocketClient.shellCommand(Arrays.asList("devices")) == null;
+        System.out.println("  - Command: " + command);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Serves host:devices, host:transport:emu-1 and shell:logcat like the real adb server. Over the shell protocol,
+     * "logcat -d" succeeds and any other command fails with exit code 1.
+     */
+    private static void serve(String service, FakeAdbServer.Connection connection) throws IOException {
+        if ("host:devices".equals(service)) {
+            connection.okay();
+            connection.writeHexString("emu-1\tdevice\nbad-3\tunauthorized\n");
+        } else if ("host:transport:emu-1".equals(service)) {
+            connection.okay();
+            String shell = connection.readRequest();
+            connection.okay();
+            if (!shell.startsWith("shell,v2,raw:")) {
+                connection.write(LOGCAT_OUTPUT);
+            } else if (shell.equals("shell,v2,raw:logcat -d")) {
+                connection.writeShellResult(LOGCAT_OUTPUT, "", 0);
+            } else {
+                connection.writeShellResult("", LOGCAT_ERROR, 1);
+            }
+        } else if (service.startsWith("host:transport:")) {
+            connection.fail("device '" + service.substring("host:transport:".length()) + "' not found");
+        } else {
+            connection.fail("unknown host service");
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.logextractor;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks for CollectionDaemon and DaemonControlServer. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class CollectionDaemonTest {
+
+    public static void main(String[] args) throws Exception {
+        CollectionDaemonTest tester = new CollectionDaemonTest();
+        System.out.println("INFO: Running CollectionDaemonTest checks...");
+
+        tester.testJitterAndScheduleOption();
+        tester.testScheduledCollection();
+        tester.testSkipsWhileBusy();
+        tester.testControlEndpoint();
+        tester.testControlEndpointRefusesUntrusted();
+        tester.testCancelKillsAdbProcess();
+
+        System.out.println("INFO: CollectionDaemonTest checks complete.");
+    }
+
+    /**
+     * Waits stay within the jitter bounds but are spread over them, and --schedule pairs parse, serials with a colon included.
+     */
+    public void testJitterAndScheduleOption() {
+        System.out.println("\nTEST: CollectionDaemon - Jitter and --schedule");
+        Random random = new Random(42);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = CollectionDaemon.jitteredDelay(10_000, random);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        Map<String, Long> schedule = CollectionDaemon.parseSchedule("R58M726X7XN:300, 192.168.1.20:5555:0");
+        boolean rejected;
+        try {
+            CollectionDaemon.parseSchedule("R58M726X7XN");
+            rejected = false;
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        boolean passed = min >= 9000 && max <= 11_000 && max - min > 1500
+                && schedule.get("R58M726X7XN") == 300_000L && schedule.get("192.168.1.20:5555") == 0L && rejected;
+        System.out.println("  - Delays for a 10 s interval: " + min + " to " + max + " ms; schedule " + schedule);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * An attached device is collected repeatedly on its schedule, and no longer once it detaches.
+     */
+    public void testScheduledCollection() throws Exception {
+        System.out.println("\nTEST: CollectionDaemon - Scheduled Collection");
+        File dir = Files.createTempDirectory("daemon-test").toFile();
+        LogcatDevices fake = new LogcatDevices();
+        try (FakeAdbServer server = new FakeAdbServer(fake)) {
+            DeviceRegistry registry = new DeviceRegistry(new AdbHelper());
+            CollectionDaemon daemon = new CollectionDaemon(server.newAdbHelper(), dir, 300, Collections.<String, Long>emptyMap(), 2);
+            daemon.setTimings(100, 5000);
+            daemon.start(registry);
+            registry.fireChanges(devices(), devices("emu-1"));
+            Thread.sleep(1500);
+            registry.fireChanges(devices("emu-1"), devices());
+            int jobsAtDetach = daemon.getJobs().size();
+            Thread.sleep(800);
+            List<CollectionDaemon.Job> jobs = daemon.getJobs();
+            daemon.stop();
+
+            boolean passed = jobs.size() >= 3 && jobs.size() == jobsAtDetach && daemon.getDevices().isEmpty();
+            for (CollectionDaemon.Job job : jobs) {
+                passed &= job.getState() == CollectionDaemon.State.SUCCEEDED && "schedule".equals(job.getTrigger())
+                        && job.getLogFile() != null && job.getLogFile().length() == LogcatDevices.LOG.length();
+            }
+            System.out.println("  - " + jobs.size() + " scheduled job(s), " + dir.list().length + " file(s)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * While a device's dump is still running, its next due runs are skipped instead of piling up.
+     */
+    public void testSkipsWhileBusy() throws Exception {
+        System.out.println("\nTEST: CollectionDaemon - Skips While Busy");
+        File dir = Files.createTempDirectory("daemon-test").toFile();
+        LogcatDevices fake = new LogcatDevices();
+        try (FakeAdbServer server = new FakeAdbServer(fake)) {
+            DeviceRegistry registry = new DeviceRegistry(new AdbHelper());
+            CollectionDaemon daemon = new CollectionDaemon(server.newAdbHelper(), dir, 100, Collections.<String, Long>emptyMap(), 4);
+            daemon.setTimings(0, 5000);
+            daemon.start(registry);
+            registry.fireChanges(devices(), devices("emu-slow"));
+            boolean started = fake.stallStarted.await(2, TimeUnit.SECONDS);
+            Thread.sleep(800);
+            List<CollectionDaemon.Job> jobs = daemon.getJobs();
+            CollectionDaemon.State state = jobs.get(0).getState();
+            daemon.stop();
+            boolean closed = fake.stallClosed.await(2, TimeUnit.SECONDS);
+            awaitFinished(daemon, jobs.get(0).getId());
+
+            boolean passed = started && closed && jobs.size() == 1 && state == CollectionDaemon.State.RUNNING;
+            System.out.println("  - Jobs after 8 intervals: " + jobs.size());
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Over HTTP: trigger a dump, get the same job when triggering again, list it, cancel it while it runs,
+     * and get 404 for a device that is not attached.
+     */
+    public void testControlEndpoint() throws Exception {
+        System.out.println("\nTEST: DaemonControlServer - Trigger, List, Cancel");
+        File dir = Files.createTempDirectory("daemon-test").toFile();
+        LogcatDevices fake = new LogcatDevices();
+        try (FakeAdbServer server = new FakeAdbServer(fake)) {
+            DeviceRegistry registry = new DeviceRegistry(new AdbHelper());
+            CollectionDaemon daemon = new CollectionDaemon(server.newAdbHelper(), dir, 0, Collections.<String, Long>emptyMap(), 2);
+            DaemonControlServer control = new DaemonControlServer(daemon, 0, new File(dir, DaemonControlServer.TOKEN_FILE_NAME));
+            daemon.start(registry);
+            control.start();
+            registry.fireChanges(devices(), devices("emu-slow"));
+            String base = "http://127.0.0.1:" + control.getPort();
+            String token = control.getToken();
+            try {
+                String[] first = request("POST", token, base + "/jobs?device=emu-slow");
+                String[] second = request("POST", token, base + "/jobs?device=emu-slow");
+                String[] unknown = request("POST", token, base + "/jobs?device=emu-9");
+                boolean started = fake.stallStarted.await(2, TimeUnit.SECONDS);
+                String[] list = request("GET", token, base + "/jobs");
+                String[] devices = request("GET", token, base + "/devices");
+                String[] cancel = request("DELETE", token, base + "/jobs/1");
+                boolean closed = fake.stallClosed.await(2, TimeUnit.SECONDS);
+                awaitFinished(daemon, 1);
+                String[] cancelAgain = request("DELETE", token, base + "/jobs/1");
+
+                boolean passed = "202".equals(first[0]) && first[1].contains("\"id\": 1,") && "202".equals(second[0]) && second[1].contains("\"id\": 1,")
+                        && "404".equals(unknown[0]) && started && list[1].contains("\"state\": \"RUNNING\"")
+                        && devices[1].contains("\"device\": \"emu-slow\"") && devices[1].contains("\"pendingJob\": 1")
+                        && "202".equals(cancel[0]) && closed && daemon.getJob(1).getState() == CollectionDaemon.State.CANCELLED
+                        && "404".equals(cancelAgain[0]) && dir.list((parent, name) -> name.endsWith(".txt")).length == 0;
+                System.out.println("  - POST " + first[0] + " " + first[1].trim());
+                System.out.println("  - GET /devices " + devices[1].trim());
+                System.out.println("  - DELETE " + cancel[0] + ", then " + cancelAgain[0] + "; state " + daemon.getJob(1).getState());
+                System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+            } finally {
+                control.stop();
+                daemon.stop();
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Without an adb server the dump runs as an adb process, whose output pipe ignores interrupts: cancelling
+     * must kill the process rather than leave the worker blocked until adb exits or the job times out.
+     */
+    public void testCancelKillsAdbProcess() throws Exception {
+        System.out.println("\nTEST: CollectionDaemon - Cancel Kills adb Process");
+        if (!new File("/bin/sh").canExecute()) {
+            System.out.println("  - Skipped: needs /bin/sh for the stand-in adb");
+            return;
+        }
+        File dir = Files.createTempDirectory("daemon-test").toFile();
+        try {
+            File started = new File(dir, "adb.started");
+            File adb = new File(dir, "adb");
+            // Prints nothing and never exits by itself, like a logcat on a wedged device
+            Files.write(adb.toPath(), ("#!/bin/sh\ntouch '" + started.getAbsolutePath() + "'\nexec sleep 60\n").getBytes(StandardCharsets.US_ASCII));
+            adb.setExecutable(true);
+            AdbHelper adbHelper = new AdbHelper(adb.getAbsolutePath());
+            adbHelper.setServerClient(null);
+            DeviceRegistry registry = new DeviceRegistry(new AdbHelper());
+            CollectionDaemon daemon = new CollectionDaemon(adbHelper, dir, 0, Collections.<String, Long>emptyMap(), 1);
+            daemon.start(registry);
+            try {
+                registry.fireChanges(devices(), devices("emu-1"));
+                CollectionDaemon.Job job = daemon.trigger("emu-1");
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!started.exists() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                Thread.sleep(100); // Blocked in the read
+                long start = System.nanoTime();
+                boolean cancelled = daemon.cancel(job.getId());
+                awaitFinished(daemon, job.getId());
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                CollectionDaemon.State state = daemon.getJob(job.getId()).getState();
+                boolean passed = started.exists() && cancelled && state == CollectionDaemon.State.CANCELLED && elapsedMillis < 2000
+                        && dir.list((parent, name) -> name.endsWith(".txt")).length == 0;
+                System.out.println("  - " + state + " " + elapsedMillis + " ms after the cancel");
+                System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+            } finally {
+                daemon.stop();
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void awaitFinished(CollectionDaemon daemon, long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!daemon.getJob(id).getState().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Requests without the token, from a browser (Origin header) or under another host name (DNS rebinding) are
+     * refused before they reach the daemon; the token file is private to the owner and removed on stop.
+     */
+    public void testControlEndpointRefusesUntrusted() throws Exception {
+        System.out.println("\nTEST: DaemonControlServer - Refuses Untrusted Requests");
+        File dir = Files.createTempDirectory("daemon-test").toFile();
+        try {
+            CollectionDaemon daemon = new CollectionDaemon(new AdbHelper(), dir, 0, Collections.<String, Long>emptyMap(), 1);
+            File tokenFile = new File(dir, DaemonControlServer.TOKEN_FILE_NAME);
+            DaemonControlServer control = new DaemonControlServer(daemon, 0, tokenFile);
+            control.start();
+            String base = "http://127.0.0.1:" + control.getPort();
+            String token;
+            String permissions;
+            String[] noToken;
+            String[] wrongToken;
+            String[] withToken;
+            String[] localhost;
+            String browser;
+            String rebound;
+            try {
+                token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.US_ASCII).trim();
+                permissions = PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath()));
+                noToken = request("POST", null, base + "/jobs?device=emu-1");
+                wrongToken = request("GET", (token.charAt(0) == '0' ? "1" : "0") + token.substring(1), base + "/jobs");
+                withToken = request("GET", token, base + "/devices");
+                localhost = request("GET", token, "http://localhost:" + control.getPort() + "/jobs");
+                browser = rawStatus(control.getPort(), "POST /jobs?device=emu-1 HTTP/1.1\r\nHost: 127.0.0.1:" + control.getPort()
+                        + "\r\nOrigin: http://example.com\r\nAuthorization: Bearer " + token + "\r\nContent-Length: 0\r\n\r\n");
+                rebound = rawStatus(control.getPort(), "GET /jobs HTTP/1.1\r\nHost: attacker.example:" + control.getPort()
+                        + "\r\nAuthorization: Bearer " + token + "\r\n\r\n");
+            } finally {
+                control.stop();
+            }
+            boolean passed = token.equals(control.getToken()) && "rw-------".equals(permissions)
+                    && "401".equals(noToken[0]) && "401".equals(wrongToken[0]) && "200".equals(withToken[0]) && "200".equals(localhost[0])
+                    && "403".equals(browser) && "403".equals(rebound) && !tokenFile.exists() && daemon.getJobs().isEmpty();
+            System.out.println("  - Token file " + permissions + "; no token " + noToken[0] + ", wrong token " + wrongToken[0] + ", token " + withToken[0]
+                    + ", localhost " + localhost[0] + ", Origin " + browser + ", foreign Host " + rebound);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Sends a raw HTTP request, for headers HttpURLConnection does not let callers set.
+     *
+     * @return The status code.
+     */
+    private static String rawStatus(int port, String request) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            return statusLine != null && statusLine.length() >= 12 ? statusLine.substring(9, 12) : statusLine;
+        }
+    }
+
+    /**
+     * @param token The access token to send, or null for none.
+     * @return The status code and body.
+     */
+    private static String[] request(String method, String token, String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String[] {Integer.toString(status), new String(body.toByteArray(), StandardCharsets.UTF_8)};
+    }
+
+    private static Map<String, String> devices(String... serials) {
+        Map<String, String> devices = new LinkedHashMap<>();
+        for (String serial : serials) {
+            devices.put(serial, "device");
+        }
+        return devices;
+    }
+
+    private static void deleteRecursively(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteRecursively(file);
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Serves logcat for any device: a short log, except for "emu-slow", which sends nothing until the client hangs up.
+     */
+    private static class LogcatDevices implements FakeAdbServer.Handler {
+        static final String LOG = "06-15 12:00:00.000  1000  2000 I CarService: collected\n";
+
+        final CountDownLatch stallStarted = new CountDownLatch(1);
+        final CountDownLatch stallClosed = new CountDownLatch(1);
+
+        @Override
+        public void handle(String service, FakeAdbServer.Connection connection) throws IOException {
+            connection.okay(); // host:transport:SERIAL
+            connection.readRequest(); // shell:logcat -d
+            connection.okay();
+            if (service.endsWith(":emu-slow")) {
+                stallStarted.countDown();
+                connection.awaitHangUp();
+                stallClosed.countDown();
+            } else {
+                connection.write(LOG);
+            }
+        }
+    }
+}
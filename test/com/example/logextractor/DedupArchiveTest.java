@@ -0,0 +1,176 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Checks for DedupOutputStream and DedupArchive. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class DedupArchiveTest {
+
+    public static void main(String[] args) throws IOException {
+        DedupArchiveTest tester = new DedupArchiveTest();
+        System.out.println("INFO: Running DedupArchiveTest checks...");
+
+        tester.testRoundTrip();
+        tester.testOverlappingDumps();
+        tester.testMissingChunk();
+        tester.testDamagedChunkRewritten();
+
+        System.out.println("INFO: DedupArchiveTest checks complete.");
+    }
+
+    /**
+     * A log written through the dedup format comes back byte for byte, and chunks end on line boundaries.
+     */
+    public void testRoundTrip() throws IOException {
+        System.out.println("\nTEST: DedupArchive - Round Trip");
+        Path dir = Files.createTempDirectory("dedup-test");
+        try {
+            byte[] log = lines(0, 5000);
+            Path manifest = dir.resolve("dump1.txt.dedup");
+            DedupOutputStream out = new DedupOutputStream(manifest);
+            for (int i = 0; i < log.length; i += 1000) {
+                out.write(log, i, Math.min(1000, log.length - i));
+            }
+            out.close();
+            byte[] restored = restore(manifest);
+            boolean passed = Arrays.equals(log, restored) && out.getChunkCount() > 10 && out.getNewChunks() == out.getChunkCount()
+                    && Files.size(manifest) < log.length / 100;
+            System.out.println("  - " + log.length + " bytes in " + out.getChunkCount() + " chunk(s), manifest " + Files.size(manifest) + " bytes");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * A second dump of a ring buffer that has moved on (older lines dropped, newer ones added) only adds
+     * chunks for the part it does not share with the first.
+     */
+    public void testOverlappingDumps() throws IOException {
+        System.out.println("\nTEST: DedupArchive - Overlapping Dumps");
+        Path dir = Files.createTempDirectory("dedup-test");
+        try {
+            byte[] first = lines(0, 5000);
+            byte[] second = lines(700, 5500);
+            Path firstManifest = dir.resolve("dump1.txt.dedup");
+            Path secondManifest = dir.resolve("dump2.txt.dedup");
+            try (DedupOutputStream out = new DedupOutputStream(firstManifest)) {
+                out.write(first);
+            }
+            DedupOutputStream out = new DedupOutputStream(secondManifest);
+            out.write(second);
+            out.close();
+            long unsharedBytes = lines(5000, 5500).length;
+            boolean passed = Arrays.equals(first, restore(firstManifest)) && Arrays.equals(second, restore(secondManifest))
+                    && out.getNewBytes() < unsharedBytes + 3 * DedupOutputStream.MAX_CHUNK_SIZE
+                    && out.getNewBytes() < second.length / 3;
+            System.out.println("  - Second dump: " + second.length + " bytes, " + out.getNewBytes() + " new ("
+                    + unsharedBytes + " not in the first dump)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * A chunk missing from the store is reported instead of silently leaving a gap in the log.
+     */
+    public void testMissingChunk() throws IOException {
+        System.out.println("\nTEST: DedupArchive - Missing Chunk");
+        Path dir = Files.createTempDirectory("dedup-test");
+        try {
+            Path manifest = dir.resolve("dump1.txt.dedup");
+            try (DedupOutputStream out = new DedupOutputStream(manifest)) {
+                out.write(lines(0, 2000));
+            }
+            Path chunk;
+            try (Stream<Path> files = Files.walk(dir.resolve(DedupArchive.STORE_DIRECTORY))) {
+                chunk = files.filter(Files::isRegularFile).findFirst().get();
+            }
+            Files.delete(chunk);
+            boolean passed;
+            try {
+                restore(manifest);
+                passed = false;
+            } catch (IOException e) {
+                System.out.println("  - " + e.getMessage());
+                passed = e.getMessage().contains("missing");
+            }
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * A chunk left truncated in the store (a crash or full disk during an earlier run) is not taken for the
+     * real one: the next extraction holding it writes it again, and both logs restore.
+     */
+    public void testDamagedChunkRewritten() throws IOException {
+        System.out.println("\nTEST: DedupArchive - Damaged Chunk Rewritten");
+        Path dir = Files.createTempDirectory("dedup-test");
+        try {
+            byte[] log = lines(0, 2000);
+            Path firstManifest = dir.resolve("dump1.txt.dedup");
+            try (DedupOutputStream out = new DedupOutputStream(firstManifest)) {
+                out.write(log);
+            }
+            Path chunk;
+            try (Stream<Path> files = Files.walk(dir.resolve(DedupArchive.STORE_DIRECTORY))) {
+                chunk = files.filter(Files::isRegularFile).findFirst().get();
+            }
+            byte[] stored = Files.readAllBytes(chunk);
+            Files.write(chunk, Arrays.copyOf(stored, stored.length / 2));
+            Path secondManifest = dir.resolve("dump2.txt.dedup");
+            DedupOutputStream out = new DedupOutputStream(secondManifest);
+            out.write(log);
+            out.close();
+            boolean passed = out.getNewChunks() == 1
+                    && Arrays.equals(stored, Files.readAllBytes(chunk))
+                    && Arrays.equals(log, restore(firstManifest)) && Arrays.equals(log, restore(secondManifest));
+            System.out.println("  - Second dump rewrote " + out.getNewChunks() + " of " + out.getChunkCount() + " chunk(s)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static byte[] restore(Path manifest) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DedupArchive.restore(manifest.toFile(), out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return Threadtime lines [from, to), the same text for the same line number in every call.
+     */
+    private static byte[] lines(int from, int to) {
+        String[] tags = {"CarService", "AudioHAL_Primary", "VehicleHal", "ActivityManager"};
+        StringBuilder content = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            long millis = i * 37L;
+            content.append(String.format("06-15 12:%02d:%02d.%03d %5d %5d I %s: event %d value=%d%n",
+                    millis / 60_000 % 60, millis / 1000 % 60, millis % 1000, 1000 + i % 9, 2000 + i % 31,
+                    tags[i % tags.length], i, (i * 7919) % 100_000));
+        }
+        return content.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+        new File(dir.toString()).delete();
+    }
+}
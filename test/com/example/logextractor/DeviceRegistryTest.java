@@ -0,0 +1,73 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks for DeviceRegistry. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class DeviceRegistryTest {
+
+    public static void main(String[] args) throws IOException {
+        DeviceRegistryTest tester = new DeviceRegistryTest();
+        System.out.println("INFO: Running DeviceRegistryTest checks...");
+
+        tester.testReadFrames();
+        tester.testListenersSeeChanges();
+
+        System.out.println("INFO: DeviceRegistryTest checks complete.");
+    }
+
+    /**
+     * Consecutive hex-length framed lists are read one at a time, including an empty list, then end of stream.
+     */
+    public void testReadFrames() throws IOException {
+        System.out.println("\nTEST: DeviceRegistry - Read Frames");
+        String first = "emu-1\tdevice\nbad-3\tunauthorized\n";
+        InputStream in = new ByteArrayInputStream((String.format("%04x", first.length()) + first + "0000")
+                .getBytes(StandardCharsets.US_ASCII));
+        String frame1 = DeviceRegistry.readFrame(in);
+        String frame2 = DeviceRegistry.readFrame(in);
+        String frame3 = DeviceRegistry.readFrame(in);
+        boolean truncatedRejected;
+        try {
+            DeviceRegistry.readFrame(new ByteArrayInputStream("0010emu-1".getBytes(StandardCharsets.US_ASCII)));
+            truncatedRejected = false;
+        } catch (IOException e) {
+            truncatedRejected = true;
+        }
+        boolean passed = first.equals(frame1) && "".equals(frame2) && frame3 == null && truncatedRejected;
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Attach, detach and state changes each produce exactly one notification.
+     */
+    public void testListenersSeeChanges() {
+        System.out.println("\nTEST: DeviceRegistry - Listeners See Changes");
+        DeviceRegistry registry = new DeviceRegistry(new AdbHelper());
+        final List<String> events = new ArrayList<>();
+        registry.addListener((serial, oldState, newState) -> events.add(serial + ":" + oldState + "->" + newState));
+
+        Map<String, String> before = new LinkedHashMap<>();
+        before.put("emu-1", "device");
+        before.put("emu-2", "unauthorized");
+        Map<String, String> after = new LinkedHashMap<>();
+        after.put("emu-2", "device");
+        after.put("emu-3", "unauthorized");
+        registry.fireChanges(new LinkedHashMap<String, String>(), before);
+        registry.fireChanges(before, after);
+        registry.fireChanges(after, after);
+
+        boolean passed = events.toString().equals("[emu-1:null->device, emu-2:null->unauthorized, "
+                + "emu-2:unauthorized->device, emu-3:null->unauthorized, emu-1:device->null]");
+        System.out.println("  - Events: " + events);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Checks for DiagnosticBundleJob. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class DiagnosticBundleJobTest {
+
+    private static final String LOGCAT_OUTPUT = "06-15 12:34:56.789  1234  1250 W CarService: hello\n";
+
+    public static void main(String[] args) throws Exception {
+        DiagnosticBundleJobTest tester = new DiagnosticBundleJobTest();
+        System.out.println("INFO: Running DiagnosticBundleJobTest checks...");
+
+        tester.testParseOptions();
+        tester.testCollectWithStalledArtifact();
+
+        System.out.println("INFO: DiagnosticBundleJobTest checks complete.");
+    }
+
+    /**
+     * Artifact lists default to everything, and malformed timeouts are rejected.
+     */
+    public void testParseOptions() {
+        System.out.println("\nTEST: DiagnosticBundleJob - Parse Options");
+        DiagnosticBundleJob job = new DiagnosticBundleJob(new AdbHelper(), 2);
+        job.setTimeouts("bugreport:1200, anr:60");
+        boolean passed = DiagnosticBundleJob.parseArtifacts("").size() == DiagnosticBundleJob.Artifact.values().length
+                && DiagnosticBundleJob.parseArtifacts("anr,bugreport").equals(
+                        Arrays.asList(DiagnosticBundleJob.Artifact.ANR, DiagnosticBundleJob.Artifact.BUGREPORT))
+                && job.getTimeoutSeconds(DiagnosticBundleJob.Artifact.BUGREPORT) == 1200
+                && job.getTimeoutSeconds(DiagnosticBundleJob.Artifact.ANR) == 60
+                && rejects(() -> DiagnosticBundleJob.parseArtifacts("anr,screenshot"))
+                && rejects(() -> job.setTimeouts("anr:0"))
+                && rejects(() -> job.setTimeouts("60"));
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A bugreport that sends nothing before its deadline fails on its own; the other artifacts still land
+     * in the ZIP, next to a report naming the failure.
+     */
+    public void testCollectWithStalledArtifact() throws Exception {
+        System.out.println("\nTEST: DiagnosticBundleJob - Collect With Stalled Artifact");
+        File dir = Files.createTempDirectory("bundle-test").toFile();
+        try (FakeAdbServer server = new FakeAdbServer(DiagnosticBundleJobTest::serve)) {
+            AdbHelper adbHelper = server.newAdbHelper();
+            DiagnosticBundleJob job = new DiagnosticBundleJob(adbHelper, 3);
+            job.setTimeoutSeconds(DiagnosticBundleJob.Artifact.BUGREPORT, 1);
+            List<MultiDeviceExtractor.DeviceResult> results = job.collect(Collections.singletonList("emu-1"),
+                    DiagnosticBundleJob.parseArtifacts("bugreport,dropbox,logcat"), dir.getAbsolutePath());
+
+            List<String> names = new ArrayList<>();
+            String report = "";
+            String logcat = "";
+            File zipFile = results.get(0).getLogFile();
+            try (ZipFile zip = new ZipFile(zipFile)) {
+                for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                    names.add(entries.nextElement().getName());
+                }
+                report = read(zip, DiagnosticBundleJob.REPORT_ENTRY);
+                logcat = read(zip, "logcat.txt");
+            }
+            Collections.sort(names);
+            boolean passed = results.get(0).isSuccess() && job.getFailedArtifacts() == 1
+                    && names.equals(Arrays.asList("bugreport.zip", "bundle-report.txt", "dropbox.txt", "logcat.txt"))
+                    && report.contains("bugreport    FAILED") && report.contains("timed out")
+                    && report.contains("dropbox      OK") && logcat.equals(LOGCAT_OUTPUT);
+            System.out.print("  - Report:\n" + report);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+            Files.delete(zipFile.toPath());
+        } finally {
+            Files.delete(dir.toPath());
+        }
+    }
+
+    private static String read(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        byte[] bytes = new byte[(int) entry.getSize()];
+        int length = 0;
+        try (InputStream in = zip.getInputStream(entry)) {
+            int read;
+            while (length < bytes.length && (read = in.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean rejects(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Serves device services for emu-1. "bugreportz -s" never answers in time.
+     */
+    private static void serve(String service, FakeAdbServer.Connection connection) throws IOException, InterruptedException {
+        connection.okay(); // host:transport:emu-1
+        String deviceService = connection.readRequest();
+        connection.okay();
+        if ("exec:bugreportz -s".equals(deviceService)) {
+            Thread.sleep(5000);
+            connection.write("PK\003\004late");
+        } else if ("shell:dumpsys dropbox --print".equals(deviceService)) {
+            connection.write("Drop box contents: 0 entries\n");
+        } else {
+            connection.write(LOGCAT_OUTPUT);
+        }
+    }
+}
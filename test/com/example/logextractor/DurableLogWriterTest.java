@@ -0,0 +1,199 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks for DurableLogWriter and resuming a capture from its journal. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class DurableLogWriterTest {
+
+    public static void main(String[] args) throws Exception {
+        DurableLogWriterTest tester = new DurableLogWriterTest();
+        System.out.println("INFO: Running DurableLogWriterTest checks...");
+
+        tester.testAlignedWritesAndSingleCommit();
+        tester.testGroupCommit();
+        tester.testRecover();
+        tester.testResumeFromJournal();
+
+        System.out.println("INFO: DurableLogWriterTest checks complete.");
+    }
+
+    /**
+     * Without a sync interval the file is forced once, on close; until then only whole blocks reach the file.
+     */
+    public void testAlignedWritesAndSingleCommit() throws IOException {
+        System.out.println("\nTEST: DurableLogWriter - Aligned Writes, One Commit");
+        File file = File.createTempFile("durable-test", ".txt");
+        try {
+            byte[] log = lines(0, 20_000);
+            DurableLogWriter writer = new DurableLogWriter(file, false, 0, null);
+            for (int i = 0; i < log.length; i += 777) {
+                writer.write(log, i, Math.min(777, log.length - i));
+            }
+            long lengthBeforeClose = file.length();
+            writer.close();
+            boolean passed = lengthBeforeClose > 0 && lengthBeforeClose % DurableLogWriter.BLOCK_SIZE == 0
+                    && writer.getCommits() == 1 && writer.getCommittedLength() == log.length
+                    && Arrays.equals(log, Files.readAllBytes(file.toPath()));
+            System.out.println("  - " + log.length + " bytes, " + lengthBeforeClose + " in the file before close, " + writer.getCommits() + " commit(s)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * With a sync interval, commits are grouped: far fewer than the lines written, and each reported length
+     * ends on a line boundary.
+     */
+    public void testGroupCommit() throws Exception {
+        System.out.println("\nTEST: DurableLogWriter - Group Commit");
+        File file = File.createTempFile("durable-test", ".txt");
+        try {
+            final List<Long> lengths = new ArrayList<>();
+            DurableLogWriter writer = new DurableLogWriter(file, false, 50, (committedFile, length) -> lengths.add(length));
+            int lineCount = 0;
+            long end = System.currentTimeMillis() + 400;
+            while (System.currentTimeMillis() < end) {
+                byte[] line = lines(lineCount, lineCount + 1);
+                writer.write(line, 0, line.length);
+                lineCount++;
+                if (lineCount % 100 == 0) {
+                    Thread.sleep(5);
+                }
+            }
+            writer.close();
+            byte[] content = Files.readAllBytes(file.toPath());
+            boolean passed = lengths.size() >= 3 && lengths.size() <= 12 && lengths.size() == writer.getCommits()
+                    && lengths.get(lengths.size() - 1) == content.length;
+            for (long length : lengths) {
+                passed &= content[(int) length - 1] == '\n';
+            }
+            System.out.println("  - " + lineCount + " line(s), " + lengths.size() + " commit(s)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Recovery cuts a file back to its committed length, and without one, back to its last complete line.
+     */
+    public void testRecover() throws IOException {
+        System.out.println("\nTEST: DurableLogWriter - Recover");
+        File file = File.createTempFile("durable-test", ".txt");
+        try {
+            byte[] committed = lines(0, 100);
+            byte[] uncommitted = lines(100, 110);
+            write(file, committed, uncommitted, "06-15 12:00:04.070  10".getBytes(StandardCharsets.US_ASCII));
+            long discarded = DurableLogWriter.recover(file, committed.length);
+            boolean cutToCommitted = Arrays.equals(committed, Files.readAllBytes(file.toPath()))
+                    && discarded == uncommitted.length + 22;
+
+            write(file, committed, "06-15 12:00:04.070  10".getBytes(StandardCharsets.US_ASCII));
+            boolean cutTornLine = DurableLogWriter.recover(file, -1) == 22 && Arrays.equals(committed, Files.readAllBytes(file.toPath()));
+            boolean intactKept = DurableLogWriter.recover(file, -1) == 0 && file.length() == committed.length;
+
+            boolean passed = cutToCommitted && cutTornLine && intactKept;
+            System.out.println("  - Committed length: " + cutToCommitted + ", torn line: " + cutTornLine + ", intact file kept: " + intactKept);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * A capture abandoned mid-write (as in a crash) is resumed from its journal: the segment is cut back to
+     * the last commit, the position matches the last committed line, and new lines are appended after it.
+     */
+    public void testResumeFromJournal() throws Exception {
+        System.out.println("\nTEST: RotatingLogWriter - Resume From Journal");
+        File dir = Files.createTempDirectory("durable-test").toFile();
+        try {
+            final LogcatCheckpoint journal = LogcatCheckpoint.journalForDevice(dir, "emu-1");
+            final LogcatPosition position = new LogcatPosition();
+            RotatingLogWriter crashed = new RotatingLogWriter(dir, "ivi_logcat_emu-1_20240101_120000", 0, 0, 0, 1);
+            crashed.setCommitListener((file, length) -> journal.save(position, file.getName(), length));
+            for (int i = 0; i < 300; i++) {
+                byte[] line = lines(i, i + 1);
+                position.accept(line, 0, line.length);
+                crashed.writeLine(line, 0, line.length);
+                if (i % 50 == 0) {
+                    Thread.sleep(2);
+                }
+            }
+            crashed.flush(); // Whatever the last commit did not cover reaches the file, but not the journal
+            File segment = crashed.getCurrentFile();
+            try (FileOutputStream out = new FileOutputStream(segment, true)) {
+                out.write("06-15 12:09:99".getBytes(StandardCharsets.US_ASCII)); // Torn line
+            }
+
+            LogcatCheckpoint reloaded = LogcatCheckpoint.journalForDevice(dir, "emu-1");
+            LogcatPosition resumedPosition = new LogcatPosition();
+            boolean loaded = reloaded.loadInto(resumedPosition);
+            RotatingLogWriter resumed = new RotatingLogWriter(dir, "ivi_logcat_emu-1_20240102_080000", 0, 0, 0, 1);
+            long discarded = resumed.resume(reloaded.getLogFileName(), reloaded.getCommittedLength());
+            byte[] kept = Files.readAllBytes(segment.toPath());
+            int committedLines = countLines(kept);
+            byte[] lastCommitted = lines(committedLines - 1, committedLines);
+            byte[] next = lines(committedLines, 400);
+            resumed.writeLine(next, 0, next.length);
+            resumed.close();
+
+            boolean passed = loaded && discarded >= 14 && kept.length == reloaded.getCommittedLength()
+                    && resumedPosition.getSinceTime().equals(new String(lastCommitted, 0, LogcatPosition.TIMESTAMP_LENGTH, StandardCharsets.US_ASCII))
+                    && segment.equals(resumed.getCurrentFile())
+                    && Arrays.equals(lines(0, 400), Files.readAllBytes(segment.toPath()));
+            System.out.println("  - Resumed " + segment.getName() + " after " + committedLines + " committed line(s), discarded " + discarded + " byte(s)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private static void write(File file, byte[]... parts) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            content.write(part);
+        }
+        Files.write(file.toPath(), content.toByteArray());
+    }
+
+    private static int countLines(byte[] content) {
+        int lines = 0;
+        for (byte b : content) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return Threadtime lines [from, to) with increasing timestamps, the same text for the same line number in every call.
+     */
+    private static byte[] lines(int from, int to) {
+        StringBuilder content = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            long millis = i * 7L;
+            content.append(String.format("06-15 12:%02d:%02d.%03d  1000  2000 I CarService: event %d%n",
+                    millis / 60_000 % 60, millis / 1000 % 60, millis % 1000, i));
+        }
+        return content.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks for ExtractionMetrics and ExtractionStats. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class ExtractionMetricsTest {
+
+    public static void main(String[] args) throws IOException {
+        ExtractionMetricsTest tester = new ExtractionMetricsTest();
+        System.out.println("INFO: Running ExtractionMetricsTest checks...");
+
+        tester.testPhasesAndCounters();
+        tester.testJsonForFailedExtraction();
+
+        System.out.println("INFO: ExtractionMetricsTest checks complete.");
+    }
+
+    /**
+     * Bytes and lines are counted as output passes through, and each reached phase gets a duration.
+     */
+    public void testPhasesAndCounters() throws IOException {
+        System.out.println("\nTEST: ExtractionMetrics - Phases And Counters");
+        ExtractionMetrics metrics = new ExtractionMetrics("emu-1");
+        metrics.setDeviceCheckNanos(2_000_000);
+        metrics.markSpawnStart();
+        metrics.markCommandStarted("adb-process");
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        MeasuringOutputStream out = new MeasuringOutputStream(sink, metrics);
+        out.write("line one\nline ".getBytes(StandardCharsets.US_ASCII));
+        out.write("two\n".getBytes(StandardCharsets.US_ASCII));
+        metrics.markTransferDone();
+        metrics.markClosed();
+        metrics.finish(null, true, null);
+
+        ExtractionStats stats = new ExtractionStats();
+        stats.record(metrics);
+        boolean passed = metrics.getBytes() == 18 && metrics.getLines() == 2 && sink.size() == 18
+                && metrics.getSpawnNanos() >= 0 && metrics.getTimeToFirstByteNanos() >= 0
+                && metrics.getTransferNanos() >= 0 && metrics.getFlushNanos() >= 0
+                && stats.getExtractionCount() == 1 && stats.getTotalLines() == 2 && "emu-1".equals(stats.getLastDevice());
+        System.out.println("  - " + metrics.describePhases());
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Phases that were never reached are null in the JSON, and the error text is escaped.
+     */
+    public void testJsonForFailedExtraction() {
+        System.out.println("\nTEST: ExtractionMetrics - JSON For Failed Extraction");
+        ExtractionMetrics metrics = new ExtractionMetrics(null);
+        metrics.addRetry();
+        metrics.finish(null, false, "adb said \"no\"\nbye");
+        String json = metrics.toJson();
+        boolean passed = json.contains("\"device\": null,")
+                && json.contains("\"success\": false,")
+                && json.contains("\"error\": \"adb said \\\"no\\\"\\u000abye\",")
+                && json.contains("\"timeToFirstByteMillis\": null,")
+                && json.contains("\"retries\": 1\n}");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+}
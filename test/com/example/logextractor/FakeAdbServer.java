@@ -0,0 +1,197 @@
+package com.example.logextractor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A stand-in for the adb server, shared by the tests. Listens on a free loopback port and hands every
+ * connection, on its own daemon thread, to a {@link Handler} that plays the server's side of the host
+ * protocol. Every request read is recorded in {@link #requests}.
+ *
+ * Device feature queries are answered by the server itself, with the features set by {@link #setFeatures}
+ * (none by default, so clients use the legacy "shell:" service).
+ */
+class FakeAdbServer implements AutoCloseable {
+
+    /**
+     * Answers one connection.
+     */
+    interface Handler {
+        /**
+         * @param service The first request on the connection, e.g. "host:devices" or "host:transport:emu-1".
+         */
+        void handle(String service, Connection connection) throws IOException, InterruptedException;
+    }
+
+    final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private final ServerSocketChannel server;
+    private final Handler handler;
+    private volatile String features = "";
+
+    FakeAdbServer(Handler handler) throws IOException {
+        this.handler = handler;
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread thread = new Thread(this::serve, "fake-adb-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * @param features The comma-separated features reported for every device, e.g. "shell_v2,cmd".
+     */
+    void setFeatures(String features) {
+        this.features = features;
+    }
+
+    /**
+     * @return A helper talking to this server instead of a real one.
+     */
+    AdbHelper newAdbHelper() throws IOException {
+        AdbHelper adbHelper = new AdbHelper();
+        adbHelper.setServerClient(new AdbSocketClient("127.0.0.1", getPort()));
+        return adbHelper;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void serve() {
+        while (server.isOpen()) {
+            try {
+                final SocketChannel channel = server.accept();
+                Thread connectionThread = new Thread(() -> handle(channel), "fake-adb-connection");
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                // Closed by the test
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (Connection connection = new Connection(channel)) {
+            String service = connection.readRequest();
+            if ("host:features".equals(service) || service.startsWith("host-serial:") && service.endsWith(":features")) {
+                connection.okay();
+                connection.writeHexString(features);
+                return;
+            }
+            handler.handle(service, connection);
+        } catch (IOException | InterruptedException e) {
+            // The client gave up on the connection, or the test is over
+        }
+    }
+
+    /**
+     * One client connection, with the framing of the host protocol.
+     */
+    final class Connection implements AutoCloseable {
+        private final SocketChannel channel;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the next request (a hex length, then the service name) and records it.
+         */
+        String readRequest() throws IOException {
+            int length = Integer.parseInt(new String(read(4), StandardCharsets.US_ASCII), 16);
+            String request = new String(read(length), StandardCharsets.UTF_8);
+            requests.add(request);
+            return request;
+        }
+
+        void okay() throws IOException {
+            write("OKAY");
+        }
+
+        void fail(String message) throws IOException {
+            write("FAIL");
+            writeHexString(message);
+        }
+
+        /**
+         * Writes a hex length followed by the text, as host services answer with.
+         */
+        void writeHexString(String text) throws IOException {
+            write(String.format("%04x", text.getBytes(StandardCharsets.UTF_8).length) + text);
+        }
+
+        void write(String text) throws IOException {
+            write(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void write(byte[] bytes) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        /**
+         * Writes one packet of the shell protocol ("shell,v2,"): an id, a little-endian length and the data.
+         */
+        void writeShellPacket(int id, byte[] data) throws IOException {
+            ByteBuffer packet = ByteBuffer.allocate(5 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+            packet.put((byte) id).putInt(data.length).put(data);
+            write(packet.array());
+        }
+
+        /**
+         * Writes stdout and stderr as shell protocol packets, then the exit code.
+         */
+        void writeShellResult(String stdout, String stderr, int exitCode) throws IOException {
+            if (!stdout.isEmpty()) {
+                writeShellPacket(ShellProtocolOutputStream.ID_STDOUT, stdout.getBytes(StandardCharsets.UTF_8));
+            }
+            if (!stderr.isEmpty()) {
+                writeShellPacket(ShellProtocolOutputStream.ID_STDERR, stderr.getBytes(StandardCharsets.UTF_8));
+            }
+            writeShellPacket(ShellProtocolOutputStream.ID_EXIT, new byte[] {(byte) exitCode});
+        }
+
+        /**
+         * Sends nothing until the client hangs up, like a device command that never prints anything.
+         */
+        void awaitHangUp() {
+            try {
+                while (channel.read(ByteBuffer.allocate(1)) != -1) {
+                    // Input from the client is ignored
+                }
+            } catch (IOException e) {
+                // Reset by the client, which is a hang-up too
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private byte[] read(int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    throw new IOException("Client closed the connection");
+                }
+            }
+            return buffer.array();
+        }
+    }
+}
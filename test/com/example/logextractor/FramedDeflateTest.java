@@ -0,0 +1,195 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Round-trip checks for the framed compressed output format.
+ *
+ * Runs from a main method and prints PASS/FAIL per scenario, like the other tests in this directory.
+ */
+public class FramedDeflateTest {
+
+    public static void main(String[] args) throws Exception {
+        FramedDeflateTest tester = new FramedDeflateTest();
+        System.out.println("INFO: Running FramedDeflateTest checks...");
+
+        tester.testRoundTripAcrossManyFrames();
+        tester.testTruncatedFileIsRejected();
+        tester.testCorruptFrameHeaderIsRejected();
+        tester.testInterruptedCloseStopsWorker();
+
+        System.out.println("INFO: FramedDeflateTest checks complete.");
+    }
+
+    /**
+     * Writes enough lines for several small frames through the async compressor and reads them back in parallel.
+     */
+    public void testRoundTripAcrossManyFrames() throws IOException, InterruptedException {
+        System.out.println("\nTEST: Framed format - Round Trip Across Many Frames");
+        byte[] original = sampleLog(5000);
+        File file = File.createTempFile("framed_test", ".txt.fz");
+        try {
+            try (OutputStream out = new AsyncCompressingOutputStream(
+                    new FramedDeflateOutputStream(new FileOutputStream(file), 4096), "framed-test")) {
+                out.write(original);
+            }
+            FramedDeflateReader reader = new FramedDeflateReader(file);
+            int frames = reader.readFrameTable().size();
+            ByteArrayOutputStream restored = new ByteArrayOutputStream();
+            reader.decompress(restored, 4);
+            boolean passed = frames > 1 && Arrays.equals(original, restored.toByteArray());
+            System.out.println("  - Frames: " + frames + ", original " + original.length + " bytes, compressed " + file.length() + " bytes");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * A file cut off before its end marker must be reported, not silently decoded as shorter.
+     */
+    public void testTruncatedFileIsRejected() throws IOException, InterruptedException {
+        System.out.println("\nTEST: Framed format - Truncated File Is Rejected");
+        File file = File.createTempFile("framed_test", ".txt.fz");
+        try {
+            try (OutputStream out = new FramedDeflateOutputStream(new FileOutputStream(file), 4096)) {
+                out.write(sampleLog(1000));
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(file.length() - 20);
+            }
+            boolean passed;
+            try {
+                new FramedDeflateReader(file).decompress(new ByteArrayOutputStream(), 2);
+                passed = false;
+            } catch (IOException expected) {
+                System.out.println("  - Reported: " + expected.getMessage());
+                passed = true;
+            }
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Frame lengths that no writer produces are reported as a corrupt header, rather than looping on the same
+     * header or allocating whatever the header claims.
+     */
+    public void testCorruptFrameHeaderIsRejected() throws IOException, InterruptedException {
+        System.out.println("\nTEST: Framed format - Corrupt Frame Header Is Rejected");
+        File file = File.createTempFile("framed_test", ".txt.fz");
+        try {
+            try (OutputStream out = new FramedDeflateOutputStream(new FileOutputStream(file), 4096)) {
+                out.write(sampleLog(1000));
+            }
+            int headerOffset = FramedDeflateOutputStream.MAGIC.length + 1;
+            int[][] corruptions = { // {field offset in the header, value}
+                    {4, -FramedDeflateOutputStream.FRAME_HEADER_SIZE}, // Would step back onto the same header
+                    {0, Integer.MAX_VALUE},
+                    {0, -1},
+                    {4, 0},
+            };
+            boolean passed = true;
+            for (int[] corruption : corruptions) {
+                File corrupt = File.createTempFile("framed_test", ".txt.fz");
+                try {
+                    Files.copy(file.toPath(), corrupt.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    try (RandomAccessFile raf = new RandomAccessFile(corrupt, "rw")) {
+                        raf.seek(headerOffset + corruption[0]);
+                        raf.writeInt(corruption[1]);
+                    }
+                    String message = null;
+                    try {
+                        new FramedDeflateReader(corrupt).decompress(new ByteArrayOutputStream(), 2);
+                    } catch (IOException expected) {
+                        message = expected.getMessage();
+                    }
+                    passed &= message != null && message.startsWith("Corrupt frame header at offset " + headerOffset);
+                    System.out.println("  - " + (corruption[0] == 0 ? "Uncompressed" : "Compressed") + " length " + corruption[1] + ": " + message);
+                } finally {
+                    corrupt.delete();
+                }
+            }
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Closing from an interrupted thread (a cancelled job) must stop the worker before the sink is closed,
+     * instead of leaving it writing to a closed sink or blocked on the queue forever.
+     */
+    public void testInterruptedCloseStopsWorker() throws IOException {
+        System.out.println("\nTEST: Async compression - Interrupted Close Stops Worker");
+        SlowSink sink = new SlowSink();
+        OutputStream out = new AsyncCompressingOutputStream(sink, "interrupt-test");
+        byte[] chunk = new byte[64 * 1024];
+        for (int i = 0; i < 8; i++) {
+            out.write(chunk);
+        }
+        Thread.currentThread().interrupt();
+        boolean reported = false;
+        try {
+            out.close();
+        } catch (InterruptedIOException expected) {
+            reported = true;
+        }
+        boolean stillInterrupted = Thread.interrupted();
+        boolean workerAlive = false;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            workerAlive |= thread.getName().equals("interrupt-test") && thread.isAlive();
+        }
+        boolean passed = reported && stillInterrupted && !workerAlive && sink.closed && !sink.writtenAfterClose && sink.writes < 8;
+        System.out.println("  - Reported: " + reported + ", worker alive: " + workerAlive + ", chunks written: " + sink.writes + " of 8, written after close: " + sink.writtenAfterClose);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A sink whose writes take a while and, like blocking file or pipe I/O, do not stop on interrupt.
+     */
+    private static class SlowSink extends OutputStream {
+        volatile int writes;
+        volatile boolean closed;
+        volatile boolean writtenAfterClose;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            long end = System.nanoTime() + 50_000_000L;
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            writtenAfterClose |= closed;
+            writes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static byte[] sampleLog(int lines) {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            log.append(String.format("06-15 12:%02d:%02d.%03d  1234  1250 I CarService: sample message %d%n", i / 60000 % 60, i / 1000 % 60, i % 1000, i));
+        }
+        return log.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
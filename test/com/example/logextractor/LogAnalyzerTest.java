@@ -0,0 +1,165 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Checks for LogAnalyzer and LogAnalysis. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class LogAnalyzerTest {
+
+    public static void main(String[] args) throws IOException {
+        LogAnalyzerTest tester = new LogAnalyzerTest();
+        System.out.println("INFO: Running LogAnalyzerTest checks...");
+
+        tester.testChunkBoundaries();
+        tester.testCounts();
+        tester.testParallelMatchesSequential();
+        tester.testRateAcrossNewYear();
+
+        System.out.println("INFO: LogAnalyzerTest checks complete.");
+    }
+
+    /**
+     * Chunks cover the file without gaps, and every chunk but the last ends with a newline.
+     */
+    public void testChunkBoundaries() throws IOException {
+        System.out.println("\nTEST: LogAnalyzer - Chunk Boundaries");
+        File log = writeLog(500);
+        try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+            byte[] content = Files.readAllBytes(log.toPath());
+            List<long[]> chunks = LogAnalyzer.chunkBoundaries(channel, 1000);
+            boolean passed = chunks.size() > 10;
+            long expectedOffset = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                long[] chunk = chunks.get(i);
+                passed &= chunk[0] == expectedOffset && chunk[1] > 0
+                        && (i == chunks.size() - 1 || content[(int) (chunk[0] + chunk[1] - 1)] == '\n');
+                expectedOffset = chunk[0] + chunk[1];
+            }
+            passed &= expectedOffset == content.length;
+            System.out.println("  - " + chunks.size() + " chunks for " + content.length + " bytes");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            Files.delete(log.toPath());
+        }
+    }
+
+    /**
+     * Lines are counted per tag, pid, level and minute; errors are E and above; other lines are counted apart.
+     */
+    public void testCounts() throws IOException {
+        System.out.println("\nTEST: LogAnalyzer - Counts");
+        String content = "--------- beginning of main\n"
+                + "06-15 12:34:56.789  1234  1250 W CarService: hello\n"
+                + "06-15 12:34:57.000  1234  1250 E CarService: failed\n"
+                + "06-15 12:35:01.000   900   901 I AudioHAL: routing\n"
+                + "06-15 12:35:02.000   900   901 F AudioHAL: abort"; // No trailing newline
+        File log = Files.createTempFile("analyze-test", ".txt").toFile();
+        try {
+            Files.write(log.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+            LogAnalysis analysis = LogAnalyzer.analyze(log, 2, 64);
+            List<LogAnalysis.Entry> tags = analysis.topTags(10);
+            List<LogAnalysis.Entry> pids = analysis.topPids(1);
+            List<LogAnalysis.Entry> minutes = analysis.busiestMinutes(10);
+            boolean passed = analysis.getLines() == 5 && analysis.getUnparsedLines() == 1 && analysis.getBytes() == content.length()
+                    && tags.size() == 2 && tags.get(0).getName().equals("CarService") && tags.get(0).getLines() == 2
+                    && tags.get(0).getErrors() == 1 && tags.get(1).getErrors() == 1
+                    && pids.size() == 1 && pids.get(0).getName().equals("1234")
+                    && minutes.size() == 2 && analysis.levels().size() == 4;
+            for (LogAnalysis.Entry minute : minutes) {
+                passed &= minute.getLines() == 2 && (minute.getName().equals("06-15 12:34") || minute.getName().equals("06-15 12:35"));
+            }
+            analysis.writeReport(System.out, 5);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            Files.delete(log.toPath());
+        }
+    }
+
+    /**
+     * Many small chunks on several threads give the same totals as one chunk on one thread.
+     */
+    public void testParallelMatchesSequential() throws IOException {
+        System.out.println("\nTEST: LogAnalyzer - Parallel Matches Sequential");
+        File log = writeLog(20_000);
+        try {
+            LogAnalysis sequential = LogAnalyzer.analyze(log, 1, Integer.MAX_VALUE);
+            LogAnalysis parallel = LogAnalyzer.analyze(log, 4, 4096);
+            boolean passed = sequential.getLines() == 20_000 && parallel.getLines() == sequential.getLines()
+                    && parallel.getBytes() == log.length() && parallel.getTagCount() == sequential.getTagCount()
+                    && parallel.getPidCount() == sequential.getPidCount() && parallel.getMinuteCount() == sequential.getMinuteCount()
+                    && same(parallel.topTags(100), sequential.topTags(100))
+                    && same(parallel.topPids(100), sequential.topPids(100))
+                    && same(parallel.busiestMinutes(100), sequential.busiestMinutes(100))
+                    && same(parallel.levels(), sequential.levels());
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            Files.delete(log.toPath());
+        }
+    }
+
+    private static boolean same(List<LogAnalysis.Entry> a, List<LogAnalysis.Entry> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).getBytes() != b.get(i).getBytes() || a.get(i).getLines() != b.get(i).getLines()
+                    || a.get(i).getErrors() != b.get(i).getErrors()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The lines-per-minute rate of a log running from 12-31 into 01-01 is over the minutes it covers, not over
+     * the distance between the year-less timestamps.
+     */
+    public void testRateAcrossNewYear() throws IOException {
+        System.out.println("\nTEST: LogAnalyzer - Rate Across New Year");
+        String content = "12-31 23:59:58.000  1234  1250 I CarService: one\n"
+                + "12-31 23:59:59.000  1234  1250 I CarService: two\n"
+                + "01-01 00:00:00.000  1234  1250 I CarService: three\n"
+                + "01-01 00:00:01.000  1234  1250 I CarService: four\n";
+        File log = Files.createTempFile("analyze-test", ".txt").toFile();
+        try {
+            Files.write(log.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+            LogAnalysis analysis = LogAnalyzer.analyze(log, 1, 64);
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            analysis.writeReport(new PrintStream(report, true, "UTF-8"), 5);
+            String summary = report.toString("UTF-8").split("\n")[1];
+            boolean passed = analysis.getMinuteCount() == 2 && summary.contains("(2 min with lines), average 2 lines/min");
+            System.out.println("  - " + summary);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            Files.delete(log.toPath());
+        }
+    }
+
+    /**
+     * Writes a threadtime log with a skewed tag mix, one line per 100 ms.
+     */
+    private static File writeLog(int lines) throws IOException {
+        String[] tags = {"CarService", "AudioHAL_Primary", "VehicleHal", "ActivityManager", "bt_stack"};
+        String levels = "VDIWEF";
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            long millis = i * 100L;
+            int tag = (i * i) % 7 % tags.length;
+            content.append(String.format("06-15 %02d:%02d:%02d.%03d %5d %5d %c %s: message %d%n",
+                    12 + millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000,
+                    1000 + tag * 7, 2000 + i % 13, levels.charAt(i % levels.length()), tags[tag], i));
+        }
+        File log = Files.createTempFile("analyze-test", ".txt").toFile();
+        Files.write(log.toPath(), content.toString().getBytes(StandardCharsets.US_ASCII));
+        return log;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Checks for LogFilter and FilteringOutputStream. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class LogFilterTest {
+
+    private static final String AUDIO_WARNING = "06-15 12:34:56.789  1234  1250 W AudioHAL: underrun on bus 2\n";
+    private static final String AUDIO_INFO = "06-15 12:34:56.790  1234  1250 I AudioHAL: stream opened\n";
+    private static final String CAR_ERROR = "06-15 12:34:56.791   900   910 E CarService: power state timeout\n";
+    private static final String OTHER_ERROR = "06-15 12:34:56.792   555   556 E Other   : crash in bus handler\n";
+
+    public static void main(String[] args) throws IOException {
+        LogFilterTest tester = new LogFilterTest();
+        System.out.println("INFO: Running LogFilterTest checks...");
+
+        tester.testTagLevelSpecs();
+        tester.testPidAndMessageCriteria();
+        tester.testFilteringStreamAcrossWrites();
+
+        System.out.println("INFO: LogFilterTest checks complete.");
+    }
+
+    /**
+     * Named tags keep their own minimum level, and "*:E" applies to every other tag.
+     */
+    public void testTagLevelSpecs() {
+        System.out.println("\nTEST: LogFilter - Tag Level Specs");
+        LogFilter filter = LogFilter.parse("AudioHAL:W,CarService:W *:E", null, null, null);
+        LogFilter.LineMatcher matcher = filter.newLineMatcher();
+        boolean passed = accepts(matcher, AUDIO_WARNING)
+                && !accepts(matcher, AUDIO_INFO)
+                && accepts(matcher, CAR_ERROR)
+                && accepts(matcher, OTHER_ERROR)
+                && filter.deviceArgs().equals(Arrays.asList("AudioHAL:W", "CarService:W", "*:E"));
+        System.out.println("  - Device args: " + filter.deviceArgs());
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Pid, literal and regex criteria must all match; invalid specs are rejected.
+     */
+    public void testPidAndMessageCriteria() {
+        System.out.println("\nTEST: LogFilter - Pid And Message Criteria");
+        LogFilter.LineMatcher matcher = LogFilter.parse(null, "1234, 555", "bus", "bus \\d").newLineMatcher();
+        boolean rejectsBadLevel;
+        try {
+            LogFilter.parse("AudioHAL:Q", null, null, null);
+            rejectsBadLevel = false;
+        } catch (IllegalArgumentException e) {
+            rejectsBadLevel = true;
+        }
+        boolean passed = accepts(matcher, AUDIO_WARNING)
+                && !accepts(matcher, AUDIO_INFO)
+                && !accepts(matcher, CAR_ERROR)
+                && !accepts(matcher, OTHER_ERROR)
+                && !accepts(matcher, "--------- beginning of main\n")
+                && rejectsBadLevel;
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Lines split across writes, and an unterminated last line, must be filtered like any other.
+     */
+    public void testFilteringStreamAcrossWrites() throws IOException {
+        System.out.println("\nTEST: FilteringOutputStream - Lines Across Writes");
+        byte[] input = (AUDIO_WARNING + AUDIO_INFO + CAR_ERROR + OTHER_ERROR.trim()).getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        FilteringOutputStream out = new FilteringOutputStream(LogFilter.parse("*:W", null, null, null), sink);
+        for (int offset = 0; offset < input.length; offset += 7) {
+            out.write(input, offset, Math.min(7, input.length - offset));
+        }
+        out.close();
+        String expected = AUDIO_WARNING + CAR_ERROR + OTHER_ERROR.trim();
+        boolean passed = expected.equals(sink.toString("US-ASCII"))
+                && out.getLinesKept() == 3
+                && out.getLinesDropped() == 1;
+        System.out.println("  - Kept " + out.getLinesKept() + ", dropped " + out.getLinesDropped());
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    private static boolean accepts(LogFilter.LineMatcher matcher, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return matcher.accepts(bytes, 0, bytes.length);
+    }
+}
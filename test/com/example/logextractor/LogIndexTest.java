@@ -0,0 +1,221 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Checks for LogIndex and LogIndexQuery. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class LogIndexTest {
+
+    private static final String[] TAGS = {"CarService", "AudioHAL_Primary", "VehicleHal", "ActivityManager", "Bluetooth"};
+    private static final String LEVELS = "VDIWEF";
+    private static final int LINE_COUNT = 3000;
+    private static final int BLOCK_SIZE = 4096; // Small blocks, so the synthetic log spans dozens of them
+
+    public static void main(String[] args) throws IOException {
+        LogIndexTest tester = new LogIndexTest();
+        System.out.println("INFO: Running LogIndexTest checks...");
+
+        File log = writeLog();
+        try {
+            LogIndex.build(log, BLOCK_SIZE).write(LogIndex.indexFileFor(log));
+            tester.testIndexRoundTrip(log);
+            tester.testTagQuery(log);
+            tester.testLevelQuery(log);
+            tester.testTimeRangeQuery(log);
+            tester.testStaleIndex(log);
+        } finally {
+            LogIndex.indexFileFor(log).delete();
+            log.delete();
+        }
+
+        System.out.println("INFO: LogIndexTest checks complete.");
+    }
+
+    /**
+     * The index read back from its file has the same blocks and tags as the one built, and the blocks cover
+     * the log end to end on line boundaries.
+     */
+    public void testIndexRoundTrip(File log) throws IOException {
+        System.out.println("\nTEST: LogIndex - Round Trip");
+        LogIndex built = LogIndex.build(log, BLOCK_SIZE);
+        LogIndex read = LogIndex.read(LogIndex.indexFileFor(log));
+        byte[] content = Files.readAllBytes(log.toPath());
+        boolean passed = read.getBlockCount() == built.getBlockCount() && read.getBlockCount() > 20
+                && read.getTagCount() == TAGS.length + 2 && read.getLogLength() == log.length();
+        long expectedOffset = 0;
+        for (int i = 0; i < read.getBlockCount(); i++) {
+            LogIndex.Block block = read.getBlocks().get(i);
+            LogIndex.Block original = built.getBlocks().get(i);
+            passed &= block.offset == expectedOffset && block.offset == original.offset && block.length == original.length
+                    && block.minTimestamp == original.minTimestamp && block.maxTimestamp == original.maxTimestamp
+                    && block.minTimestamp <= block.maxTimestamp
+                    && (block.offset == 0 || content[(int) block.offset - 1] == '\n');
+            expectedOffset += block.length;
+        }
+        passed &= expectedOffset == content.length;
+        System.out.println("  - " + read.getBlockCount() + " block(s), " + read.getTagCount() + " tag(s) for " + content.length + " bytes");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A tag query returns exactly the lines with that tag, reading only the blocks listed for it: including
+     * tags that occur only in the first line and only in the last line (which has no line break).
+     */
+    public void testTagQuery(File log) throws IOException {
+        System.out.println("\nTEST: LogIndexQuery - Tag Query");
+        LogIndexQuery query = LogIndexQuery.open(log);
+        int blockCount = LogIndex.read(LogIndex.indexFileFor(log)).getBlockCount();
+        boolean passed = true;
+        for (String tag : new String[] {"VehicleHal", "BootReceiver", "ShutdownHook", "NoSuchTag"}) {
+            String expected = expected(tag, 'V', Long.MIN_VALUE, Long.MAX_VALUE);
+            String actual = run(query, tag, 'V', Long.MIN_VALUE, Long.MAX_VALUE);
+            boolean rare = !"VehicleHal".equals(tag);
+            passed &= expected.equals(actual) && (rare ? query.getBlocksRead() <= 1 : query.getBlocksRead() == blockCount);
+            System.out.println("  - " + tag + ": " + count(actual) + " line(s), " + query.getBlocksRead() + " of " + blockCount + " block(s) read");
+        }
+        passed &= !expected("BootReceiver", 'V', Long.MIN_VALUE, Long.MAX_VALUE).isEmpty()
+                && !expected("ShutdownHook", 'V', Long.MIN_VALUE, Long.MAX_VALUE).endsWith("\n");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A level query returns exactly the lines at or above the level, alone and combined with a tag.
+     */
+    public void testLevelQuery(File log) throws IOException {
+        System.out.println("\nTEST: LogIndexQuery - Level Query");
+        LogIndexQuery query = LogIndexQuery.open(log);
+        String errors = run(query, null, 'E', Long.MIN_VALUE, Long.MAX_VALUE);
+        String carWarnings = run(query, "CarService", 'w', Long.MIN_VALUE, Long.MAX_VALUE);
+        String everything = run(query, null, 'V', Long.MIN_VALUE, Long.MAX_VALUE);
+        boolean rejected;
+        try {
+            run(query, null, 'X', Long.MIN_VALUE, Long.MAX_VALUE);
+            rejected = false;
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        boolean passed = errors.equals(expected(null, 'E', Long.MIN_VALUE, Long.MAX_VALUE)) && count(errors) > 0
+                && carWarnings.equals(expected("CarService", 'W', Long.MIN_VALUE, Long.MAX_VALUE)) && count(carWarnings) > 0
+                && everything.equals(new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8))
+                && rejected;
+        System.out.println("  - E and above: " + count(errors) + " line(s); CarService W and above: " + count(carWarnings) + " line(s)");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Time-range queries at the start, in the middle and at the end of the log return exactly the lines in
+     * the range, and a narrow range reads only a few blocks.
+     */
+    public void testTimeRangeQuery(File log) throws IOException {
+        System.out.println("\nTEST: LogIndexQuery - Time Range Query");
+        LogIndexQuery query = LogIndexQuery.open(log);
+        int blockCount = LogIndex.read(LogIndex.indexFileFor(log)).getBlockCount();
+        long[][] ranges = {
+                {Long.MIN_VALUE, LogcatLineParser.parseTimestampKey("06-15 12:00:00.100", false)},
+                {LogcatLineParser.parseTimestampKey("06-15 12:00:10", false), LogcatLineParser.parseTimestampKey("06-15 12:00:11", true)},
+                {LogcatLineParser.parseTimestampKey("06-15 12:00:29.900", false), Long.MAX_VALUE},
+                {LogcatLineParser.parseTimestampKey("06-15 13:00", false), Long.MAX_VALUE},
+        };
+        boolean passed = true;
+        for (long[] range : ranges) {
+            String expected = expected(null, 'V', range[0], range[1]);
+            String actual = run(query, null, 'V', range[0], range[1]);
+            passed &= expected.equals(actual) && query.getBlocksRead() <= 6; // The middle second is about 14 KB
+            System.out.println("  - " + count(actual) + " line(s), " + query.getBlocksRead() + " of " + blockCount + " block(s) read");
+        }
+        String combined = run(query, "Bluetooth", 'I', ranges[1][0], ranges[1][1]);
+        passed &= combined.equals(expected("Bluetooth", 'I', ranges[1][0], ranges[1][1])) && count(combined) > 0
+                && count(expected(null, 'V', ranges[0][0], ranges[0][1])) == 11
+                && count(expected(null, 'V', ranges[2][0], ranges[2][1])) == 10;
+        System.out.println("  - Bluetooth I and above in the middle range: " + count(combined) + " line(s)");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Once the log has grown, its old index is refused instead of silently missing the new lines.
+     */
+    public void testStaleIndex(File log) throws IOException {
+        System.out.println("\nTEST: LogIndexQuery - Stale Index");
+        Files.write(log.toPath(), "\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        boolean passed;
+        try {
+            LogIndexQuery.open(log);
+            passed = false;
+        } catch (IOException e) {
+            System.out.println("  - " + e.getMessage());
+            passed = e.getMessage().contains("stale");
+        }
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    private static String run(LogIndexQuery query, String tag, char minLevel, long from, long to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        query.query(tag, minLevel, from, to, out);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * @return The lines of the synthetic log matching the criteria, selected from the fields it was generated from.
+     */
+    private static String expected(String tag, char minLevel, long from, long to) {
+        StringBuilder matches = new StringBuilder();
+        for (int i = 0; i < LINE_COUNT; i++) {
+            String line = line(i);
+            long timestamp = LogcatLineParser.parseTimestampKey(line.substring(0, 18), false);
+            if ((tag == null || tag.equals(tag(i))) && LEVELS.indexOf(level(i)) >= LEVELS.indexOf(minLevel)
+                    && timestamp >= from && timestamp <= to) {
+                matches.append(line);
+            }
+        }
+        return matches.toString();
+    }
+
+    /**
+     * @return Threadtime lines 10 ms apart from 06-15 12:00:00.000. The first and the last line have tags of
+     *         their own, and the last line has no line break, as in a log cut off by a crash.
+     */
+    private static File writeLog() throws IOException {
+        File log = File.createTempFile("index-test", ".txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < LINE_COUNT; i++) {
+            content.append(line(i));
+        }
+        Files.write(log.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        return log;
+    }
+
+    private static String line(int i) {
+        long millis = i * 10L;
+        String line = String.format("06-15 12:%02d:%02d.%03d %5d %5d %c %s: event %d value=%d",
+                millis / 60_000 % 60, millis / 1000 % 60, millis % 1000, 1000 + i % 7, 2000 + i % 13, level(i), tag(i), i, (i * 7919) % 100_000);
+        return i == LINE_COUNT - 1 ? line : line + "\n";
+    }
+
+    private static String tag(int i) {
+        if (i == 0) {
+            return "BootReceiver";
+        }
+        if (i == LINE_COUNT - 1) {
+            return "ShutdownHook";
+        }
+        return TAGS[i % TAGS.length];
+    }
+
+    private static char level(int i) {
+        return LEVELS.charAt(i / 3 % LEVELS.length());
+    }
+
+    private static int count(String lines) {
+        int count = 0;
+        for (String line : lines.split("\n")) {
+            count += line.isEmpty() ? 0 : 1;
+        }
+        return count;
+    }
+}
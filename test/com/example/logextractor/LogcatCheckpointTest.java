@@ -0,0 +1,242 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Checks for LogcatCheckpoint and the incremental extraction built on it. Runs from a main method and
+ * prints PASS/FAIL per scenario.
+ */
+public class LogcatCheckpointTest {
+
+    public static void main(String[] args) throws Exception {
+        LogcatCheckpointTest tester = new LogcatCheckpointTest();
+        System.out.println("INFO: Running LogcatCheckpointTest checks...");
+
+        tester.testSaveAndReload();
+        tester.testAtomicReplace();
+        tester.testIncrementalRuns();
+        tester.testStalledRunTimesOut();
+
+        System.out.println("INFO: LogcatCheckpointTest checks complete.");
+    }
+
+    /**
+     * A saved position, log file name and committed length come back from a fresh checkpoint object;
+     * a missing file loads nothing and a malformed one is reported.
+     */
+    public void testSaveAndReload() throws IOException {
+        System.out.println("\nTEST: LogcatCheckpoint - Save and Reload");
+        File dir = Files.createTempDirectory("checkpoint-test").toFile();
+        try {
+            LogcatPosition position = new LogcatPosition();
+            position.restore("06-15 12:00:00.120", 3);
+            LogcatCheckpoint.forDevice(dir, "emu-1").save(position, "ivi_logcat_emu-1_incremental.txt", 1234);
+            LogcatCheckpoint reloaded = LogcatCheckpoint.forDevice(dir, "emu-1");
+            LogcatPosition loaded = new LogcatPosition();
+            boolean found = reloaded.loadInto(loaded);
+
+            LogcatPosition plain = new LogcatPosition();
+            LogcatCheckpoint withoutFile = new LogcatCheckpoint(new File(dir, "plain.checkpoint"));
+            withoutFile.save(position);
+            LogcatCheckpoint plainReloaded = new LogcatCheckpoint(new File(dir, "plain.checkpoint"));
+            boolean plainFound = plainReloaded.loadInto(plain);
+
+            boolean missingFound = LogcatCheckpoint.forDevice(dir, "emu-2").loadInto(new LogcatPosition());
+            File malformed = new File(dir, "malformed.checkpoint");
+            Files.write(malformed.toPath(), "sinceTime=yesterday\n".getBytes(StandardCharsets.ISO_8859_1));
+            boolean malformedRejected;
+            try {
+                new LogcatCheckpoint(malformed).loadInto(new LogcatPosition());
+                malformedRejected = false;
+            } catch (IOException e) {
+                malformedRejected = e.getMessage().contains("Malformed");
+            }
+
+            boolean passed = found && "06-15 12:00:00.120".equals(loaded.getSinceTime()) && loaded.getLinesAtTimestamp() == 3
+                    && "ivi_logcat_emu-1_incremental.txt".equals(reloaded.getLogFileName()) && reloaded.getCommittedLength() == 1234
+                    && plainFound && "06-15 12:00:00.120".equals(plain.getSinceTime())
+                    && plainReloaded.getLogFileName() == null && plainReloaded.getCommittedLength() == -1
+                    && !missingFound && malformedRejected;
+            System.out.println("  - Reloaded " + loaded.getSinceTime() + " x" + loaded.getLinesAtTimestamp() + " for "
+                    + reloaded.getLogFileName() + " at " + reloaded.getCommittedLength() + " byte(s)");
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * A save replaces the previous checkpoint as a whole: a half-written temporary file left by a save that
+     * was killed is never read, the next save replaces it, and saving an empty position keeps the old one.
+     */
+    public void testAtomicReplace() throws IOException {
+        System.out.println("\nTEST: LogcatCheckpoint - Atomic Replace");
+        File dir = Files.createTempDirectory("checkpoint-test").toFile();
+        try {
+            LogcatCheckpoint checkpoint = LogcatCheckpoint.forDevice(dir, "emu-1");
+            LogcatPosition first = new LogcatPosition();
+            first.restore("06-15 12:00:00.100", 1);
+            checkpoint.save(first);
+            File temp = new File(dir, checkpoint.getFile().getName() + ".tmp");
+            Files.write(temp.toPath(), "sinceTime=06-15 12:0".getBytes(StandardCharsets.ISO_8859_1)); // Torn by a crash
+            LogcatPosition afterCrash = new LogcatPosition();
+            LogcatCheckpoint.forDevice(dir, "emu-1").loadInto(afterCrash);
+
+            LogcatPosition second = new LogcatPosition();
+            second.restore("06-15 12:00:00.200", 2);
+            checkpoint.save(second);
+            checkpoint.save(new LogcatPosition()); // Nothing captured: the last position stands
+            LogcatPosition afterSave = new LogcatPosition();
+            LogcatCheckpoint.forDevice(dir, "emu-1").loadInto(afterSave);
+            String[] files = dir.list();
+
+            boolean passed = "06-15 12:00:00.100".equals(afterCrash.getSinceTime())
+                    && "06-15 12:00:00.200".equals(afterSave.getSinceTime()) && afterSave.getLinesAtTimestamp() == 2
+                    && !temp.exists() && files != null && files.length == 1;
+            System.out.println("  - After a torn save: " + afterCrash.getSinceTime() + "; after the next save: " + afterSave.getSinceTime()
+                    + "; files " + Arrays.toString(files));
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Runs against a device whose log grows between them, including a new line with the same timestamp as
+     * the last one captured: each run asks for the lines since the checkpoint, and the file ends up with
+     * every line exactly once. A run with nothing new appends nothing.
+     */
+    public void testIncrementalRuns() throws Exception {
+        System.out.println("\nTEST: LogcatCheckpoint - Incremental Runs");
+        File dir = Files.createTempDirectory("checkpoint-test").toFile();
+        GrowingLog device = new GrowingLog();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            AdbHelper adbHelper = server.newAdbHelper();
+            String fileName = "ivi_logcat_emu-1_incremental.txt";
+            device.lines.addAll(Arrays.asList(
+                    "06-15 12:00:00.100  1000  2000 I CarService: one\n",
+                    "06-15 12:00:00.200  1000  2000 I CarService: two\n",
+                    "06-15 12:00:00.300  1000  2001 W AudioHAL: three\n",
+                    "06-15 12:00:00.300  1000  2002 I VehicleHal: four\n"));
+            File first = adbHelper.extractLogcatIncremental("emu-1", dir.getPath(), fileName);
+            String afterFirst = read(first);
+
+            device.lines.addAll(Arrays.asList(
+                    "06-15 12:00:00.300  1000  2003 E VehicleHal: five, same millisecond\n",
+                    "06-15 12:00:00.400  1000  2000 I CarService: six\n"));
+            File second = adbHelper.extractLogcatIncremental("emu-1", dir.getPath(), fileName);
+            String afterSecond = read(second);
+
+            File third = adbHelper.extractLogcatIncremental("emu-1", dir.getPath(), fileName);
+            String afterThird = read(third);
+
+            List<String> shells = device.shellRequests;
+            boolean passed = afterFirst.equals(String.join("", device.lines.subList(0, 4)))
+                    && afterSecond.equals(String.join("", device.lines))
+                    && afterThird.equals(afterSecond)
+                    && shells.size() == 3 && !shells.get(0).contains("-T")
+                    && shells.get(1).contains("-T '06-15 12:00:00.300'") && shells.get(2).contains("-T '06-15 12:00:00.400'");
+            System.out.println("  - Requests: " + shells);
+            System.out.println("  - Lines after each run: " + afterFirst.split("\n").length + ", " + afterSecond.split("\n").length
+                    + ", " + afterThird.split("\n").length + " of " + device.lines.size());
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * A run whose device sends part of the log and then stalls is stopped at the dump deadline: it fails, the
+     * partial lines are rolled back, and the next run asks for the same lines again.
+     */
+    public void testStalledRunTimesOut() throws Exception {
+        System.out.println("\nTEST: LogcatCheckpoint - Stalled Run Times Out");
+        File dir = Files.createTempDirectory("checkpoint-test").toFile();
+        GrowingLog device = new GrowingLog();
+        try (FakeAdbServer server = new FakeAdbServer(device)) {
+            AdbHelper adbHelper = server.newAdbHelper();
+            adbHelper.setDumpTimeoutMillis(300);
+            String fileName = "ivi_logcat_emu-1_incremental.txt";
+            device.lines.add("06-15 12:00:00.100  1000  2000 I CarService: one\n");
+            File first = adbHelper.extractLogcatIncremental("emu-1", dir.getPath(), fileName);
+            String afterFirst = read(first);
+
+            device.lines.add("06-15 12:00:00.200  1000  2000 I CarService: two\n");
+            device.stall = true;
+            long startNanos = System.nanoTime();
+            File stalled = adbHelper.extractLogcatIncremental("emu-1", dir.getPath(), fileName);
+            long stalledMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            String afterStall = read(new File(dir, fileName));
+
+            device.stall = false;
+            File retried = adbHelper.extractLogcatIncremental("emu-1", dir.getPath(), fileName);
+            String afterRetry = read(retried);
+
+            List<String> shells = device.shellRequests;
+            boolean passed = stalled == null && stalledMillis < 5000 && afterStall.equals(afterFirst)
+                    && afterRetry.equals(String.join("", device.lines))
+                    && shells.size() == 3 && shells.get(2).equals(shells.get(1));
+            System.out.println("  - Stalled run gave up after " + stalledMillis + " ms; lines after the retry: "
+                    + afterRetry.split("\n").length + " of " + device.lines.size());
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * A device whose log is a list of threadtime lines. "logcat -T TIME" replays the lines at or after TIME,
+     * like the real logcat. With stall set, the device sends the lines and then keeps the connection open
+     * without finishing.
+     */
+    private static class GrowingLog implements FakeAdbServer.Handler {
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        final List<String> shellRequests = new CopyOnWriteArrayList<>();
+        volatile boolean stall;
+
+        @Override
+        public void handle(String service, FakeAdbServer.Connection connection) throws IOException {
+            if ("host:devices".equals(service)) {
+                connection.okay();
+                connection.writeHexString("emu-1\tdevice\n");
+                return;
+            }
+            connection.okay(); // host:transport:emu-1
+            String shell = connection.readRequest(); // shell:logcat -d -v threadtime [-T 'MM-DD HH:MM:SS.mmm']
+            shellRequests.add(shell);
+            connection.okay();
+            int since = shell.indexOf("-T '");
+            String sinceTime = since >= 0 ? shell.substring(since + 4, since + 4 + LogcatPosition.TIMESTAMP_LENGTH) : null;
+            StringBuilder output = new StringBuilder();
+            for (String line : lines) {
+                if (sinceTime == null || line.substring(0, LogcatPosition.TIMESTAMP_LENGTH).compareTo(sinceTime) >= 0) {
+                    output.append(line);
+                }
+            }
+            connection.write(output.toString());
+            if (stall) {
+                connection.awaitHangUp();
+            }
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        return file != null ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : "<extraction failed>";
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks for LogcatLineParser. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class LogcatLineParserTest {
+
+    public static void main(String[] args) {
+        LogcatLineParserTest tester = new LogcatLineParserTest();
+        System.out.println("INFO: Running LogcatLineParserTest checks...");
+
+        tester.testParsesThreadtimeFields();
+        tester.testRejectsNonThreadtimeLines();
+        tester.testTimestampKeyRoundTrip();
+
+        System.out.println("INFO: LogcatLineParserTest checks complete.");
+    }
+
+    /**
+     * A padded tag, a message containing ": " and a CRLF terminator should all be handled.
+     */
+    public void testParsesThreadtimeFields() {
+        System.out.println("\nTEST: LogcatLineParser - Parses Threadtime Fields");
+        byte[] line = "06-15 12:34:56.789  1234  1250 W Vhal    : set prop: 0x11600207 failed\r\n".getBytes(StandardCharsets.US_ASCII);
+        LogcatRecord record = new LogcatRecord();
+        boolean parsed = LogcatLineParser.parse(line, 0, line.length, record);
+        boolean passed = parsed
+                && record.pid == 1234
+                && record.tid == 1250
+                && record.level == 'W'
+                && "Vhal".equals(record.tagAsString())
+                && "set prop: 0x11600207 failed".equals(record.messageAsString())
+                && "06-15 12:34:56.789".equals(LogcatLineParser.formatTimestampKey(record.timestamp));
+        System.out.println("  - Tag: '" + (parsed ? record.tagAsString() : null) + "', message: '" + (parsed ? record.messageAsString() : null) + "'");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Buffer banners and other formats must not be mistaken for log lines.
+     */
+    public void testRejectsNonThreadtimeLines() {
+        System.out.println("\nTEST: LogcatLineParser - Rejects Non-Threadtime Lines");
+        LogcatRecord record = new LogcatRecord();
+        boolean passed = !parse("--------- beginning of main\n", record)
+                && !parse("W/Vhal    ( 1234): brief format line\n", record)
+                && !parse("06-15 12:34:56.789  abc  1250 W Vhal: bad pid\n", record);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Partial user-supplied times should expand to the start or end of the period they name, and the last day of
+     * a month formats back as itself.
+     */
+    public void testTimestampKeyRoundTrip() {
+        System.out.println("\nTEST: LogcatLineParser - Timestamp Key Round Trip");
+        long from = LogcatLineParser.parseTimestampKey("06-15 12:34", false);
+        long to = LogcatLineParser.parseTimestampKey("06-15 12:34", true);
+        boolean passed = "06-15 12:34:00.000".equals(LogcatLineParser.formatTimestampKey(from))
+                && "06-15 12:34:59.999".equals(LogcatLineParser.formatTimestampKey(to));
+        for (String time : new String[] {"01-01 00:00:00.000", "01-31 23:59:59.999", "12-31 23:59:59.999"}) {
+            passed &= time.equals(LogcatLineParser.formatTimestampKey(LogcatLineParser.parseTimestampKey(time, false)));
+        }
+        System.out.println("  - Range: " + LogcatLineParser.formatTimestampKey(from) + " .. " + LogcatLineParser.formatTimestampKey(to));
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    private static boolean parse(String line, LogcatRecord record) {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return LogcatLineParser.parse(bytes, 0, bytes.length, record);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.logextractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+/**
+ * Checks for LogcatPosition, the resume bookkeeping used by follow mode.
+ *
+ * Like AdbHelperTest, these run from a main method without a test framework and print
+ * PASS/FAIL per scenario. No ADB installation is needed.
+ */
+public class LogcatPositionTest {
+
+    public static void main(String[] args) {
+        LogcatPositionTest tester = new LogcatPositionTest();
+        System.out.println("INFO: Running LogcatPositionTest checks...");
+
+        tester.testTracksLastTimestamp();
+        tester.testResumeSkipsReplayedLines();
+        tester.testResumeAcrossNewYear();
+        tester.testResumeAfterClockWentBack();
+
+        System.out.println("INFO: LogcatPositionTest checks complete.");
+    }
+
+    /**
+     * The position should follow the newest timestamp and count lines sharing it.
+     */
+    public void testTracksLastTimestamp() {
+        System.out.println("\nTEST: LogcatPosition - Tracks Last Timestamp");
+        LogcatPosition position = new LogcatPosition();
+        accept(position, "--------- beginning of main\n");
+        accept(position, "06-15 12:00:00.001  100  101 I Tag: one\n");
+        accept(position, "06-15 12:00:00.002  100  101 I Tag: two\n");
+        accept(position, "06-15 12:00:00.002  100  101 I Tag: three\n");
+        boolean passed = "06-15 12:00:00.002".equals(position.getSinceTime()) && position.getLinesAtTimestamp() == 2;
+        System.out.println("  - Since time: " + position.getSinceTime() + ", lines at timestamp: " + position.getLinesAtTimestamp());
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * After a reconnect, "logcat -T" replays the lines at the last timestamp; only unseen ones may pass.
+     */
+    public void testResumeSkipsReplayedLines() {
+        System.out.println("\nTEST: LogcatPosition - Resume Skips Replayed Lines");
+        LogcatPosition position = new LogcatPosition();
+        accept(position, "06-15 12:00:00.002  100  101 I Tag: two\n");
+        accept(position, "06-15 12:00:00.002  100  101 I Tag: three\n");
+
+        position.beginResume();
+        boolean passed = !accept(position, "--------- beginning of main\n")
+                && !accept(position, "06-15 12:00:00.002  100  101 I Tag: two\n")
+                && !accept(position, "06-15 12:00:00.002  100  101 I Tag: three\n")
+                && accept(position, "06-15 12:00:00.002  100  101 I Tag: four\n")
+                && accept(position, "06-15 12:00:00.003  100  101 I Tag: five\n");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A position saved on 12-31 must not swallow the January lines that follow it; logcat is given the year
+     * for it, as the year-less form would be read as this coming December.
+     */
+    public void testResumeAcrossNewYear() {
+        System.out.println("\nTEST: LogcatPosition - Resume Across New Year");
+        LogcatPosition position = new LogcatPosition();
+        accept(position, "12-31 23:59:59.999  100  101 I Tag: last of the year\n");
+        String argumentInJanuary = position.getSinceTimeArgument(new GregorianCalendar(2027, Calendar.JANUARY, 1, 0, 5));
+        String argumentSameDay = position.getSinceTimeArgument(new GregorianCalendar(2026, Calendar.DECEMBER, 31, 23, 59));
+
+        position.beginResume();
+        boolean passed = accept(position, "01-01 00:00:00.001  100  101 I Tag: first of the year\n")
+                && accept(position, "01-01 00:00:01.000  100  101 I Tag: second\n")
+                && "01-01 00:00:01.000".equals(position.getSinceTime())
+                && "2026-12-31 23:59:59.999".equals(argumentInJanuary)
+                && "12-31 23:59:59.999".equals(argumentSameDay);
+        System.out.println("  - -T in January: " + argumentInJanuary + ", on the day: " + argumentSameDay + "; now at " + position.getSinceTime());
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A unit that rebooted with a reset clock replays lines older than the position: they are new and captured,
+     * while a normal resume still skips what it replays.
+     */
+    public void testResumeAfterClockWentBack() {
+        System.out.println("\nTEST: LogcatPosition - Resume After Clock Went Back");
+        LogcatPosition position = new LogcatPosition();
+        accept(position, "06-15 12:00:00.002  100  101 I Tag: before reboot\n");
+        String argumentNextDay = position.getSinceTimeArgument(new GregorianCalendar(2026, Calendar.JUNE, 14, 8, 0));
+
+        position.beginResume();
+        boolean passed = !accept(position, "--------- beginning of main\n")
+                && accept(position, "01-01 00:00:05.000    90    90 I init: after reboot\n")
+                && accept(position, "01-01 00:00:05.000    90    91 I init: same millisecond\n")
+                && position.getLinesAtTimestamp() == 2
+                && "06-15 12:00:00.002".equals(argumentNextDay); // Within the day of slack, not last year
+
+        position.beginResume();
+        passed &= !accept(position, "01-01 00:00:05.000    90    90 I init: after reboot\n")
+                && !accept(position, "01-01 00:00:05.000    90    91 I init: same millisecond\n")
+                && accept(position, "01-01 00:00:06.000    90    90 I init: new\n");
+        System.out.println("  - Now at " + position.getSinceTime());
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    private static boolean accept(LogcatPosition position, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return position.accept(bytes, 0, bytes.length);
+    }
+}
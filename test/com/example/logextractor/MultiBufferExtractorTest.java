@@ -0,0 +1,80 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Checks for MultiBufferExtractor. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class MultiBufferExtractorTest {
+
+    public static void main(String[] args) throws IOException {
+        MultiBufferExtractorTest tester = new MultiBufferExtractorTest();
+        System.out.println("INFO: Running MultiBufferExtractorTest checks...");
+
+        tester.testParseBuffers();
+        tester.testMergeByTimestamp();
+
+        System.out.println("INFO: MultiBufferExtractorTest checks complete.");
+    }
+
+    /**
+     * Known buffers are accepted in the given order; unknown or repeated ones are rejected.
+     */
+    public void testParseBuffers() {
+        System.out.println("\nTEST: MultiBufferExtractor - Parse Buffers");
+        boolean passed = MultiBufferExtractor.parseBuffers("main, crash,events").equals(Arrays.asList("main", "crash", "events"))
+                && rejects("main,bogus")
+                && rejects("crash,crash")
+                && rejects(" ");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Lines are interleaved by timestamp, ties keep input order, and an unterminated last line gets a newline.
+     */
+    public void testMergeByTimestamp() throws IOException {
+        System.out.println("\nTEST: MultiBufferExtractor - Merge By Timestamp");
+        File dir = Files.createTempDirectory("multibuffer").toFile();
+        File main = write(dir, "main.txt", "--------- beginning of main\n"
+                + "06-15 12:00:00.100  1 1 I A: m1\n"
+                + "06-15 12:00:00.300  1 1 I A: m2\n");
+        File crash = write(dir, "crash.txt", "--------- beginning of crash\n"
+                + "06-15 12:00:00.100  2 2 F B: c1\n"
+                + "06-15 12:00:00.200  2 2 F B: c2");
+        File merged = new File(dir, "merged.txt");
+        long lines = MultiBufferExtractor.mergeByTimestamp(Arrays.asList(main, crash), merged);
+        String expected = "--------- beginning of main\n"
+                + "--------- beginning of crash\n"
+                + "06-15 12:00:00.100  1 1 I A: m1\n"
+                + "06-15 12:00:00.100  2 2 F B: c1\n"
+                + "06-15 12:00:00.200  2 2 F B: c2\n"
+                + "06-15 12:00:00.300  1 1 I A: m2\n";
+        String actual = new String(Files.readAllBytes(merged.toPath()), StandardCharsets.US_ASCII);
+        boolean passed = lines == 6 && expected.equals(actual);
+        System.out.println("  - Merged " + lines + " lines");
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        for (File file : new File[] {main, crash, merged}) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private static boolean rejects(String bufferList) {
+        try {
+            MultiBufferExtractor.parseBuffers(bufferList);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static File write(File dir, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.logextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks for MultiDeviceExtractor against the shared fake adb server. Runs from a main method and prints
+ * PASS/FAIL per scenario.
+ */
+public class MultiDeviceExtractorTest {
+
+    public static void main(String[] args) throws Exception {
+        MultiDeviceExtractorTest tester = new MultiDeviceExtractorTest();
+        System.out.println("INFO: Running MultiDeviceExtractorTest checks...");
+
+        tester.testReportsLogBytes();
+
+        System.out.println("INFO: MultiDeviceExtractorTest checks complete.");
+    }
+
+    /**
+     * With a compressed output format, each device's result reports the logcat bytes extracted, and the
+     * smaller size of the file on disk separately.
+     */
+    public void testReportsLogBytes() throws Exception {
+        System.out.println("\nTEST: MultiDeviceExtractor - Reports Log Bytes");
+        File dir = Files.createTempDirectory("multidevice-test").toFile();
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            log.append(String.format("06-15 12:00:%02d.%03d  1000  2000 I CarService: event %d%n", i / 100, i % 1000, i));
+        }
+        final String logcatOutput = log.toString();
+        try (FakeAdbServer server = new FakeAdbServer((service, connection) -> {
+            connection.okay(); // host:transport:SERIAL
+            connection.readRequest(); // shell:logcat -d
+            connection.okay();
+            connection.write(logcatOutput);
+        })) {
+            AdbHelper adbHelper = server.newAdbHelper();
+            adbHelper.setOutputFormat(OutputFormat.GZIP);
+            List<MultiDeviceExtractor.DeviceResult> results = new MultiDeviceExtractor(adbHelper, 2)
+                    .extractAll(Arrays.asList("emu-1", "emu-2"), dir.getPath());
+            boolean passed = results.size() == 2;
+            for (MultiDeviceExtractor.DeviceResult result : results) {
+                passed &= result.isSuccess() && result.getBytes() == logcatOutput.length()
+                        && result.getFileBytes() == result.getLogFile().length() && result.getFileBytes() < result.getBytes() / 4;
+                System.out.println("  - " + result.getSerial() + ": " + result.getBytes() + " bytes, " + result.getFileBytes() + " on disk");
+            }
+            MultiDeviceExtractor.printSummary(results, 1_000_000);
+            System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+}
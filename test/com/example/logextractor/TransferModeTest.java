@@ -0,0 +1,180 @@
+package com.example.logextractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Checks for TransferMode and BinaryLogDecoder. Runs from a main method and prints PASS/FAIL per scenario.
+ */
+public class TransferModeTest {
+
+    private static final long SECONDS = 1718454896L; // 2024-06-15 12:34:56 UTC
+
+    public static void main(String[] args) throws IOException {
+        TransferModeTest tester = new TransferModeTest();
+        System.out.println("INFO: Running TransferModeTest checks...");
+
+        tester.testAdbCommands();
+        tester.testGzipDecode();
+        tester.testBinaryDecode();
+        tester.testTruncatedBinary();
+        tester.testBinaryUsesDeviceTimeZone();
+
+        System.out.println("INFO: TransferModeTest checks complete.");
+    }
+
+    /**
+     * Compact modes run through exec-out; binary sends the device's time zone first, drops the text format and
+     * puts -B before the filterspecs.
+     */
+    public void testAdbCommands() {
+        System.out.println("\nTEST: TransferMode - ADB Commands");
+        List<String> logcat = Arrays.asList("logcat", "-d", "-v", "threadtime", "*:E");
+        List<String> gzip = TransferMode.GZIP.adbCommand(logcat);
+        List<String> binary = TransferMode.BINARY.adbCommand(logcat);
+        boolean passed = TransferMode.TEXT.adbCommand(logcat).equals(logcat)
+                && gzip.equals(Arrays.asList("exec-out", "logcat -d -v threadtime '*:E' | gzip -c"))
+                && binary.equals(Arrays.asList("exec-out", "getprop persist.sys.timezone; logcat -B -d '*:E'"))
+                && "exec:getprop persist.sys.timezone; logcat -B -d '*:E'".equals(AdbSocketClient.deviceService(binary))
+                && "shell:logcat -d".equals(AdbSocketClient.deviceService(Arrays.asList("logcat", "-d")));
+        System.out.println("  - gzip: " + gzip + ", binary: " + binary);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Gzip output from the device comes back as the original text; other output is rejected up front.
+     */
+    public void testGzipDecode() throws IOException {
+        System.out.println("\nTEST: TransferMode - Gzip Decode");
+        byte[] text = "06-15 12:34:56.789  1234  1250 W CarService: hello\n".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(text);
+        }
+        byte[] decoded = readAll(TransferMode.GZIP.decode(new ByteArrayInputStream(compressed.toByteArray())));
+        boolean rejected;
+        try {
+            TransferMode.GZIP.decode(new ByteArrayInputStream("/system/bin/sh: gzip: inaccessible or not found\n".getBytes(StandardCharsets.US_ASCII)));
+            rejected = false;
+        } catch (IOException e) {
+            rejected = true;
+        }
+        boolean passed = Arrays.equals(text, decoded) && rejected;
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * v4 and v1 entries become threadtime lines (one per message line), and an events entry shows its tag number.
+     */
+    public void testBinaryDecode() throws IOException {
+        System.out.println("\nTEST: BinaryLogDecoder - Decode Entries");
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        binary.write(entry(28, 1234, 1250, 789_000_000, 0, textPayload(5, "CarService", "first\nsecond\n")));
+        binary.write(entry(0, 1, 2, 5_000_000, 0, textPayload(6, "AudioHAL_Primary", "v1 entry")));
+        binary.write(entry(28, 900, 901, 0, 2, new byte[]{(byte) 0xb9, 0x75, 0, 0, 0x01, 0x2a}));
+
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(binary.toByteArray()), TimeZone.getTimeZone("UTC"));
+        String decoded = new String(readAll(decoder), StandardCharsets.US_ASCII);
+        String expected = "06-15 12:34:56.789  1234  1250 W CarService: first\n"
+                + "06-15 12:34:56.789  1234  1250 W CarService: second\n"
+                + "06-15 12:34:56.005     1     2 E AudioHAL_Primary: v1 entry\n"
+                + "06-15 12:34:56.000   900   901 I 30137   : 012a\n";
+        byte[] firstLine = decoded.substring(0, decoded.indexOf('\n')).getBytes(StandardCharsets.US_ASCII);
+        boolean passed = expected.equals(decoded) && decoder.getEntries() == 3
+                && LogcatLineParser.timestampKey(firstLine, 0, firstLine.length) != -1;
+        System.out.print("  - Decoded:\n" + decoded);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * A stream cut off inside an entry is an error, not a silently shorter log.
+     */
+    public void testTruncatedBinary() throws IOException {
+        System.out.println("\nTEST: BinaryLogDecoder - Truncated Entry");
+        byte[] whole = entry(28, 1, 2, 0, 0, textPayload(4, "Tag", "message"));
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(Arrays.copyOf(whole, whole.length - 3)), TimeZone.getTimeZone("UTC"));
+        boolean passed;
+        try {
+            readAll(decoder);
+            passed = false;
+        } catch (EOFException e) {
+            passed = true;
+        }
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    /**
+     * Binary transfers are formatted in the zone the device reports ahead of the entries (UTC if it reports
+     * none), not the host's, so they match text mode and the "logcat -T" position.
+     */
+    public void testBinaryUsesDeviceTimeZone() throws IOException {
+        System.out.println("\nTEST: TransferMode - Binary Uses Device Time Zone");
+        byte[] entry = entry(28, 1, 2, 0, 0, textPayload(4, "Tag", "message"));
+        String berlin = decodeBinaryTransfer("Europe/Berlin\n", entry);
+        String unset = decodeBinaryTransfer("\n", entry);
+        boolean rejected;
+        try {
+            decodeBinaryTransfer("", entry);
+            rejected = false;
+        } catch (IOException e) {
+            rejected = true;
+        }
+        boolean passed = berlin.startsWith("06-15 14:34:56.000") && unset.startsWith("06-15 12:34:56.000") && rejected;
+        System.out.print("  - Europe/Berlin: " + berlin + "  - Unset: " + unset);
+        System.out.println("  - Result: " + (passed ? "PASS" : "FAIL"));
+    }
+
+    private static String decodeBinaryTransfer(String timeZoneLine, byte[] entries) throws IOException {
+        ByteArrayOutputStream transfer = new ByteArrayOutputStream();
+        transfer.write(timeZoneLine.getBytes(StandardCharsets.US_ASCII));
+        transfer.write(entries);
+        return new String(readAll(TransferMode.BINARY.decode(new ByteArrayInputStream(transfer.toByteArray()))), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] textPayload(int priority, String tag, String message) {
+        byte[] tagBytes = tag.getBytes(StandardCharsets.US_ASCII);
+        byte[] messageBytes = message.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(1 + tagBytes.length + 1 + messageBytes.length + 1);
+        payload.put((byte) priority).put(tagBytes).put((byte) 0).put(messageBytes).put((byte) 0);
+        return payload.array();
+    }
+
+    /**
+     * @param headerSize 0 for a v1 entry (20-byte header), 28 for v4.
+     */
+    private static byte[] entry(int headerSize, int pid, int tid, int nanos, int logId, byte[] payload) {
+        int size = headerSize == 0 ? 20 : headerSize;
+        ByteBuffer entry = ByteBuffer.allocate(size + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putShort((short) payload.length).putShort((short) headerSize)
+                .putInt(pid).putInt(tid).putInt((int) SECONDS).putInt(nanos);
+        if (size >= 24) {
+            entry.putInt(logId);
+        }
+        if (size >= 28) {
+            entry.putInt(2000); // uid
+        }
+        entry.put(payload);
+        return entry.array();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7]; // Small, so entries are read across several calls
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}